@@ -31,6 +31,7 @@ public class MainApp extends Application {
     private CheckBox includeSubfolders;
     private CheckBox autoDeleteMode;
     private CheckBox advancedImageDetection;
+    private CheckBox similarImages;
     private TextField directoryField;
     private ResourceBundle messages;
 
@@ -90,6 +91,11 @@ public void start(Stage stage) {
             advancedImageDetection = new CheckBox(messages.getString("checkbox.advanced.image"));
             advancedImageDetection.setTextFill(Color.web("#cccccc"));
             advancedImageDetection.setSelected(true); // Default to enabled for backward compatibility
+            
+            // Needs the images decoded, which only advanced image detection does
+            similarImages = new CheckBox(messages.getString("checkbox.similar.images"));
+            similarImages.setTextFill(Color.web("#cccccc"));
+            similarImages.disableProperty().bind(advancedImageDetection.selectedProperty().not());
 
             // Start button
             Button startButton = new Button(messages.getString("button.start"));
@@ -101,7 +107,7 @@ public void start(Stage stage) {
             root.setAlignment(Pos.CENTER);
             root.setPadding(new Insets(50));
             root.setStyle("-fx-background-color: #121212;");
-            root.getChildren().addAll(titleBox, subtitle, dirBox, includeSubfolders, autoDeleteMode, advancedImageDetection, startButton);
+            root.getChildren().addAll(titleBox, subtitle, dirBox, includeSubfolders, autoDeleteMode, advancedImageDetection, similarImages, startButton);
 
             // Fade in animation
             FadeTransition fade = new FadeTransition(Duration.millis(1200), root);
@@ -178,7 +184,8 @@ private void confirmAndStart(Stage stage) {
         boolean useAdvancedImageDetection = advancedImageDetection.isSelected();
         com.jesusluna.duplicateremover.ui.ProgressDialog progressDialog = 
             new com.jesusluna.duplicateremover.ui.ProgressDialog(stage, messages, autoMode);
-        progressDialog.startScan(directory, includeSubfolders.isSelected(), useAdvancedImageDetection);
+        progressDialog.startScan(directory, includeSubfolders.isSelected(), useAdvancedImageDetection, 
+                                 useAdvancedImageDetection && similarImages.isSelected());
     }
 
     private void showAlert(Alert.AlertType type, String message) {
@@ -1,45 +1,168 @@
 package com.jesusluna.duplicateremover.model;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Represents a group of duplicate files with the same hash
+ * Represents a group of duplicate files with the same hash.
+ * Files may be added from several threads while a scan is running; every accessor
+ * works on a consistent snapshot of the files.
  */
 public class DuplicateGroup {
     
-    private final String hash;
+    /**
+     * Why the files of a group are the same
+     */
+    public enum Kind {
+        
+        /**
+         * Separate files with identical content: deleting all but one frees space
+         */
+        EXACT,
+        
+        /**
+         * Several paths to one and the same file (hard links, or the same directory mounted
+         * twice): the content is stored once, so deleting paths frees no space
+         */
+        HARD_LINK,
+        
+        /**
+         * Images that look alike but whose pixels differ (resized, recompressed or retouched
+         * copies): deleting frees space, but what is lost must be reviewed, so they are never
+         * deleted automatically
+         */
+        SIMILAR
+    }
+    
+    /**
+     * Hash algorithm assumed for groups created without one
+     */
+    public static final String DEFAULT_HASH_ALGORITHM = "SHA-256";
+    
+    private final HashKey hashKey;
+    private final String label;
+    private final String hashAlgorithm;
+    private final Kind kind;
     private final List<File> files;
+    // Metadata of the files added by a scan, as it was when they were grouped
+    private final Map<File, ScannedFile> scannedFiles = new HashMap<>();
     
+    /**
+     * Creates a group identified by a textual label rather than a computed hash
+     */
     public DuplicateGroup(String hash) {
-        this.hash = hash;
+        this(hash, Kind.EXACT);
+    }
+    
+    /**
+     * Creates a group of the given kind identified by a textual label rather than a computed hash
+     */
+    public DuplicateGroup(String hash, Kind kind) {
+        this.hashKey = HashKey.wrap(hash.getBytes(StandardCharsets.UTF_8));
+        this.label = hash;
+        this.hashAlgorithm = DEFAULT_HASH_ALGORITHM;
+        this.kind = kind;
         this.files = new ArrayList<>();
     }
     
+    /**
+     * @param hashKey hash shared by all files in the group
+     * @param hashAlgorithm name of the algorithm that produced the hash
+     */
+    public DuplicateGroup(HashKey hashKey, String hashAlgorithm) {
+        this(hashKey, hashAlgorithm, Kind.EXACT);
+    }
+    
+    /**
+     * @param hashKey hash identifying the group
+     * @param hashAlgorithm name of the algorithm that produced the hash
+     * @param kind why the files are grouped
+     */
+    public DuplicateGroup(HashKey hashKey, String hashAlgorithm, Kind kind) {
+        this.hashKey = hashKey;
+        this.label = null;
+        this.hashAlgorithm = hashAlgorithm;
+        this.kind = kind;
+        this.files = new ArrayList<>();
+    }
+    
+    /**
+     * Returns the hash shared by the files as a display string (hex for computed hashes)
+     */
     public String getHash() {
-        return hash;
+        return label != null ? label : hashKey.toHex();
     }
     
-    public List<File> getFiles() {
+    /**
+     * Returns the hash shared by the files in binary form
+     */
+    public HashKey getHashKey() {
+        return hashKey;
+    }
+    
+    /**
+     * Returns the name of the algorithm that produced {@link #getHash()}
+     */
+    public String getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+    
+    public Kind getKind() {
+        return kind;
+    }
+    
+    /**
+     * Checks if deleting all files but the original frees space, i.e. the files are stored separately
+     */
+    public boolean isReclaimable() {
+        return kind != Kind.HARD_LINK;
+    }
+    
+    /**
+     * Checks if the files are separate copies of the same content, which may be deleted without review
+     */
+    public boolean isIdentical() {
+        return kind == Kind.EXACT;
+    }
+    
+    public synchronized List<File> getFiles() {
         return new ArrayList<>(files);
     }
     
-    public void addFile(File file) {
+    public synchronized void addFile(File file) {
         files.add(file);
     }
     
-    public int getFileCount() {
+    /**
+     * Adds a file found by a scan, remembering the size and modification time it was grouped with
+     */
+    public synchronized void addFile(ScannedFile file) {
+        files.add(file.getFile());
+        scannedFiles.put(file.getFile(), file);
+    }
+    
+    /**
+     * Returns the metadata a file had when it was grouped, or null if it was added without it
+     */
+    public synchronized ScannedFile getScannedFile(File file) {
+        return scannedFiles.get(file);
+    }
+    
+    public synchronized int getFileCount() {
         return files.size();
     }
     
-    public boolean isDuplicate() {
+    public synchronized boolean isDuplicate() {
         return files.size() > 1;
     }
     
     public long getTotalSize() {
-        return files.stream()
+        return getFiles().stream()
                 .mapToLong(File::length)
                 .sum();
     }
@@ -53,6 +176,7 @@ public long getTotalSize() {
      * @return the file considered as the original, or null if no files in group
      */
     public File getOriginalFile() {
+        List<File> files = getFiles();
         if (files.isEmpty()) {
             return null;
         }
@@ -0,0 +1,104 @@
+package com.jesusluna.duplicateremover.model;
+
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Compact binary hash value used as a grouping key.
+ * Holds the raw digest bytes with a precomputed hash code, so it is cheap to use as a
+ * map key; the hex representation is only rendered (and then cached) when displayed.
+ */
+public final class HashKey {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final byte[] bytes;
+    private final int hashCode;
+    private String hex;
+
+    private HashKey(byte[] bytes) {
+        this.bytes = bytes;
+        this.hashCode = Arrays.hashCode(bytes);
+    }
+
+    /**
+     * Creates a key that takes ownership of the given digest, without copying it.
+     * The caller must not modify the array afterwards.
+     *
+     * @param digest raw digest bytes
+     * @return the key
+     */
+    public static HashKey wrap(byte[] digest) {
+        return new HashKey(digest);
+    }
+
+    /**
+     * Creates a key from a copy of the given bytes
+     *
+     * @param bytes raw digest bytes
+     * @return the key
+     */
+    public static HashKey copyOf(byte[] bytes) {
+        return new HashKey(bytes.clone());
+    }
+
+    /**
+     * Parses a hex-encoded hash
+     *
+     * @param hex hex string with an even number of digits
+     * @return the key
+     * @throws IllegalArgumentException if the string is not valid hex
+     */
+    public static HashKey fromHex(String hex) {
+        HashKey key = new HashKey(HEX.parseHex(hex));
+        key.hex = hex.toLowerCase();
+        return key;
+    }
+
+    /**
+     * Returns the digest length in bytes
+     */
+    public int length() {
+        return bytes.length;
+    }
+
+    /**
+     * Returns a copy of the raw digest bytes
+     */
+    public byte[] toByteArray() {
+        return bytes.clone();
+    }
+
+    /**
+     * Returns the lowercase hex representation, rendered on first use
+     */
+    public String toHex() {
+        String result = hex;
+        if (result == null) {
+            result = HEX.formatHex(bytes);
+            hex = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof HashKey other)) {
+            return false;
+        }
+        return hashCode == other.hashCode && Arrays.equals(bytes, other.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+}
@@ -0,0 +1,104 @@
+package com.jesusluna.duplicateremover.model;
+
+import java.io.File;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * A regular file found during a scan, together with the metadata read
+ * by traversal. Carrying the metadata avoids further stat calls later on.
+ */
+public final class ScannedFile {
+
+    private final File file;
+    private final long size;
+    private final long lastModified;
+    private final Object fileKey;
+    private final long deviceId;
+
+    public ScannedFile(File file, long size, long lastModified, Object fileKey) {
+        this.file = Objects.requireNonNull(file, "file");
+        this.size = size;
+        this.lastModified = lastModified;
+        this.fileKey = fileKey;
+        this.deviceId = parseDeviceId(fileKey);
+    }
+
+    /**
+     * Creates a scanned file from the attributes read during traversal
+     */
+    public static ScannedFile of(File file, BasicFileAttributes attributes) {
+        return new ScannedFile(file, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                               attributes.fileKey());
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the last modification time in milliseconds since the epoch
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Returns the file system key identifying the underlying file (e.g. device and inode),
+     * or null if the file system does not provide one. Two paths with equal keys are links
+     * to the same file.
+     */
+    public Object getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * Returns the identifier of the device holding the file, or -1 if the file system does
+     * not report one. Files with the same device identifier share a file system.
+     */
+    public long getDeviceId() {
+        return deviceId;
+    }
+
+    /**
+     * Reads the device out of a file key. Keys have no API for it, so this relies on Unix keys
+     * printing as "(dev=803,ino=1234)" with the device in hexadecimal; the device only chooses
+     * how a file is scheduled, so a key printed differently just leaves it unknown.
+     *
+     * @return the device, or -1 if the key does not show one
+     */
+    private static long parseDeviceId(Object fileKey) {
+        if (fileKey == null) {
+            return -1;
+        }
+        String key = fileKey.toString();
+        String field = "dev=";
+        int radix = 16;
+        int start = key.indexOf(field);
+        if (start < 0) {
+            return -1;
+        }
+        start += field.length();
+        int end = start;
+        while (end < key.length() && Character.digit(key.charAt(end), radix) >= 0) {
+            end++;
+        }
+        if (end == start) {
+            return -1;
+        }
+        try {
+            return Long.parseUnsignedLong(key, start, end, radix);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.getPath();
+    }
+}
@@ -0,0 +1,114 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.ScannedFile;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incrementally groups files by a cheap key (file size, partial fingerprint) as they
+ * stream in, and promotes files to the next stage as soon as they can be duplicates.
+ * A file that is alone in its bucket cannot have a duplicate, so it never needs to be
+ * read further. When a bucket reaches two members both are promoted; every later
+ * member is promoted on arrival.
+ *
+ * Not thread-safe: intended to be fed by a single dispatcher thread.
+ *
+ * @param <K> bucket key type
+ */
+public class CandidateBucketIndex<K> {
+
+    private final Map<K, Bucket> buckets = new HashMap<>();
+    private long fileCount;
+    private long totalBytes;
+    private long promotedFileCount;
+    private long promotedBytes;
+
+    /**
+     * Adds a file to the index
+     *
+     * @param key the bucket key
+     * @param file the file, with the size read during traversal
+     * @return files promoted by this addition: empty while the file is alone in its bucket,
+     *         both files when the bucket reaches two members, otherwise just the new file
+     */
+    public List<ScannedFile> add(K key, ScannedFile file) {
+        long size = file.getSize();
+        fileCount++;
+        totalBytes += size;
+
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            buckets.put(key, new Bucket(file));
+            return Collections.emptyList();
+        }
+
+        promotedFileCount++;
+        promotedBytes += size;
+        if (bucket.firstFile == null) {
+            return List.of(file);
+        }
+
+        ScannedFile first = bucket.firstFile;
+        promotedFileCount++;
+        promotedBytes += first.getSize();
+        bucket.firstFile = null;
+        return List.of(first, file);
+    }
+
+    /**
+     * Returns the file alone in the bucket of a key, or null if the bucket is empty or its
+     * files have been promoted
+     */
+    public ScannedFile getSingleFile(K key) {
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? bucket.firstFile : null;
+    }
+
+    public long getFileCount() {
+        return fileCount;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    /**
+     * Returns the number of files promoted to the next stage so far
+     */
+    public long getPromotedFileCount() {
+        return promotedFileCount;
+    }
+
+    /**
+     * Returns the number of files that are still alone in their bucket.
+     * Once all files have been added, these are the files the stage ruled out.
+     */
+    public long getUnpromotedFileCount() {
+        return fileCount - promotedFileCount;
+    }
+
+    /**
+     * Returns the total size of the files still alone in their bucket
+     */
+    public long getUnpromotedBytes() {
+        return totalBytes - promotedBytes;
+    }
+
+    /**
+     * Holds the first member of a bucket until a second one arrives
+     */
+    private static class Bucket {
+        private ScannedFile firstFile;
+
+        Bucket(ScannedFile firstFile) {
+            this.firstFile = firstFile;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.ScannedFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds candidate groups small enough to be verified by comparing their files directly (see
+ * {@link ContentComparator}) until their size is known. A group is only known to stay small
+ * once every file has been seen, so its files are held back; a group that grows past the
+ * limit is released to be hashed instead, together with every later member.
+ *
+ * Not thread-safe: intended to be fed by a single dispatcher thread.
+ *
+ * @param <K> group key type
+ */
+public class CompareGroupIndex<K> {
+
+    private final int limit;
+    private final Map<K, List<ScannedFile>> held = new LinkedHashMap<>();
+    private final Set<K> released = new HashSet<>();
+    private long heldFileCount;
+
+    /**
+     * @param limit largest number of files in a group that is compared
+     */
+    public CompareGroupIndex(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Adds a candidate file to its group
+     *
+     * @return files to hash now: empty while the group may still be compared, all its files when
+     *         it grows past the limit, otherwise just the new file
+     */
+    public List<ScannedFile> add(K key, ScannedFile file) {
+        if (released.contains(key)) {
+            return List.of(file);
+        }
+        List<ScannedFile> group = held.computeIfAbsent(key, k -> new ArrayList<>());
+        group.add(file);
+        heldFileCount++;
+        if (group.size() <= limit) {
+            return Collections.emptyList();
+        }
+        return release(key);
+    }
+
+    /**
+     * Gives up comparing a group, e.g. because one of its files is cheaper to hash
+     *
+     * @return the files held for it so far, to hash now; later members are returned by {@link #add}
+     */
+    public List<ScannedFile> release(K key) {
+        released.add(key);
+        List<ScannedFile> group = held.remove(key);
+        if (group == null) {
+            return Collections.emptyList();
+        }
+        heldFileCount -= group.size();
+        return group;
+    }
+
+    /**
+     * Removes and returns every group still held, in the order they were started.
+     * Once all files have been added, these are the groups to compare.
+     */
+    public List<List<ScannedFile>> drain() {
+        List<List<ScannedFile>> groups = new ArrayList<>(held.values());
+        held.clear();
+        heldFileCount = 0;
+        return groups;
+    }
+
+    /**
+     * Returns the number of files held back in groups that may still be compared
+     */
+    public long getHeldFileCount() {
+        return heldFileCount;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
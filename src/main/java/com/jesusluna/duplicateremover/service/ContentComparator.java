@@ -0,0 +1,179 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.HashKey;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Verifies files directly by comparing their bytes instead of hashing them.
+ * The files are read block by block in lockstep and split into classes of identical content
+ * as soon as their blocks differ; the comparison stops once every file is in a class of its
+ * own, so files that differ early are barely read, and identical files are read once with no
+ * hashing at all. A class holds files whose bytes are equal up to the end of every one of them.
+ *
+ * Each file needs a buffer of its own, so this suits small groups: a hash reads each file
+ * independently, whatever the number of files.
+ *
+ * Thread-safe: buffers are allocated for each comparison.
+ */
+public class ContentComparator {
+
+    /**
+     * Default largest group verified by comparison rather than by hashing
+     */
+    public static final int DEFAULT_GROUP_LIMIT = 3;
+
+    /**
+     * Name recorded as the hash algorithm of groups verified by comparison
+     */
+    public static final String ALGORITHM_NAME = "byte comparison";
+
+    // Keeps class keys apart from digests and from the keys of inline-keyed files
+    private static final byte CLASS_KEY_MARKER = (byte) 0xC1;
+
+    private final int blockSize;
+
+    /**
+     * @param blockSize bytes read from each file at a time
+     */
+    public ContentComparator(int blockSize) {
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    /**
+     * Splits files into classes of identical content
+     *
+     * @param files the files to compare, normally of the same size
+     * @return the classes, each holding files in the order given, and the bytes read
+     * @throws IOException if a file cannot be read
+     */
+    public Comparison compare(List<File> files) throws IOException {
+        List<Member> members = new ArrayList<>(files.size());
+        try {
+            long largest = 0;
+            for (File file : files) {
+                Member member = new Member(file, FileChannel.open(file.toPath(), StandardOpenOption.READ));
+                members.add(member);
+                largest = Math.max(largest, member.channel.size());
+            }
+            // One byte past the largest file so that a file that grew shows in the same block
+            int capacity = (int) Math.min(blockSize, largest + 1);
+            for (Member member : members) {
+                member.buffer = ByteBuffer.allocate(capacity);
+            }
+
+            List<List<File>> classes = new ArrayList<>();
+            List<List<Member>> open = List.of(members);
+            long bytesRead = 0;
+            while (!open.isEmpty()) {
+                List<List<Member>> next = new ArrayList<>();
+                for (List<Member> candidates : open) {
+                    for (Member member : candidates) {
+                        bytesRead += member.fill();
+                    }
+                    for (List<Member> part : split(candidates)) {
+                        if (part.size() == 1 || !part.get(0).buffer.hasRemaining()) {
+                            // Alone, or identical up to the end of every file
+                            classes.add(part.stream().map(member -> member.file).toList());
+                            part.forEach(Member::close);
+                        } else {
+                            next.add(part);
+                        }
+                    }
+                }
+                open = next;
+            }
+            return new Comparison(classes, bytesRead);
+        } finally {
+            members.forEach(Member::close);
+        }
+    }
+
+    /**
+     * Splits files by the content of their current block, keeping their order
+     */
+    private static List<List<Member>> split(List<Member> members) {
+        List<List<Member>> parts = new ArrayList<>();
+        for (Member member : members) {
+            List<Member> match = null;
+            for (List<Member> part : parts) {
+                if (part.get(0).buffer.equals(member.buffer)) {
+                    match = part;
+                    break;
+                }
+            }
+            if (match == null) {
+                match = new ArrayList<>();
+                parts.add(match);
+            }
+            match.add(member);
+        }
+        return parts;
+    }
+
+    /**
+     * Creates a grouping key for a class of compared files
+     *
+     * @param id number distinguishing the class from every other class of the scan
+     */
+    static HashKey classKey(long id) {
+        byte[] key = new byte[Long.BYTES + 1];
+        key[0] = CLASS_KEY_MARKER;
+        for (int i = 0; i < Long.BYTES; i++) {
+            key[i + 1] = (byte) (id >>> (56 - 8 * i));
+        }
+        return HashKey.wrap(key);
+    }
+
+    /**
+     * Outcome of a comparison
+     *
+     * @param classes files grouped by identical content; a file with no identical file is in a class of its own
+     * @param bytesRead bytes read from all files together
+     */
+    public record Comparison(List<List<File>> classes, long bytesRead) {
+    }
+
+    /**
+     * A file being compared with the block read from it last
+     */
+    private static final class Member {
+
+        private final File file;
+        private final FileChannel channel;
+        private ByteBuffer buffer;
+
+        Member(File file, FileChannel channel) {
+            this.file = file;
+            this.channel = channel;
+        }
+
+        /**
+         * Reads the next block, which is shorter than the buffer only at the end of the file
+         *
+         * @return the number of bytes read
+         */
+        int fill() throws IOException {
+            buffer.clear();
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the block is full or the file ends
+            }
+            buffer.flip();
+            return buffer.remaining();
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Only read from, nothing to lose
+            }
+        }
+    }
+}
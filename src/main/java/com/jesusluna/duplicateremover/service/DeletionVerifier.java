@@ -0,0 +1,314 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.DuplicateGroup;
+import com.jesusluna.duplicateremover.model.ScannedFile;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithms;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks, just before duplicates are deleted, that each of them is still a copy of the
+ * original kept in its group. A group only tells that its files matched when they were
+ * scanned, so a duplicate is only deleted if:
+ * <ul>
+ *   <li>it is not the original itself;</li>
+ *   <li>it and the original still have the size and modification time they were grouped with,
+ *       so that neither has changed since its hash was computed;</li>
+ *   <li>its bytes equal those of the original, unless the group's hash already rules that out
+ *       being wrong: a cryptographic hash, or a direct comparison during the scan.</li>
+ * </ul>
+ * The comparison memory-maps both files in regions that are compared in parallel, every pair
+ * at once, and a pair stops at its first differing region. With the default cryptographic hash
+ * only the metadata is checked, which costs one stat per file. Images matched by their pixels
+ * differ in their bytes by design: if their pixel hash may collide, both images are decoded
+ * again and their pixels compared instead. Similar images are never identical, so only their
+ * metadata is checked.
+ */
+public class DeletionVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeletionVerifier.class);
+
+    /**
+     * Default size of the regions compared as separate tasks
+     */
+    public static final long DEFAULT_REGION_SIZE = 16L * 1024 * 1024; // 16MB
+
+    /**
+     * Why a duplicate must not be deleted
+     */
+    public enum Failure {
+
+        /**
+         * The duplicate is the original kept from its group
+         */
+        IS_ORIGINAL,
+
+        /**
+         * The duplicate no longer exists
+         */
+        MISSING,
+
+        /**
+         * The duplicate's size or modification time changed since it was scanned
+         */
+        CHANGED,
+
+        /**
+         * The original is gone, or its size or modification time changed since it was scanned
+         */
+        ORIGINAL_CHANGED,
+
+        /**
+         * The duplicate's bytes differ from the original's, or its pixels if it is an image
+         * matched by its pixels
+         */
+        CONTENT_DIFFERS,
+
+        /**
+         * The duplicate or the original could not be read
+         */
+        UNREADABLE
+    }
+
+    private final int parallelism;
+    private final long regionSize;
+    private final ImageHashService imageHashService = new ImageHashService();
+
+    /**
+     * Creates a verifier using all processors
+     */
+    public DeletionVerifier() {
+        this(ScanOptions.calculateDefaultParallelism(), DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * @param parallelism number of regions compared at the same time
+     * @param regionSize size of the regions compared as separate tasks
+     */
+    public DeletionVerifier(int parallelism, long regionSize) {
+        this.parallelism = Math.max(1, parallelism);
+        this.regionSize = Math.max(1, regionSize);
+    }
+
+    /**
+     * Verifies duplicates about to be deleted. Returns once every duplicate has been checked;
+     * if interrupted, the duplicates not checked yet are reported as unreadable.
+     *
+     * @param deletions the duplicates, each with its group and the original kept from it
+     * @return the reason each failing duplicate must not be deleted; duplicates absent from the
+     *         map may be deleted
+     */
+    public Map<File, Failure> verify(List<Deletion> deletions) {
+        Map<File, Failure> failures = new ConcurrentHashMap<>();
+        Map<File, Boolean> originalsUnchanged = new HashMap<>();
+        List<Deletion> toCompare = new ArrayList<>();
+        List<Deletion> toComparePixels = new ArrayList<>();
+
+        for (Deletion deletion : deletions) {
+            File duplicate = deletion.duplicate();
+            if (duplicate.getAbsoluteFile().equals(deletion.original().getAbsoluteFile())) {
+                failures.put(duplicate, Failure.IS_ORIGINAL);
+                continue;
+            }
+            BasicFileAttributes attributes = readAttributes(duplicate);
+            if (attributes == null) {
+                failures.put(duplicate, Failure.MISSING);
+            } else if (!isUnchanged(deletion.group(), duplicate, attributes)) {
+                failures.put(duplicate, Failure.CHANGED);
+            } else if (!originalsUnchanged.computeIfAbsent(deletion.original(), original ->
+                    isUnchanged(deletion.group(), original, readAttributes(original)))) {
+                failures.put(duplicate, Failure.ORIGINAL_CHANGED);
+            } else if (isComparedBeforeDeletion(deletion.group())) {
+                toCompare.add(deletion);
+            } else if (isPixelComparedBeforeDeletion(deletion.group())) {
+                toComparePixels.add(deletion);
+            }
+        }
+
+        if (!toCompare.isEmpty() || !toComparePixels.isEmpty()) {
+            compare(toCompare, toComparePixels, failures);
+        }
+        if (!failures.isEmpty()) {
+            logger.warn("{} of {} duplicates failed verification before deletion", failures.size(), deletions.size());
+        }
+        return failures;
+    }
+
+    /**
+     * Checks if the bytes of a group's files are compared before they are deleted: when they are
+     * copies matched by a hash that may collide. Unknown algorithms are assumed to collide.
+     */
+    static boolean isComparedBeforeDeletion(DuplicateGroup group) {
+        String algorithm = group.getHashAlgorithm();
+        if (!group.isIdentical() || ContentComparator.ALGORITHM_NAME.equals(algorithm) 
+                || ImageHashService.isPixelHashType(algorithm)) {
+            return false;
+        }
+        return mayCollide(algorithm);
+    }
+
+    /**
+     * Checks if the pixels of a group's images are compared before they are deleted: when they
+     * are images matched by a pixel hash that may collide
+     */
+    static boolean isPixelComparedBeforeDeletion(DuplicateGroup group) {
+        String algorithm = group.getHashAlgorithm();
+        return group.isIdentical() && ImageHashService.isPixelHashType(algorithm)
+            && mayCollide(ImageHashService.pixelHashAlgorithm(algorithm));
+    }
+
+    /**
+     * Checks if hashes of an algorithm may collide; unknown algorithms are assumed to
+     */
+    private static boolean mayCollide(String algorithm) {
+        try {
+            return !HashAlgorithms.forName(algorithm).isCryptographic();
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Checks that a file still has the size and modification time it was grouped with. Files
+     * added to a group without metadata only need to exist.
+     *
+     * @param attributes its current attributes, or null if it does not exist
+     */
+    private static boolean isUnchanged(DuplicateGroup group, File file, BasicFileAttributes attributes) {
+        if (attributes == null) {
+            return false;
+        }
+        ScannedFile scanned = group.getScannedFile(file);
+        return scanned == null
+            || (attributes.size() == scanned.getSize()
+                && attributes.lastModifiedTime().toMillis() == scanned.getLastModified());
+    }
+
+    private static BasicFileAttributes readAttributes(File file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return attributes.isRegularFile() ? attributes : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compares every duplicate with its original, all regions of all pairs and all pairs of
+     * images in parallel
+     *
+     * @param deletions duplicates whose bytes are compared
+     * @param imageDeletions duplicates whose pixels are compared
+     */
+    private void compare(List<Deletion> deletions, List<Deletion> imageDeletions, Map<File, Failure> failures) {
+        List<Region> regions = new ArrayList<>();
+        for (Deletion deletion : deletions) {
+            long size = deletion.duplicate().length();
+            if (size != deletion.original().length()) {
+                failures.put(deletion.duplicate(), Failure.CONTENT_DIFFERS);
+                continue;
+            }
+            for (long position = 0; position < size; position += regionSize) {
+                regions.add(new Region(deletion, position, Math.min(regionSize, size - position)));
+            }
+        }
+        int taskCount = regions.size() + imageDeletions.size();
+        if (taskCount == 0) {
+            return;
+        }
+
+        // The duplicate each task checks, in the order the tasks are submitted
+        List<Deletion> checked = new ArrayList<>(taskCount);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, taskCount));
+        try {
+            List<Future<?>> futures = new ArrayList<>(taskCount);
+            for (Region region : regions) {
+                checked.add(region.deletion());
+                futures.add(executor.submit(() -> compare(region, failures)));
+            }
+            for (Deletion deletion : imageDeletions) {
+                checked.add(deletion);
+                futures.add(executor.submit(() -> comparePixels(deletion, failures)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    failures.putIfAbsent(checked.get(i).duplicate(), Failure.UNREADABLE);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Nothing not fully compared may be deleted
+            for (Deletion deletion : checked) {
+                failures.putIfAbsent(deletion.duplicate(), Failure.UNREADABLE);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void compare(Region region, Map<File, Failure> failures) {
+        File duplicate = region.deletion().duplicate();
+        if (failures.containsKey(duplicate)) {
+            // Another region of the pair already differs
+            return;
+        }
+        try (FileChannel original = FileChannel.open(region.deletion().original().toPath(), StandardOpenOption.READ);
+             FileChannel copy = FileChannel.open(duplicate.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer expected = original.map(FileChannel.MapMode.READ_ONLY, region.position(), region.length());
+            MappedByteBuffer actual = copy.map(FileChannel.MapMode.READ_ONLY, region.position(), region.length());
+            if (expected.mismatch(actual) >= 0) {
+                failures.putIfAbsent(duplicate, Failure.CONTENT_DIFFERS);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to compare {} with {}: {}", duplicate, region.deletion().original(), e.getMessage());
+            failures.putIfAbsent(duplicate, Failure.UNREADABLE);
+        }
+    }
+
+    private void comparePixels(Deletion deletion, Map<File, Failure> failures) {
+        File duplicate = deletion.duplicate();
+        try {
+            if (!imageHashService.hasSamePixels(deletion.original(), duplicate)) {
+                failures.putIfAbsent(duplicate, Failure.CONTENT_DIFFERS);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to compare the pixels of {} with {}: {}", duplicate, deletion.original(), e.getMessage());
+            failures.putIfAbsent(duplicate, Failure.UNREADABLE);
+        }
+    }
+
+    /**
+     * A duplicate about to be deleted
+     *
+     * @param group the group it was found in
+     * @param original the file kept from the group
+     * @param duplicate the file to delete
+     */
+    public record Deletion(DuplicateGroup group, File original, File duplicate) {
+    }
+
+    /**
+     * Part of a pair of files compared as one task
+     */
+    private record Region(Deletion deletion, long position, long length) {
+    }
+}
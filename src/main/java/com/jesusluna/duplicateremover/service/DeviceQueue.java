@@ -0,0 +1,198 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.ScannedFile;
+import com.jesusluna.duplicateremover.service.io.ReadPosition;
+import com.jesusluna.duplicateremover.service.io.StorageDevice;
+import com.jesusluna.duplicateremover.service.io.SweepQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Work of a scan waiting for, or holding, the reads of one storage device.
+ * The device has its own limit on concurrent reads, tuned by a {@link ParallelismController}
+ * when adaptive, so that a slow disk holds neither threads nor queue positions that a fast
+ * one could use. A device read in physical order gets a single read at a time, its queue
+ * sorted by location.
+ *
+ * Work is queued and started by the dispatcher only; the threads running it report back
+ * through {@link #finished(boolean)} and {@link #recordRead(long)}.
+ */
+class DeviceQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceQueue.class);
+
+    private final StorageDevice device;
+    private final boolean physical;
+    private final FileHashService hashService;
+    private final Queue<WorkItem> pending;
+    // Decremented by the threads finishing the work, read by the dispatcher
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    // Worker tasks running across all devices of the scan, and how many may run at once
+    private final AtomicInteger workerTasksRunning;
+    private final int workerSlots;
+    private final ParallelismController controller;
+    private int limit;
+    private int peakLimit;
+    private boolean busy;
+    private long busyNanos;
+
+    /**
+     * @param device the device
+     * @param physical true to read the device in physical order, with a single reader
+     * @param hashService hash service of the workers reading the device
+     * @param initialReads concurrent reads to start from, unless read in physical order
+     * @param maxReads most concurrent reads tried when adaptive
+     * @param adaptive true to tune the concurrent reads to the measured throughput
+     * @param workerTasksRunning worker tasks running across all devices, shared by their queues
+     * @param workerSlots most worker tasks running at once across all devices
+     */
+    DeviceQueue(StorageDevice device, boolean physical, FileHashService hashService, int initialReads,
+                int maxReads, boolean adaptive, AtomicInteger workerTasksRunning, int workerSlots) {
+        this.device = device;
+        this.physical = physical;
+        this.hashService = hashService;
+        // One reader sweeping the disk beats several making it seek between their files
+        this.pending = physical ? new SweepQueue<>(WorkItem::position) : new ArrayDeque<>();
+        this.limit = physical ? 1 : initialReads;
+        this.peakLimit = limit;
+        this.workerTasksRunning = workerTasksRunning;
+        this.workerSlots = workerSlots;
+        this.controller = adaptive && !physical
+            ? new ParallelismController(device.getName(), initialReads, 1, maxReads,
+                                        ParallelismController.DEFAULT_WINDOW_NANOS, this::setLimit)
+            : null;
+        if (physical) {
+            logger.info("Reading {} in physical order with a single reader", device);
+        }
+    }
+
+    StorageDevice getDevice() {
+        return device;
+    }
+
+    /**
+     * Checks if the device is read in physical order
+     */
+    boolean isPhysical() {
+        return physical;
+    }
+
+    /**
+     * Returns the hash service for the files of the device
+     */
+    FileHashService getHashService() {
+        return hashService;
+    }
+
+    /**
+     * Returns the number of reads the device currently allows at once
+     */
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the position by which work on the file is ordered, or null if the device is unordered
+     */
+    ReadPosition positionOf(ScannedFile file) {
+        return physical ? ReadPosition.of(file) : null;
+    }
+
+    void enqueue(WorkItem item) {
+        pending.add(item);
+    }
+
+    /**
+     * Starts the next queued item if the device has a free read and, for a worker task,
+     * the pool has a free worker
+     *
+     * @return true if an item was started
+     */
+    boolean startNext() {
+        WorkItem item = pending.peek();
+        if (item == null || running.get() >= limit
+                || (item.onWorker() && workerTasksRunning.get() >= workerSlots)) {
+            return false;
+        }
+        pending.poll();
+        running.incrementAndGet();
+        if (item.onWorker()) {
+            workerTasksRunning.incrementAndGet();
+        }
+        item.start().run();
+        return true;
+    }
+
+    /**
+     * Called by the thread that finished a started item
+     */
+    void finished(boolean onWorker) {
+        if (onWorker) {
+            workerTasksRunning.decrementAndGet();
+        }
+        running.decrementAndGet();
+    }
+
+    /**
+     * Counts a completed read. Safe to call from any thread.
+     *
+     * @param bytes number of bytes the read covers, counted towards the device's throughput
+     */
+    void recordRead(long bytes) {
+        reads.increment();
+        bytesRead.add(bytes);
+        if (controller != null) {
+            controller.recordCompleted(bytes);
+        }
+    }
+
+    /**
+     * Accounts the time since the last call if the device was reading, and lets the
+     * parallelism controller measure
+     */
+    void tick(long elapsedNanos) {
+        if (busy) {
+            busyNanos += elapsedNanos;
+        }
+        busy = running.get() > 0;
+        if (controller != null) {
+            controller.tick(!pending.isEmpty() || running.get() >= limit);
+        }
+    }
+
+    private void setLimit(int newLimit) {
+        limit = newLimit;
+        peakLimit = Math.max(peakLimit, newLimit);
+    }
+
+    /**
+     * Logs how the concurrent reads were tuned, if adaptive
+     */
+    void logTuning() {
+        if (controller != null) {
+            logger.info("Adaptive parallelism on {}: {}", device, controller.toSummary());
+        }
+    }
+
+    ScanStatistics.DeviceThroughput toThroughput() {
+        return new ScanStatistics.DeviceThroughput(device.toString(), reads.sum(), bytesRead.sum(),
+                                                   busyNanos, peakLimit);
+    }
+
+    /**
+     * Work queued on a device
+     *
+     * @param onWorker true if it runs as a task on the worker pool, false if it goes to the read/hash pipeline
+     * @param position position of its (first) file on a device read in physical order, otherwise null
+     * @param start hands the work to the pool or the pipeline
+     */
+    record WorkItem(boolean onWorker, ReadPosition position, Runnable start) {
+    }
+}
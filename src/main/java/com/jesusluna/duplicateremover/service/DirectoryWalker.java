@@ -0,0 +1,173 @@
+package com.jesusluna.duplicateremover.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Parallel directory traversal engine built on java.nio.file.
+ * Each directory is streamed with a {@link DirectoryStream}, so directories holding
+ * millions of entries are never materialized as an array, and every entry costs a
+ * single attribute read. Subdirectories are forked as independent tasks on a
+ * work-stealing {@link ForkJoinPool}, which keeps all cores busy and avoids any
+ * stack-depth limit on deeply nested trees.
+ * Symbolic links are not followed, so link loops cannot cause endless traversal.
+ * A directory reached again by another path (a bind mount of a directory already walked,
+ * possibly inside itself) is recognized by its file key and skipped.
+ */
+public class DirectoryWalker {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryWalker.class);
+
+    /**
+     * Receives every regular file found during traversal.
+     * Called concurrently from several pool threads, so implementations must be thread-safe.
+     */
+    @FunctionalInterface
+    public interface FileHandler {
+        void onFile(Path file, BasicFileAttributes attributes);
+    }
+
+    private final int parallelism;
+    private final boolean recursive;
+    private final AtomicLong directoryCount = new AtomicLong();
+    private final AtomicLong fileCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong repeatedDirectoryCount = new AtomicLong();
+    // File keys of the directories walked so far
+    private final Set<Object> visitedDirectories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a walker
+     *
+     * @param parallelism number of threads used to enumerate directories
+     * @param recursive true to descend into subdirectories
+     */
+    public DirectoryWalker(int parallelism, boolean recursive) {
+        this.parallelism = Math.max(1, parallelism);
+        this.recursive = recursive;
+    }
+
+    /**
+     * Walks the tree below root and blocks until every directory has been enumerated
+     * or the cancellation check returns true
+     *
+     * @param root the directory to walk
+     * @param handler receives each regular file with its attributes
+     * @param cancelled checked before each entry; traversal stops once it returns true
+     */
+    public void walk(Path root, FileHandler handler, BooleanSupplier cancelled) {
+        long start = System.nanoTime();
+        try {
+            Object rootKey = Files.readAttributes(root, BasicFileAttributes.class).fileKey();
+            if (rootKey != null) {
+                visitedDirectories.add(rootKey);
+            }
+        } catch (IOException e) {
+            logger.debug("Unable to read attributes of {}: {}", root, e.getMessage());
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DirectoryTask(null, root, handler, cancelled));
+        } finally {
+            pool.shutdownNow();
+        }
+        logger.info("Traversal finished: {} directories, {} files, {} errors, {} directories reached again skipped in {} ms",
+            directoryCount.get(), fileCount.get(), errorCount.get(), repeatedDirectoryCount.get(), 
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public long getDirectoryCount() {
+        return directoryCount.get();
+    }
+
+    public long getFileCount() {
+        return fileCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * Returns the number of directories skipped because they had already been walked by another path
+     */
+    public long getRepeatedDirectoryCount() {
+        return repeatedDirectoryCount.get();
+    }
+
+    /**
+     * Enumerates one directory. Subdirectories are forked as child tasks that
+     * complete this one when they finish, so no task ever blocks on a join.
+     */
+    private class DirectoryTask extends CountedCompleter<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final FileHandler handler;
+        private final BooleanSupplier cancelled;
+
+        DirectoryTask(DirectoryTask parent, Path directory, FileHandler handler, BooleanSupplier cancelled) {
+            super(parent);
+            this.directory = directory;
+            this.handler = handler;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        public void compute() {
+            directoryCount.incrementAndGet();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path entry : stream) {
+                    if (cancelled.getAsBoolean()) {
+                        break;
+                    }
+                    visit(entry);
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                errorCount.incrementAndGet();
+                logger.warn("Unable to read directory {}: {}", directory, e.getMessage());
+            }
+            tryComplete();
+        }
+
+        private void visit(Path entry) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e) {
+                errorCount.incrementAndGet();
+                logger.debug("Unable to read attributes of {}: {}", entry, e.getMessage());
+                return;
+            }
+
+            if (attributes.isRegularFile()) {
+                fileCount.incrementAndGet();
+                handler.onFile(entry, attributes);
+            } else if (attributes.isDirectory() && recursive) {
+                Object key = attributes.fileKey();
+                if (key != null && !visitedDirectories.add(key)) {
+                    repeatedDirectoryCount.incrementAndGet();
+                    logger.debug("Skipping {}: directory already walked by another path", entry);
+                    return;
+                }
+                addToPendingCount(1);
+                new DirectoryTask(this, entry, handler, cancelled).fork();
+            }
+        }
+    }
+}
@@ -1,19 +1,21 @@
 package com.jesusluna.duplicateremover.service;
 
 import com.jesusluna.duplicateremover.model.DuplicateGroup;
+import com.jesusluna.duplicateremover.service.io.PipelineStatistics;
 import javafx.concurrent.Task;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for scanning directories and finding duplicate files
  * Uses JavaFX Task for background processing with progress updates
  * Implements concurrent hash calculation for improved performance
+ * Traversal, size bucketing, fingerprinting and hashing run as an overlapping pipeline (see {@link ScanPipeline})
  */
 public class DuplicateFileScanner extends Task<List<DuplicateGroup>> {
     
@@ -24,71 +26,73 @@ public class DuplicateFileScanner extends Task<List<DuplicateGroup>> {
     
     private final File directory;
     private final boolean includeSubfolders;
-    private final boolean useAdvancedImageDetection;
-    private final int parallelism;
+    private final WorkerMode workerMode;
+    private final Path hashCacheFile;
+    private final ScanOptions options;
+    private final ScanStatistics statistics = new ScanStatistics();
+    private HashCache hashCache;
+    private PipelineStatistics pipelineStatistics;
     
     /**
      * Creates a scanner with default parallelism based on available processors
      */
     public DuplicateFileScanner(File directory, boolean includeSubfolders) {
-        this(directory, includeSubfolders, true, calculateDefaultParallelism());
+        this(directory, new ScanOptions().setIncludeSubfolders(includeSubfolders));
     }
     
     /**
      * Creates a scanner with advanced image detection setting
      */
     public DuplicateFileScanner(File directory, boolean includeSubfolders, boolean useAdvancedImageDetection) {
-        this(directory, includeSubfolders, useAdvancedImageDetection, calculateDefaultParallelism());
+        this(directory, new ScanOptions()
+            .setIncludeSubfolders(includeSubfolders)
+            .setUseAdvancedImageDetection(useAdvancedImageDetection));
     }
     
     /**
      * Creates a scanner with custom parallelism level
      */
     public DuplicateFileScanner(File directory, boolean includeSubfolders, boolean useAdvancedImageDetection, int parallelism) {
-        this.directory = directory;
-        this.includeSubfolders = includeSubfolders;
-        this.useAdvancedImageDetection = useAdvancedImageDetection;
-        this.parallelism = Math.max(1, parallelism);
-        logger.info("Scanner initialized with parallelism level: {}, advanced image detection: {}", 
-            this.parallelism, this.useAdvancedImageDetection);
+        this(directory, new ScanOptions()
+            .setIncludeSubfolders(includeSubfolders)
+            .setUseAdvancedImageDetection(useAdvancedImageDetection)
+            .setParallelism(parallelism));
     }
     
     /**
-     * Calculates optimal parallelism based on available CPU cores
-     * Uses all cores for SSD-optimized scanning
+     * Creates a scanner with the given options
      */
-    private static int calculateDefaultParallelism() {
-        int cores = Runtime.getRuntime().availableProcessors();
-        // Use all cores for optimal performance on modern systems with SSDs
-        return cores;
+    public DuplicateFileScanner(File directory, ScanOptions options) {
+        this.directory = directory;
+        this.includeSubfolders = options.isIncludeSubfolders();
+        this.workerMode = options.getWorkerMode().resolve();
+        this.hashCacheFile = options.getHashCacheFile();
+        this.options = options;
+        logger.info("Scanner initialized with parallelism level: {}, worker mode: {} (up to {} concurrent reads), advanced image detection: {}, hash algorithm: {}, read strategy: {} ({} byte blocks), hash cache: {}", 
+            options.getParallelism(), this.workerMode, options.getMaxConcurrentReads(), options.isUseAdvancedImageDetection(), 
+            options.getHashAlgorithm().getName(), options.getReadStrategy(), options.getReadBlockSize(), this.hashCacheFile);
     }
     
     @Override
     protected List<DuplicateGroup> call() throws Exception {
         updateMessage("Scanning directory...");
-        updateProgress(0, 1);
-        
-        // Collect all files
-        List<File> files = new ArrayList<>();
-        collectFiles(directory, files, includeSubfolders);
+        // Indeterminate until traversal has found every file
+        updateProgress(-1, 1);
         
-        int totalFiles = files.size();
-        logger.info("Found {} files to analyze", totalFiles);
-        
-        if (totalFiles == 0) {
-            updateMessage("No files found");
-            return new ArrayList<>();
+        // Traverse from the canonical root so cache keys are canonical paths
+        Path root = directory.getCanonicalFile().toPath();
+        if (hashCacheFile != null) {
+            hashCache = HashCache.load(hashCacheFile);
         }
         
-        // Group files by hash using concurrent calculation
-        Map<String, DuplicateGroup> hashGroups = new HashMap<>();
-        
-        if (parallelism == 1 || totalFiles < 10) {
-            // Sequential processing for small file sets or single thread
-            hashGroups = processSequentially(files, totalFiles);
-        } else {
-            // Concurrent processing for better performance
-            hashGroups = processConcurrently(files, totalFiles);
+        ScanPipeline pipeline = new ScanPipeline(root, options, workerMode, hashCache, statistics, 
+                                                 this::isCancelled, this::updateProgressInfo);
+        pipelineStatistics = pipeline.getPipelineStatistics();
+        HashGroupIndex hashGroups;
+        try {
+            hashGroups = pipeline.run();
+        } finally {
+            saveHashCache(root);
         }
         
         if (isCancelled()) {
@@ -96,148 +100,85 @@ protected List<DuplicateGroup> call() throws Exception {
             return new ArrayList<>();
         }
         
-        // Filter only groups with duplicates
-        List<DuplicateGroup> duplicates = hashGroups.values().stream()
-                .filter(DuplicateGroup::isDuplicate)
-                .sorted((g1, g2) -> Integer.compare(g2.getFileCount(), g1.getFileCount()))
-                .toList();
+        if (statistics.getFilesDiscovered() == 0) {
+            updateMessage("No files found");
+            return new ArrayList<>();
+        }
+        
+        // Filter only groups with duplicates; paths already linked to the same file come last
+        List<DuplicateGroup> hardLinkGroups = pipeline.getHardLinkGroups();
+        List<DuplicateGroup> duplicates = new ArrayList<>(hashGroups.getDuplicates());
+        duplicates.addAll(pipeline.getComparedGroups());
+        duplicates.addAll(pipeline.getPixelGroups());
+        duplicates.sort((g1, g2) -> Integer.compare(g2.getFileCount(), g1.getFileCount()));
+        int exactGroups = duplicates.size();
+        // Images that only look alike come after the exact copies
+        List<DuplicateGroup> similarGroups = pipeline.getSimilarGroups(duplicates);
+        duplicates.addAll(similarGroups);
+        duplicates.addAll(hardLinkGroups);
         
-        updateMessage(String.format("Found %d duplicate groups", duplicates.size()));
+        if (hardLinkGroups.isEmpty()) {
+            updateMessage(String.format("Found %d duplicate groups", exactGroups));
+        } else {
+            updateMessage(String.format("Found %d duplicate groups and %d hard-linked files", 
+                exactGroups, hardLinkGroups.size()));
+        }
         updateProgress(1.0, 1.0);
         
-        logger.info("Scan complete: {} duplicate groups found", duplicates.size());
+        logger.info("Scan complete: {} duplicate groups and {} hard-linked files found; {}", 
+            exactGroups, hardLinkGroups.size(), statistics.toSummary());
         return duplicates;
     }
     
     /**
-     * Process files sequentially (fallback for small sets or single thread)
+     * Persists the hash cache. Entries of deleted files are only evicted after a complete
+     * traversal, since a cancelled scan has not seen every file under the root.
      */
-    private Map<String, DuplicateGroup> processSequentially(List<File> files, int totalFiles) {
-        Map<String, DuplicateGroup> hashGroups = new HashMap<>();
-        FileHashService hashService = new FileHashService(useAdvancedImageDetection);
-        int processedFiles = 0;
-        
-        for (File file : files) {
-            if (isCancelled()) {
-                break;
-            }
-            
-            try {
-                String hash = hashService.calculateHash(file);
-                hashGroups.computeIfAbsent(hash, DuplicateGroup::new).addFile(file);
-            } catch (Exception e) {
-                logger.warn("Error calculating hash for file: {}", file.getAbsolutePath(), e);
-            }
-            
-            processedFiles++;
-            updateProgressInfo(processedFiles, totalFiles);
+    private void saveHashCache(Path root) {
+        if (hashCache == null) {
+            return;
+        }
+        if (!isCancelled()) {
+            hashCache.evictUnseen(root, includeSubfolders);
+        }
+        try {
+            hashCache.save();
+        } catch (IOException e) {
+            logger.warn("Unable to save hash cache to {}: {}", hashCache.getLocation(), e.getMessage());
         }
-        
-        return hashGroups;
     }
     
     /**
-     * Process files concurrently using ExecutorService
-     * Uses ThreadLocal to maintain one FileHashService instance per thread
+     * Returns the per-stage counters of this scan
      */
-    private Map<String, DuplicateGroup> processConcurrently(List<File> files, int totalFiles) {
-        Map<String, DuplicateGroup> hashGroups = new HashMap<>();
-        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
-        CompletionService<HashResult> completionService = new ExecutorCompletionService<>(executor);
-        
-        // ThreadLocal to maintain one FileHashService per thread for efficiency
-        ThreadLocal<FileHashService> threadLocalHashService = 
-            ThreadLocal.withInitial(() -> new FileHashService(useAdvancedImageDetection));
-        
-        try {
-            // Submit all hash calculation tasks
-            int submitted = 0;
-            for (File file : files) {
-                if (isCancelled()) {
-                    break;
-                }
-                
-                completionService.submit(() -> {
-                    FileHashService hashService = threadLocalHashService.get();
-                    try {
-                        String hash = hashService.calculateHash(file);
-                        return HashResult.success(file, hash);
-                    } catch (Exception e) {
-                        return HashResult.failure(file, e);
-                    }
-                });
-                submitted++;
-            }
-            
-            // Collect results as they complete
-            int processedFiles = 0;
-            for (int i = 0; i < submitted; i++) {
-                if (isCancelled()) {
-                    break;
-                }
-                
-                try {
-                    Future<HashResult> future = completionService.take();
-                    HashResult result = future.get();
-                    
-                    if (result.isSuccess()) {
-                        hashGroups.computeIfAbsent(result.getHash(), DuplicateGroup::new)
-                                 .addFile(result.getFile());
-                    } else {
-                        logger.warn("Error calculating hash for file: {}", 
-                                   result.getFile().getAbsolutePath(), result.getError());
-                    }
-                    
-                    processedFiles++;
-                    updateProgressInfo(processedFiles, totalFiles);
-                } catch (InterruptedException e) {
-                    logger.warn("Hash calculation interrupted", e);
-                    Thread.currentThread().interrupt();
-                    break;
-                } catch (ExecutionException e) {
-                    logger.error("Error processing hash result", e);
-                }
-            }
-            
-        } finally {
-            // Shutdown executor gracefully
-            executor.shutdown();
-            try {
-                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    executor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executor.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-        }
-        
-        return hashGroups;
+    public ScanStatistics getStatistics() {
+        return statistics;
     }
     
     /**
-     * Update progress information on the JavaFX thread
+     * Returns the counters of the read/hash pipeline, or null if it is disabled or the scan has not started
      */
-    private void updateProgressInfo(int processedFiles, int totalFiles) {
-        double progress = (double) processedFiles / totalFiles;
-        updateProgress(progress, 1.0);
-        updateMessage(String.format("Processing: %d/%d files (%.0f%%)", 
-            processedFiles, totalFiles, progress * 100));
+    public PipelineStatistics getPipelineStatistics() {
+        return pipelineStatistics;
     }
     
-    private void collectFiles(File dir, List<File> files, boolean recursive) {
-        File[] entries = dir.listFiles();
-        if (entries == null) {
+    /**
+     * Update progress information on the JavaFX thread.
+     * While traversal is running the total is unknown, so progress stays indeterminate
+     * and the message reports discovered and hashed counts instead of a percentage.
+     */
+    private void updateProgressInfo(boolean traversalFinished, long discoveredFiles, int processed, int submitted) {
+        if (!traversalFinished) {
+            updateProgress(-1, 1);
+            updateMessage(String.format("Discovered %d files, processed %d/%d candidates", 
+                discoveredFiles, processed, submitted));
             return;
         }
         
-        for (File entry : entries) {
-            if (entry.isFile()) {
-                files.add(entry);
-            } else if (entry.isDirectory() && recursive) {
-                collectFiles(entry, files, true);
-            }
-        }
+        double progress = submitted == 0 ? 1.0 : (double) processed / submitted;
+        updateProgress(progress, 1.0);
+        updateMessage(String.format("Processing: %d/%d candidates (%.0f%%)", 
+            processed, submitted, progress * 100));
     }
     
     public static boolean isImageFile(File file) {
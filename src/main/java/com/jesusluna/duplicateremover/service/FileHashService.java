@@ -3,26 +3,63 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithm;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithms;
+import com.jesusluna.duplicateremover.service.hash.Hasher;
+import com.jesusluna.duplicateremover.service.io.ContentReader;
+import com.jesusluna.duplicateremover.service.io.ReadStrategy;
+
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
 
 /**
  * Service for calculating file hashes
- * Uses SHA-256 algorithm for secure and reliable duplicate detection
+ * Uses SHA-256 by default for secure and reliable duplicate detection;
+ * faster non-cryptographic algorithms can be selected (see {@link HashAlgorithms})
  * Optionally uses pixel-based hashing for image files to group visually identical images
  * when advanced image detection is enabled
+ * File content is read with a configurable {@link ReadStrategy}; hashers and read buffers
+ * are pooled and reused across files and threads. Very large files are tree-hashed in chunks
+ * (see {@link TreeHashService}); for tiny files the content itself can serve as the key
+ * (see {@link #calculateInlineKey(Path)}).
  */
 public class FileHashService {
 
     private static final Logger logger = LoggerFactory.getLogger(FileHashService.class);
-    private static final String ALGORITHM = "SHA-256";
-    private static final int BUFFER_SIZE = 8192; // 8KB buffer
     
+    /**
+     * Default size up to which a file's content is its grouping key
+     */
+    public static final int DEFAULT_INLINE_KEY_THRESHOLD = 256;
+    
+    /**
+     * First byte of every inline key. An inline key could only equal a digest that starts with
+     * this byte and continues with the file's exact content, which is as unlikely as a collision
+     * of the hash itself.
+     */
+    private static final byte INLINE_KEY_MARKER = (byte) 0xC0;
+    
+    /**
+     * Inline key of every empty file
+     */
+    public static final HashKey EMPTY_KEY = inlineKey(new byte[0]);
+    
+    private final HashAlgorithm hashAlgorithm;
     private final ImageHashService imageHashService;
+    private final ResourcePool<PartialHashService> partialHashServices;
+    private final ResourcePool<Hasher> hashers;
+    private final ResourcePool<Hasher> secureHashers;
+    private final ResourcePool<ContentReader> contentReaders;
+    private final TreeHashService treeHashService;
+    private final long treeHashThreshold;
+    private final int inlineKeyThreshold;
+    private final String contentHashType;
+    private final String treeHashType;
     private final boolean useAdvancedImageDetection;
 
     public FileHashService() {
@@ -30,8 +67,109 @@ public FileHashService() {
     }
     
     public FileHashService(boolean useAdvancedImageDetection) {
-        this.imageHashService = new ImageHashService();
-        this.useAdvancedImageDetection = useAdvancedImageDetection;
+        this(useAdvancedImageDetection, HashAlgorithms.DEFAULT);
+    }
+    
+    public FileHashService(boolean useAdvancedImageDetection, HashAlgorithm hashAlgorithm) {
+        this(new ScanOptions()
+            .setUseAdvancedImageDetection(useAdvancedImageDetection)
+            .setHashAlgorithm(hashAlgorithm));
+    }
+    
+    /**
+     * Creates a service using the image detection, hash algorithm and read settings of a scan.
+     * Large files are tree-hashed on the calling thread only.
+     */
+    public FileHashService(ScanOptions options) {
+        this(options, null);
+    }
+    
+    /**
+     * Creates a service using the settings of a scan, whose large files are tree-hashed
+     * with help from idle workers of the given pool
+     *
+     * @param options scan settings
+     * @param chunkExecutor pool running the scan's hash tasks, or null
+     */
+    public FileHashService(ScanOptions options, Executor chunkExecutor) {
+        this.hashAlgorithm = options.getHashAlgorithm();
+        this.imageHashService = new ImageHashService(hashAlgorithm);
+        this.partialHashServices = new ResourcePool<>(() -> new PartialHashService(hashAlgorithm));
+        this.hashers = new ResourcePool<>(hashAlgorithm::newHasher);
+        this.secureHashers = new ResourcePool<>(HashAlgorithms.SHA_256::newHasher);
+        ReadStrategy readStrategy = options.getReadStrategy();
+        int readBlockSize = options.getReadBlockSize();
+        this.contentReaders = new ResourcePool<>(() -> readStrategy.createReader(readBlockSize));
+        this.treeHashService = new TreeHashService(hashAlgorithm, options.getTreeHashChunkSize(), readBlockSize,
+                                                   chunkExecutor, options.getParallelism() - 1);
+        this.treeHashThreshold = options.getTreeHashThreshold();
+        this.inlineKeyThreshold = options.getInlineKeyThreshold();
+        this.contentHashType = contentHashType(hashAlgorithm);
+        this.treeHashType = TreeHashService.treeHashType(hashAlgorithm, options.getTreeHashChunkSize());
+        this.useAdvancedImageDetection = options.isUseAdvancedImageDetection();
+    }
+
+    /**
+     * Identifies hashes of raw file content computed with the given algorithm, e.g. in the {@link HashCache}
+     */
+    public static String contentHashType(HashAlgorithm hashAlgorithm) {
+        return hashAlgorithm.getName();
+    }
+
+    public HashAlgorithm getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    /**
+     * Checks if a file of the given size is tree-hashed rather than hashed as one stream
+     */
+    public boolean isTreeHashed(long size) {
+        return size >= treeHashThreshold;
+    }
+
+    /**
+     * Checks if a file of the given size is keyed by its content rather than hashed
+     */
+    public boolean isInlineKeyed(long size) {
+        return size <= inlineKeyThreshold;
+    }
+
+    /**
+     * Creates the grouping key of a file from its entire content
+     */
+    public static HashKey inlineKey(byte[] content) {
+        byte[] key = new byte[content.length + 1];
+        key[0] = INLINE_KEY_MARKER;
+        System.arraycopy(content, 0, key, 1, content.length);
+        return HashKey.wrap(key);
+    }
+
+    /**
+     * Reads a small file in a single call and returns its content as its grouping key, which
+     * costs no digest and no read buffer. Files of the same size must all be keyed this way
+     * or all be hashed (see {@link #isInlineKeyed(long)}), since the two keys never match.
+     * A file that has grown past the threshold since it was found is hashed instead.
+     *
+     * @param file the file
+     * @return the key
+     * @throws IOException if file cannot be read
+     */
+    public HashKey calculateInlineKey(Path file) throws IOException {
+        byte[] content;
+        try (InputStream in = Files.newInputStream(file)) {
+            content = in.readNBytes(inlineKeyThreshold + 1);
+        }
+        if (content.length > inlineKeyThreshold) {
+            return calculateKey(file.toFile());
+        }
+        return inlineKey(content);
+    }
+
+    /**
+     * Identifies how the content hash of a file of the given size is computed, e.g. in the {@link HashCache}
+     */
+    public String getContentHashType(long size) {
+        return isTreeHashed(size) ? treeHashType : contentHashType;
     }
 
     /**
@@ -46,6 +184,19 @@ public FileHashService(boolean useAdvancedImageDetection) {
      * @throws IOException if file cannot be read
      */
     public String calculateHash(File file) throws IOException {
+        return calculateKey(file).toHex();
+    }
+
+    /**
+     * Calculates the hash of a file as a binary key, see {@link #calculateHash(File)}.
+     * Preferred when grouping many files, since no hex string is created.
+     *
+     * @param file the file to hash
+     * @return the hash
+     * @throws IllegalArgumentException if file is null, doesn't exist, or is not a regular file
+     * @throws IOException if file cannot be read
+     */
+    public HashKey calculateKey(File file) throws IOException {
         if (file == null || !file.exists() || !file.isFile()) {
             throw new IllegalArgumentException("Invalid file: " + file);
         }
@@ -54,7 +205,7 @@ public String calculateHash(File file) throws IOException {
         if (useAdvancedImageDetection && imageHashService.isSupportedImageFormat(file)) {
             try {
                 logger.debug("Calculating pixel-based hash for image: {}", file.getAbsolutePath());
-                return imageHashService.calculatePixelHash(file);
+                return imageHashService.calculatePixelKey(file);
             } catch (IOException e) {
                 logger.warn("Failed to calculate pixel hash for {}, falling back to file hash: {}", 
                            file.getName(), e.getMessage());
@@ -63,41 +214,82 @@ public String calculateHash(File file) throws IOException {
         }
 
         // Regular file content hashing for non-images or when image hashing fails
+        return calculateContentKey(file);
+    }
+
+    /**
+     * Calculates the hash of a file's raw content, even for an image when advanced image
+     * detection is enabled. Identical content always has the same pixels, so this can tell
+     * that images match without decoding them.
+     *
+     * @param file the file to hash
+     * @return the hash
+     * @throws IOException if file cannot be read
+     */
+    public HashKey calculateContentKey(File file) throws IOException {
+        long size = file.length();
         logger.debug("Calculating file hash for: {} (size: {} bytes)", 
-                     file.getAbsolutePath(), file.length());
+                     file.getAbsolutePath(), size);
 
-        try (InputStream input = new FileInputStream(file)) {
-            MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int bytesRead;
+        if (isTreeHashed(size)) {
+            return treeHashService.calculateKey(file.toPath());
+        }
 
-            while ((bytesRead = input.read(buffer)) != -1) {
-                digest.update(buffer, 0, bytesRead);
-            }
+        HashKey hash = digest(file, hashers);
+        logger.debug("{} hash calculated: {}", hashAlgorithm.getName(), hash);
+        return hash;
+    }
 
-            byte[] hashBytes = digest.digest();
-            String hash = bytesToHex(hashBytes);
-            
-            logger.debug("Hash calculated: {}", hash);
-            return hash;
+    /**
+     * Calculates a hash of a file's raw content that may stand for its bytes, i.e. where files
+     * are taken to be byte-identical without ever being compared: the content hash if the
+     * scan's algorithm is cryptographic, a SHA-256 digest otherwise.
+     *
+     * @param file the file to hash
+     * @return the hash
+     * @throws IOException if file cannot be read
+     */
+    public HashKey calculateSecureContentKey(File file) throws IOException {
+        if (hashAlgorithm.isCryptographic()) {
+            return calculateContentKey(file);
+        }
+        return digest(file, secureHashers);
+    }
 
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(ALGORITHM + " algorithm not available", e);
+    /**
+     * Hashes a file's content as one stream with a hasher from the given pool
+     */
+    private HashKey digest(File file, ResourcePool<Hasher> pool) throws IOException {
+        Hasher hasher = pool.acquire();
+        ContentReader reader = contentReaders.acquire();
+        try {
+            // Discard anything left over from a read that failed part-way
+            hasher.reset();
+            reader.read(file.toPath(), hasher);
+            return HashKey.wrap(hasher.digest());
+        } finally {
+            contentReaders.release(reader);
+            pool.release(hasher);
         }
     }
 
     /**
-     * Converts byte array to hexadecimal string
+     * Calculates a cheap partial fingerprint of a file (head, tail and sampled blocks).
+     * Files with different fingerprints are guaranteed to have different content;
+     * files with matching fingerprints still need {@link #calculateHash(File)} to confirm.
      *
-     * @param bytes byte array to convert
-     * @return hex string
+     * @param file the file to fingerprint
+     * @return the fingerprint
+     * @throws IllegalArgumentException if file is null, doesn't exist, or is not a regular file
+     * @throws IOException if file cannot be read
      */
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
+    public HashKey calculatePartialHash(File file) throws IOException {
+        PartialHashService partialHashService = partialHashServices.acquire();
+        try {
+            return partialHashService.calculateFingerprintKey(file);
+        } finally {
+            partialHashServices.release(partialHashService);
         }
-        return result.toString();
     }
 
     /**
@@ -115,8 +307,8 @@ public boolean areFilesIdentical(File file1, File file2) throws IOException {
             return false;
         }
 
-        String hash1 = calculateHash(file1);
-        String hash2 = calculateHash(file2);
+        HashKey hash1 = calculateKey(file1);
+        HashKey hash2 = calculateKey(file2);
         
         boolean identical = hash1.equals(hash2);
         logger.debug("Files {} identical", identical ? "are" : "are not");
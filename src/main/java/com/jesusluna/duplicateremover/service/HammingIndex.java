@@ -0,0 +1,149 @@
+package com.jesusluna.duplicateremover.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of 64-bit hashes for finding every hash within a small Hamming distance of another one
+ * without comparing it with all of them (multi-index hashing). Each hash is split into four
+ * 16-bit chunks, each indexed in its own table. Two hashes within d bits of each other have at
+ * least one chunk within d / 4 bits, so a search only looks up the chunk values that close to
+ * the query's and checks the full distance of the hashes found there.
+ *
+ * Unlike a tree over the whole hash, this stays fast when the hashes are spread evenly, as those
+ * of unrelated images are. A search whose distance is too large for its lookups to be cheaper
+ * than checking every hash does that instead.
+ *
+ * Not thread-safe.
+ *
+ * @param <T> value stored with each hash
+ */
+public class HammingIndex<T> {
+
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = Long.SIZE / CHUNKS;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    private final List<Map<Integer, int[]>> tables = new ArrayList<>(CHUNKS);
+    private final List<T> values = new ArrayList<>();
+    private long[] hashes = new long[16];
+
+    public HammingIndex() {
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            tables.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Returns the number of bits in which two hashes differ
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * Adds a hash with its value; a hash may be added several times with different values
+     */
+    public void add(long hash, T value) {
+        int id = values.size();
+        if (id == hashes.length) {
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        hashes[id] = hash;
+        values.add(value);
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            // Each entry holds its count first, then the ids
+            tables.get(chunk).merge(chunk(hash, chunk), new int[] {1, id}, (ids, added) -> {
+                int count = ids[0] + 1;
+                int[] grown = count < ids.length ? ids : Arrays.copyOf(ids, ids.length * 2);
+                grown[0] = count;
+                grown[count] = id;
+                return grown;
+            });
+        }
+    }
+
+    /**
+     * Finds the values of every hash within a distance of a hash
+     *
+     * @param hash the hash searched for
+     * @param maxDistance largest number of differing bits
+     * @return the values found, in no particular order
+     */
+    public List<T> search(long hash, int maxDistance) {
+        List<T> found = new ArrayList<>();
+        int radius = maxDistance / CHUNKS;
+        if (CHUNKS * lookups(radius) >= values.size()) {
+            for (int id = 0; id < values.size(); id++) {
+                if (distance(hash, hashes[id]) <= maxDistance) {
+                    found.add(values.get(id));
+                }
+            }
+            return found;
+        }
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            search(hash, maxDistance, radius, chunk, chunk(hash, chunk), 0, radius, found);
+        }
+        return found;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Looks up every value of a chunk that differs from the query's in at most the remaining
+     * number of bits, flipping bits from the given one upwards
+     */
+    private void search(long hash, int maxDistance, int radius, int chunk, int value, int fromBit,
+                        int remaining, List<T> found) {
+        int[] ids = tables.get(chunk).get(value);
+        if (ids != null) {
+            for (int i = 1; i <= ids[0]; i++) {
+                long candidate = hashes[ids[i]];
+                if (distance(hash, candidate) <= maxDistance && !isFoundInEarlierChunk(hash, candidate, chunk, radius)) {
+                    found.add(values.get(ids[i]));
+                }
+            }
+        }
+        if (remaining == 0) {
+            return;
+        }
+        for (int bit = fromBit; bit < CHUNK_BITS; bit++) {
+            search(hash, maxDistance, radius, chunk, value ^ (1 << bit), bit + 1, remaining - 1, found);
+        }
+    }
+
+    /**
+     * Checks if a hash was already reported by the lookups of an earlier chunk, so that each
+     * hash found is reported once without keeping track of them
+     */
+    private static boolean isFoundInEarlierChunk(long hash, long candidate, int chunk, int radius) {
+        for (int earlier = 0; earlier < chunk; earlier++) {
+            if (Integer.bitCount(chunk(hash, earlier) ^ chunk(candidate, earlier)) <= radius) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int chunk(long hash, int chunk) {
+        return (int) (hash >>> (chunk * CHUNK_BITS)) & CHUNK_MASK;
+    }
+
+    /**
+     * Returns the number of chunk values within a radius of one, i.e. the lookups per chunk
+     */
+    private static long lookups(int radius) {
+        long total = 0;
+        long combinations = 1;
+        for (int k = 0; k <= Math.min(radius, CHUNK_BITS); k++) {
+            total += combinations;
+            combinations = combinations * (CHUNK_BITS - k) / (k + 1);
+        }
+        return total;
+    }
+}
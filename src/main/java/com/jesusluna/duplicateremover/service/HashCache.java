@@ -0,0 +1,493 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.model.ScannedFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent cache of file hashes, consulted before any file is read.
+ * An entry is only valid while the file keeps the same canonical path, size,
+ * last-modified time and file key (e.g. device and inode), so a rescan of an
+ * unchanged tree only needs the metadata gathered by traversal.
+ *
+ * Next to its content hash an entry holds the partial fingerprint of the file (see
+ * {@link PartialHashService}), so that a cached file still meets new files of its size in
+ * the fingerprint stage without being read.
+ *
+ * Storage format: a compact binary file written with {@link DataOutputStream}
+ * (magic, version, entry count, then one record per entry with the hash and fingerprint
+ * stored as raw digest bytes, an empty type marking either as absent). Saving writes a temporary file and atomically renames it over
+ * the previous one, so concurrent readers always see a complete file; writers from
+ * different processes are serialized by a lock file and merge each other's entries.
+ *
+ * Eviction and compaction happen on save: entries under a fully scanned root that
+ * were not seen again belong to deleted files and are dropped, entries not seen for
+ * {@link #DEFAULT_MAX_AGE_DAYS} days are dropped, and the oldest entries are dropped
+ * when the cache grows beyond its maximum size.
+ *
+ * Thread-safe: lookups and updates may come from any worker thread.
+ */
+public class HashCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashCache.class);
+
+    private static final int MAGIC = 0x44444843; // "DDHC"
+    private static final int VERSION = 2;
+    private static final int MAX_DIGEST_LENGTH = 1024;
+
+    /**
+     * Entries not seen by any scan for this many days are dropped on save
+     */
+    public static final int DEFAULT_MAX_AGE_DAYS = 90;
+
+    /**
+     * Maximum number of entries kept on save; the least recently seen are dropped first
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 5_000_000;
+
+    private final Path location;
+    private final long maxAgeMillis;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> evicted = ConcurrentHashMap.newKeySet();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+
+    /**
+     * Creates an empty cache stored at the given location
+     */
+    public HashCache(Path location) {
+        this(location, TimeUnit.DAYS.toMillis(DEFAULT_MAX_AGE_DAYS), DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates an empty cache with a custom compaction policy
+     *
+     * @param location file the cache is saved to
+     * @param maxAgeMillis entries not seen for longer than this are dropped on save
+     * @param maxEntries maximum number of entries kept on save
+     */
+    public HashCache(Path location, long maxAgeMillis, int maxEntries) {
+        this.location = location;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the default cache location in the user's home directory
+     */
+    public static Path defaultLocation() {
+        return Paths.get(System.getProperty("user.home"), ".duplicate-file-remover", "hash-cache.bin");
+    }
+
+    /**
+     * Loads the cache from disk. A missing or unreadable file yields an empty cache,
+     * since the cache only ever saves work and must never make a scan fail.
+     *
+     * @param location file to load
+     * @return the loaded cache
+     */
+    public static HashCache load(Path location) {
+        HashCache cache = new HashCache(location);
+        try {
+            cache.entries.putAll(read(location));
+            logger.info("Loaded {} hash cache entries from {}", cache.entries.size(), location);
+        } catch (NoSuchFileException e) {
+            logger.info("No hash cache found at {}, starting empty", location);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable hash cache {}: {}", location, e.getMessage());
+        }
+        return cache;
+    }
+
+    /**
+     * Looks up the hash of a file
+     *
+     * @param file the file with its current metadata
+     * @param hashType identifies how the hash was computed (e.g. content or pixel hash)
+     * @return the cached hash, or null if absent or out of date
+     */
+    public HashKey get(ScannedFile file, String hashType) {
+        String path = keyOf(file);
+        Entry entry = entries.get(path);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (!entry.matches(file, hashType)) {
+            stale.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        entry.touch();
+        hits.incrementAndGet();
+        return entry.digest;
+    }
+
+    /**
+     * Checks if a valid hash is cached for a file, without counting a hit or miss
+     *
+     * @param file the file with its current metadata
+     * @param hashType identifies how the hash was computed
+     * @return true if {@link #get(ScannedFile, String)} would return a hash
+     */
+    public boolean contains(ScannedFile file, String hashType) {
+        Entry entry = entries.get(keyOf(file));
+        return entry != null && entry.matches(file, hashType);
+    }
+
+    /**
+     * Looks up the partial fingerprint of a file, without counting a hit or miss
+     *
+     * @param file the file with its current metadata
+     * @param fingerprintType identifies how the fingerprint was computed
+     * @return the cached fingerprint, or null if absent or out of date
+     */
+    public HashKey getFingerprint(ScannedFile file, String fingerprintType) {
+        Entry entry = entries.get(keyOf(file));
+        if (entry == null || !entry.matchesFile(file) || !fingerprintType.equals(entry.fingerprintType)) {
+            return null;
+        }
+        entry.touch();
+        return entry.fingerprint;
+    }
+
+    /**
+     * Marks a path as still present, so that its entry survives {@link #evictUnseen(Path, boolean)}
+     * even if this scan never needed its hash (e.g. because its size became unique)
+     *
+     * @param file a file found by traversal
+     */
+    public void markPresent(ScannedFile file) {
+        Entry entry = entries.get(keyOf(file));
+        if (entry != null) {
+            entry.touch();
+        }
+    }
+
+    /**
+     * Stores the hash of a file, replacing any previous entry for the same path
+     *
+     * @param file the file with the metadata it had when it was hashed
+     * @param hashType identifies how the hash was computed
+     * @param hash the hash
+     */
+    public void put(ScannedFile file, String hashType, HashKey hash) {
+        String path = keyOf(file);
+        // The fingerprint of the same version of the file stays valid
+        entries.compute(path, (key, previous) -> previous != null && previous.matchesFile(file)
+            ? new Entry(file, hashType, hash, previous.fingerprintType, previous.fingerprint)
+            : new Entry(file, hashType, hash, null, null));
+        evicted.remove(path);
+    }
+
+    /**
+     * Stores the partial fingerprint of a file, keeping the hash of the same version of the file
+     *
+     * @param file the file with the metadata it had when it was fingerprinted
+     * @param fingerprintType identifies how the fingerprint was computed
+     * @param fingerprint the fingerprint
+     */
+    public void putFingerprint(ScannedFile file, String fingerprintType, HashKey fingerprint) {
+        String path = keyOf(file);
+        entries.compute(path, (key, previous) -> previous != null && previous.matchesFile(file)
+            ? new Entry(file, previous.hashType, previous.digest, fingerprintType, fingerprint)
+            : new Entry(file, null, null, fingerprintType, fingerprint));
+        evicted.remove(path);
+    }
+
+    /**
+     * Drops entries under a root that were not seen during this session.
+     * Only call after the root has been traversed completely: any file under it
+     * that was not seen has been deleted, renamed or excluded.
+     *
+     * @param root the scanned root directory
+     * @param recursive true if subdirectories were scanned as well
+     * @return number of entries evicted
+     */
+    public int evictUnseen(Path root, boolean recursive) {
+        String prefix = root.toAbsolutePath().normalize().toString();
+        int count = 0;
+        for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+            if (mapEntry.getValue().seen || !isUnder(mapEntry.getKey(), prefix, recursive)) {
+                continue;
+            }
+            if (entries.remove(mapEntry.getKey(), mapEntry.getValue())) {
+                evicted.add(mapEntry.getKey());
+                count++;
+            }
+        }
+        if (count > 0) {
+            logger.info("Evicted {} hash cache entries for files no longer under {}", count, root);
+        }
+        return count;
+    }
+
+    /**
+     * Compacts the cache and writes it to disk atomically.
+     * Entries written by another process since this cache was loaded are merged in.
+     *
+     * @throws IOException if the cache cannot be written
+     */
+    public void save() throws IOException {
+        Path directory = location.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path lockFile = location.resolveSibling(location.getFileName() + ".lock");
+
+        try (FileChannel lockChannel = FileChannel.open(lockFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lockChannel.lock()) {
+
+            mergeFromDisk();
+            compact();
+
+            Path temp = Files.createTempFile(directory, location.getFileName().toString(), ".tmp");
+            try {
+                write(temp);
+                if (!lock.isValid()) {
+                    throw new IOException("Lost the lock on " + lockFile + " before replacing " + location);
+                }
+                try {
+                    Files.move(temp, location, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, location, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        logger.info("Saved {} hash cache entries to {} (hits: {}, misses: {}, stale: {})",
+            entries.size(), location, getHits(), getMisses(), getStaleCount());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of lookups that found an entry for an outdated version of the file
+     */
+    public long getStaleCount() {
+        return stale.get();
+    }
+
+    public Path getLocation() {
+        return location;
+    }
+
+    private void mergeFromDisk() {
+        try {
+            for (Map.Entry<String, Entry> disk : read(location).entrySet()) {
+                if (evicted.contains(disk.getKey())) {
+                    continue;
+                }
+                entries.merge(disk.getKey(), disk.getValue(),
+                    (ours, theirs) -> theirs.lastSeen > ours.lastSeen ? theirs : ours);
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing to merge
+        } catch (IOException e) {
+            logger.warn("Overwriting unreadable hash cache {}: {}", location, e.getMessage());
+        }
+    }
+
+    private void compact() {
+        long oldest = System.currentTimeMillis() - maxAgeMillis;
+        entries.values().removeIf(entry -> entry.lastSeen < oldest);
+
+        int excess = entries.size() - maxEntries;
+        if (excess > 0) {
+            List<Map.Entry<String, Entry>> byAge = new ArrayList<>(entries.entrySet());
+            byAge.sort(Comparator.comparingLong(e -> e.getValue().lastSeen));
+            for (int i = 0; i < excess; i++) {
+                entries.remove(byAge.get(i).getKey());
+            }
+        }
+    }
+
+    private void write(Path target) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(target), 1 << 16))) {
+            List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Entry> mapEntry : snapshot) {
+                Entry entry = mapEntry.getValue();
+                out.writeUTF(mapEntry.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.lastModified);
+                out.writeUTF(entry.fileKey);
+                writeDigest(out, entry.hashType, entry.digest);
+                writeDigest(out, entry.fingerprintType, entry.fingerprint);
+                out.writeLong(entry.lastSeen);
+            }
+        }
+    }
+
+    private static Map<String, Entry> read(Path source) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(source), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a hash cache file");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported hash cache version " + version);
+            }
+            int count = in.readInt();
+            Map<String, Entry> loaded = new ConcurrentHashMap<>(Math.max(16, count));
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                String fileKey = in.readUTF();
+                String hashType = readType(in);
+                HashKey digest = readDigest(in, path);
+                String fingerprintType = readType(in);
+                HashKey fingerprint = readDigest(in, path);
+                long lastSeen = in.readLong();
+                loaded.put(path, new Entry(size, lastModified, fileKey, hashType, hashType != null ? digest : null,
+                                           fingerprintType, fingerprintType != null ? fingerprint : null,
+                                           lastSeen, false));
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * Writes a digest with its type; an absent digest is written with an empty type
+     */
+    private static void writeDigest(DataOutputStream out, String type, HashKey digest) throws IOException {
+        out.writeUTF(type != null ? type : "");
+        byte[] bytes = digest != null ? digest.toByteArray() : new byte[0];
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readType(DataInputStream in) throws IOException {
+        String type = in.readUTF();
+        return type.isEmpty() ? null : type;
+    }
+
+    private static HashKey readDigest(DataInputStream in, String path) throws IOException {
+        int digestLength = in.readUnsignedShort();
+        if (digestLength > MAX_DIGEST_LENGTH) {
+            throw new IOException("Corrupt hash cache entry for " + path);
+        }
+        byte[] digest = new byte[digestLength];
+        in.readFully(digest);
+        return HashKey.wrap(digest);
+    }
+
+    private static String keyOf(ScannedFile file) {
+        return file.getFile().getAbsolutePath();
+    }
+
+    private static String fileKeyOf(ScannedFile file) {
+        return file.getFileKey() != null ? file.getFileKey().toString() : "";
+    }
+
+    private static boolean isUnder(String path, String root, boolean recursive) {
+        if (!path.startsWith(root) || path.length() <= root.length()) {
+            return false;
+        }
+        boolean rootEndsWithSeparator = root.endsWith(File.separator);
+        int childStart = rootEndsWithSeparator ? root.length() : root.length() + 1;
+        if (!rootEndsWithSeparator && !path.startsWith(File.separator, root.length())) {
+            return false;
+        }
+        return recursive || path.indexOf(File.separatorChar, childStart) < 0;
+    }
+
+    /**
+     * Cached hash and fingerprint of one path, with the metadata they are valid for.
+     * Either may be absent, with a null type.
+     */
+    private static final class Entry {
+        private final long size;
+        private final long lastModified;
+        private final String fileKey;
+        private final String hashType;
+        private final HashKey digest;
+        private final String fingerprintType;
+        private final HashKey fingerprint;
+        private volatile long lastSeen;
+        private volatile boolean seen;
+
+        /**
+         * Creates an entry for a file seen by this session
+         */
+        Entry(ScannedFile file, String hashType, HashKey digest, String fingerprintType, HashKey fingerprint) {
+            this(file.getSize(), file.getLastModified(), fileKeyOf(file), hashType, digest,
+                 fingerprintType, fingerprint, System.currentTimeMillis(), true);
+        }
+
+        Entry(long size, long lastModified, String fileKey, String hashType, HashKey digest,
+              String fingerprintType, HashKey fingerprint, long lastSeen, boolean seen) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fileKey = fileKey;
+            this.hashType = hashType;
+            this.digest = digest;
+            this.fingerprintType = fingerprintType;
+            this.fingerprint = fingerprint;
+            this.lastSeen = lastSeen;
+            this.seen = seen;
+        }
+
+        /**
+         * Checks if the entry is for the current version of the file
+         */
+        boolean matchesFile(ScannedFile file) {
+            return size == file.getSize()
+                && lastModified == file.getLastModified()
+                && fileKey.equals(fileKeyOf(file));
+        }
+
+        boolean matches(ScannedFile file, String expectedHashType) {
+            return matchesFile(file) && expectedHashType.equals(hashType);
+        }
+
+        void touch() {
+            lastSeen = System.currentTimeMillis();
+            seen = true;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.DuplicateGroup;
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.model.ScannedFile;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Groups hashed files by their hash, fed directly by the threads that compute the hashes.
+ *
+ * Thread-safe without a global lock: the map locks a single bin only when a new hash is
+ * inserted into it, and looks up existing groups without locking. Adding a file to a group
+ * then only locks that group, which is contended only when two copies of the same content
+ * finish hashing at the same moment. Most groups hold a single file, so insertion
+ * throughput scales with the number of hashing threads.
+ */
+public class HashGroupIndex {
+
+    private final ConcurrentHashMap<HashKey, DuplicateGroup> groups;
+    private final String hashAlgorithm;
+    private final LongAdder fileCount = new LongAdder();
+
+    /**
+     * @param hashAlgorithm name of the algorithm that produced the hashes, recorded on each group
+     */
+    public HashGroupIndex(String hashAlgorithm) {
+        this(hashAlgorithm, 16);
+    }
+
+    /**
+     * @param hashAlgorithm name of the algorithm that produced the hashes, recorded on each group
+     * @param expectedGroups initial capacity, to avoid resizing while many threads insert
+     */
+    public HashGroupIndex(String hashAlgorithm, int expectedGroups) {
+        this.hashAlgorithm = hashAlgorithm;
+        this.groups = new ConcurrentHashMap<>(Math.max(16, expectedGroups));
+    }
+
+    /**
+     * Adds a file to the group of its hash, creating the group if needed. Safe to call from any thread.
+     *
+     * @param hash the hash of the file
+     * @param file the file
+     */
+    public void add(HashKey hash, File file) {
+        groupOf(hash).addFile(file);
+        fileCount.increment();
+    }
+
+    /**
+     * Adds a file found by a scan to the group of its hash, keeping the metadata it was hashed
+     * with (see {@link DuplicateGroup#getScannedFile(File)}). Safe to call from any thread.
+     *
+     * @param hash the hash of the file
+     * @param file the file
+     */
+    public void add(HashKey hash, ScannedFile file) {
+        groupOf(hash).addFile(file);
+        fileCount.increment();
+    }
+
+    private DuplicateGroup groupOf(HashKey hash) {
+        DuplicateGroup group = groups.get(hash);
+        if (group == null) {
+            group = groups.computeIfAbsent(hash, key -> new DuplicateGroup(key, hashAlgorithm));
+        }
+        return group;
+    }
+
+    /**
+     * Returns the group of a hash, or null if no file has that hash
+     */
+    public DuplicateGroup get(HashKey hash) {
+        return groups.get(hash);
+    }
+
+    /**
+     * Returns a live view of all groups, including those with a single file
+     */
+    public Collection<DuplicateGroup> getGroups() {
+        return groups.values();
+    }
+
+    /**
+     * Returns the groups that hold more than one file
+     */
+    public List<DuplicateGroup> getDuplicates() {
+        return groups.values().stream()
+                .filter(DuplicateGroup::isDuplicate)
+                .toList();
+    }
+
+    public int getGroupCount() {
+        return groups.size();
+    }
+
+    public long getFileCount() {
+        return fileCount.sum();
+    }
+}
@@ -1,5 +1,8 @@
 package com.jesusluna.duplicateremover.service;
 
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.model.ScannedFile;
+
 import java.io.File;
 
 /**
@@ -8,11 +11,13 @@
  */
 public class HashResult {
     private final File file;
-    private final String hash;
+    private final ScannedFile scannedFile;
+    private final HashKey hash;
     private final Exception error;
 
-    private HashResult(File file, String hash, Exception error) {
+    private HashResult(File file, ScannedFile scannedFile, HashKey hash, Exception error) {
         this.file = file;
+        this.scannedFile = scannedFile;
         this.hash = hash;
         this.error = error;
     }
@@ -21,21 +26,66 @@ private HashResult(File file, String hash, Exception error) {
      * Creates a successful hash result
      */
     public static HashResult success(File file, String hash) {
-        return new HashResult(file, hash, null);
+        return new HashResult(file, null, HashKey.fromHex(hash), null);
+    }
+
+    /**
+     * Creates a successful hash result
+     */
+    public static HashResult success(File file, HashKey hash) {
+        return new HashResult(file, null, hash, null);
+    }
+
+    /**
+     * Creates a successful hash result for a file found by traversal
+     */
+    public static HashResult success(ScannedFile scannedFile, HashKey hash) {
+        return new HashResult(scannedFile.getFile(), scannedFile, hash, null);
     }
 
     /**
      * Creates a failed hash result
      */
     public static HashResult failure(File file, Exception error) {
-        return new HashResult(file, null, error);
+        return new HashResult(file, null, null, error);
+    }
+
+    /**
+     * Creates a failed hash result for a file found by traversal
+     */
+    public static HashResult failure(ScannedFile scannedFile, Exception error) {
+        return new HashResult(scannedFile.getFile(), scannedFile, null, error);
     }
 
     public File getFile() {
         return file;
     }
 
+    /**
+     * Returns the file with its traversal metadata, or null if it was hashed outside a scan
+     */
+    public ScannedFile getScannedFile() {
+        return scannedFile;
+    }
+
+    /**
+     * Returns the file size recorded during traversal, or -1 if unknown
+     */
+    public long getSize() {
+        return scannedFile != null ? scannedFile.getSize() : -1;
+    }
+
+    /**
+     * Returns the hex-encoded hash, or null if hashing failed
+     */
     public String getHash() {
+        return hash != null ? hash.toHex() : null;
+    }
+
+    /**
+     * Returns the binary hash, or null if hashing failed
+     */
+    public HashKey getHashKey() {
         return hash;
     }
 
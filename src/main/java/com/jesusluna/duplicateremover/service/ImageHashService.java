@@ -1,14 +1,25 @@
 package com.jesusluna.duplicateremover.service;
 
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithm;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithms;
+import com.jesusluna.duplicateremover.service.hash.Hasher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
 import java.io.File;
 import java.io.IOException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Set;
 
 /**
@@ -21,7 +32,67 @@
 public class ImageHashService {
 
     private static final Logger logger = LoggerFactory.getLogger(ImageHashService.class);
-    private static final String ALGORITHM = "SHA-256";
+
+    private static final String PIXEL_HASH_PREFIX = "pixel-";
+
+    /**
+     * Number of pixels converted and fed to the digest at a time (1MB of ARGB bytes)
+     */
+    private static final int PIXELS_PER_BLOCK = 256 * 1024;
+
+    /**
+     * Name recorded as the hash algorithm of groups of similar images
+     */
+    public static final String PERCEPTUAL_HASH_NAME = "dHash";
+
+    /**
+     * Columns and rows of the grid a perceptual hash compares: each row gives one bit per pair
+     * of neighbouring cells, 8 by 8 bits
+     */
+    private static final int PERCEPTUAL_COLUMNS = 9;
+    private static final int PERCEPTUAL_ROWS = 8;
+
+    /**
+     * Pixels decoded per grid cell along each dimension when hashing perceptually: enough for
+     * stable cell averages, and far fewer than most photos have
+     */
+    private static final int PERCEPTUAL_SAMPLES_PER_CELL = 32;
+
+    private final HashAlgorithm hashAlgorithm;
+    private final ResourcePool<Hasher> hashers;
+    private final ResourcePool<PixelBlock> pixelBlocks = new ResourcePool<>(PixelBlock::new);
+
+    public ImageHashService() {
+        this(HashAlgorithms.DEFAULT);
+    }
+
+    public ImageHashService(HashAlgorithm hashAlgorithm) {
+        this.hashAlgorithm = hashAlgorithm;
+        this.hashers = new ResourcePool<>(hashAlgorithm::newHasher);
+    }
+
+    /**
+     * Identifies pixel-based hashes computed with the given algorithm, e.g. in the {@link HashCache}
+     */
+    public static String pixelHashType(HashAlgorithm hashAlgorithm) {
+        return PIXEL_HASH_PREFIX + hashAlgorithm.getName();
+    }
+
+    /**
+     * Checks if a hash type or group algorithm, as returned by {@link #pixelHashType(HashAlgorithm)},
+     * describes pixel-based hashes
+     */
+    public static boolean isPixelHashType(String hashType) {
+        return hashType != null && hashType.startsWith(PIXEL_HASH_PREFIX);
+    }
+
+    /**
+     * Returns the name of the algorithm that computed hashes of a pixel-based hash type, see
+     * {@link #pixelHashType(HashAlgorithm)}
+     */
+    public static String pixelHashAlgorithm(String hashType) {
+        return hashType.substring(PIXEL_HASH_PREFIX.length());
+    }
 
     /**
      * Calculates a hash based on the pixel data of an image file.
@@ -33,35 +104,254 @@ public class ImageHashService {
      * @throws IOException if the image cannot be read or is not a valid image format
      */
     public String calculatePixelHash(File imageFile) throws IOException {
+        return calculatePixelKey(imageFile).toHex();
+    }
+
+    /**
+     * Calculates the pixel-based hash of an image file as a binary key, see {@link #calculatePixelHash(File)}
+     *
+     * @param imageFile the image file to hash
+     * @return the hash of the pixel data
+     * @throws IOException if the image cannot be read or is not a valid image format
+     */
+    public HashKey calculatePixelKey(File imageFile) throws IOException {
         if (imageFile == null || !imageFile.exists() || !imageFile.isFile()) {
             throw new IllegalArgumentException("Invalid image file: " + imageFile);
         }
 
         logger.debug("Calculating pixel hash for: {}", imageFile.getAbsolutePath());
 
+        return hashPixelData(decode(imageFile));
+    }
+
+    /**
+     * Checks if two image files have the same pixels: the same dimensions and the same ARGB
+     * values, which is what {@link #calculatePixelKey(File)} hashes. Both images are decoded
+     * in full and compared a block of rows at a time, stopping at the first block that differs.
+     *
+     * @throws IOException if either image cannot be read or is not a valid image format
+     */
+    public boolean hasSamePixels(File first, File second) throws IOException {
+        BufferedImage a = decode(first);
+        BufferedImage b = decode(second);
+        int width = a.getWidth();
+        int height = a.getHeight();
+        if (width != b.getWidth() || height != b.getHeight()) {
+            return false;
+        }
+        PixelBlock blockA = pixelBlocks.acquire();
+        PixelBlock blockB = pixelBlocks.acquire();
         try {
-            BufferedImage image = ImageIO.read(imageFile);
-            
-            if (image == null) {
-                throw new IOException("Unable to read image file (unsupported format or corrupted): " + imageFile.getName());
+            int rowsPerBlock = Math.max(1, PIXELS_PER_BLOCK / Math.max(1, width));
+            for (int y = 0; y < height; y += rowsPerBlock) {
+                int rows = Math.min(rowsPerBlock, height - y);
+                int length = width * rows * 4;
+                if (!Arrays.equals(blockA.readArgb(a, y, rows), 0, length, blockB.readArgb(b, y, rows), 0, length)) {
+                    return false;
+                }
             }
+            return true;
+        } finally {
+            pixelBlocks.release(blockB);
+            pixelBlocks.release(blockA);
+        }
+    }
+
+    /**
+     * Decodes an image file in full
+     *
+     * @throws IOException if the image cannot be read or is not a valid image format
+     */
+    private static BufferedImage decode(File imageFile) throws IOException {
+        BufferedImage image = ImageIO.read(imageFile);
+        if (image == null) {
+            throw new IOException("Unable to read image file (unsupported format or corrupted): " + imageFile.getName());
+        }
+        return image;
+    }
 
-            return hashPixelData(image);
+    /**
+     * Reads the width and height of an image from its header, without decoding its pixels.
+     * Images of different dimensions never have the same pixel hash, whatever their format.
+     *
+     * @param imageFile the image file
+     * @return the dimensions of the image {@link ImageIO#read(File)} decodes, or null if no
+     *         reader recognises the file
+     * @throws IOException if the header cannot be read
+     */
+    public Dimension readDimensions(File imageFile) throws IOException {
+        return read(imageFile, reader -> new Dimension(reader.getWidth(0), reader.getHeight(0)));
+    }
 
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(ALGORITHM + " algorithm not available", e);
+    /**
+     * Reads an image file with the reader {@link ImageIO#read(File)} would pick
+     *
+     * @param imageFile the image file
+     * @param task what to read, given the reader with the file as its input
+     * @return the result of the task, or null if no reader recognises the file
+     * @throws IOException if the task fails to read the file
+     */
+    private static <R> R read(File imageFile, ReaderTask<R> task) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(imageFile)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return task.read(reader);
+            } finally {
+                reader.dispose();
+            }
         }
     }
 
+    /**
+     * Something read from an image with its reader
+     */
+    @FunctionalInterface
+    private interface ReaderTask<R> {
+        R read(ImageReader reader) throws IOException;
+    }
+
+    /**
+     * Creates a grouping key from the dimensions of an image, see {@link #readDimensions(File)}
+     */
+    static HashKey dimensionKey(Dimension dimensions) {
+        return HashKey.wrap(ByteBuffer.allocate(2 * Integer.BYTES)
+            .putInt(dimensions.width)
+            .putInt(dimensions.height)
+            .array());
+    }
+
+    /**
+     * Creates a key from a perceptual hash, see {@link #perceptualHash(BufferedImage)}
+     */
+    static HashKey perceptualKey(long hash) {
+        return HashKey.wrap(ByteBuffer.allocate(Long.BYTES).putLong(hash).array());
+    }
+
+    /**
+     * Calculates the perceptual hash of an image file, see {@link #perceptualHash(BufferedImage)}.
+     * The hash only needs the average brightness of a few cells, so the image is decoded with
+     * source subsampling: only every n-th pixel of every n-th row is kept, leaving about
+     * {@value #PERCEPTUAL_SAMPLES_PER_CELL} samples per cell in each direction. The decoded image
+     * takes a fraction of the memory of a full decode, and far less time to convert and average.
+     *
+     * @param imageFile the image file to hash
+     * @return the 64-bit hash
+     * @throws IOException if the image cannot be read or is not a valid image format
+     */
+    public long calculatePerceptualHash(File imageFile) throws IOException {
+        BufferedImage image = read(imageFile, reader -> {
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(
+                perceptualSubsampling(reader.getWidth(0), PERCEPTUAL_COLUMNS),
+                perceptualSubsampling(reader.getHeight(0), PERCEPTUAL_ROWS),
+                0, 0);
+            return reader.read(0, param);
+        });
+        if (image == null) {
+            throw new IOException("Unable to read image file (unsupported format or corrupted): " + imageFile.getName());
+        }
+        return perceptualHash(image);
+    }
+
+    /**
+     * Calculates a difference hash (dHash) of an image: the image is reduced to the average
+     * brightness of each cell of a 9 by 8 grid, and each bit tells if a cell is brighter than its
+     * right-hand neighbour. Resizing, recompressing or slightly retouching an image changes few
+     * of its 64 bits, so images that look alike have hashes at a small Hamming distance (see
+     * {@link HammingIndex#distance(long, long)}), whatever their dimensions or format.
+     *
+     * @param image the image
+     * @return the 64-bit hash
+     */
+    long perceptualHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] columnOf = new int[width];
+        for (int x = 0; x < width; x++) {
+            columnOf[x] = (int) ((long) x * PERCEPTUAL_COLUMNS / width);
+        }
+        long[] brightness = new long[PERCEPTUAL_COLUMNS * PERCEPTUAL_ROWS];
+        long[] pixelCounts = new long[PERCEPTUAL_COLUMNS * PERCEPTUAL_ROWS];
+
+        PixelBlock block = pixelBlocks.acquire();
+        try {
+            int rowsPerBlock = Math.max(1, PIXELS_PER_BLOCK / Math.max(1, width));
+            for (int y = 0; y < height; y += rowsPerBlock) {
+                int rows = Math.min(rowsPerBlock, height - y);
+                byte[] argb = block.readArgb(image, y, rows);
+                for (int row = 0; row < rows; row++) {
+                    int cellRow = (int) ((long) (y + row) * PERCEPTUAL_ROWS / height) * PERCEPTUAL_COLUMNS;
+                    for (int x = 0, o = row * width * 4; x < width; x++, o += 4) {
+                        // Luma, ignoring alpha
+                        int luma = 299 * (argb[o + 1] & 0xFF) + 587 * (argb[o + 2] & 0xFF) + 114 * (argb[o + 3] & 0xFF);
+                        brightness[cellRow + columnOf[x]] += luma;
+                        pixelCounts[cellRow + columnOf[x]]++;
+                    }
+                }
+            }
+        } finally {
+            pixelBlocks.release(block);
+        }
+
+        long hash = 0;
+        for (int row = 0; row < PERCEPTUAL_ROWS; row++) {
+            for (int column = 0; column + 1 < PERCEPTUAL_COLUMNS; column++) {
+                int cell = row * PERCEPTUAL_COLUMNS + column;
+                boolean brighter = average(brightness, pixelCounts, cell) > average(brightness, pixelCounts, cell + 1);
+                hash = (hash << 1) | (brighter ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the subsampling period along one dimension of an image that leaves enough samples
+     * in each of the given number of cells
+     */
+    static int perceptualSubsampling(int length, int cells) {
+        return Math.max(1, length / (cells * PERCEPTUAL_SAMPLES_PER_CELL));
+    }
+
+    /**
+     * Returns the average brightness of a grid cell; cells of images smaller than the grid may be empty
+     */
+    private static double average(long[] brightness, long[] pixelCounts, int cell) {
+        return pixelCounts[cell] > 0 ? (double) brightness[cell] / pixelCounts[cell] : 0;
+    }
+
     /**
      * Extracts pixel data from a BufferedImage and calculates its hash
      *
      * @param image the BufferedImage to hash
-     * @return hex-encoded hash string
-     * @throws NoSuchAlgorithmException if SHA-256 is not available
+     * @return the hash
      */
-    private String hashPixelData(BufferedImage image) throws NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+    HashKey hashPixelData(BufferedImage image) {
+        Hasher digest = hashers.acquire();
+        PixelBlock block = pixelBlocks.acquire();
+        try {
+            digest.reset();
+            return hashPixelData(image, digest, block);
+        } finally {
+            pixelBlocks.release(block);
+            hashers.release(digest);
+        }
+    }
+
+    /**
+     * Hashes the dimensions followed by every pixel as non-premultiplied sRGB ARGB bytes, row by
+     * row, i.e. the values of {@link BufferedImage#getRGB(int, int)}. The pixels are converted
+     * a block of rows at a time and fed to the digest in one call per block; the common layouts
+     * are read straight from the raster, others through the image's colour model.
+     */
+    private HashKey hashPixelData(BufferedImage image, Hasher digest, PixelBlock block) {
 
         int width = image.getWidth();
         int height = image.getHeight();
@@ -77,37 +367,93 @@ private String hashPixelData(BufferedImage image) throws NoSuchAlgorithmExceptio
         digest.update((byte) height);
 
         // Extract pixel data row by row for consistent ordering
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int rgb = image.getRGB(x, y);
-                
-                // Extract ARGB components
-                digest.update((byte) (rgb >> 24)); // Alpha
-                digest.update((byte) (rgb >> 16)); // Red
-                digest.update((byte) (rgb >> 8));  // Green
-                digest.update((byte) rgb);         // Blue
-            }
+        int rowsPerBlock = Math.max(1, PIXELS_PER_BLOCK / Math.max(1, width));
+        for (int y = 0; y < height; y += rowsPerBlock) {
+            int rows = Math.min(rowsPerBlock, height - y);
+            digest.update(block.readArgb(image, y, rows), 0, width * rows * 4);
         }
 
-        byte[] hashBytes = digest.digest();
-        String hash = bytesToHex(hashBytes);
+        HashKey hash = HashKey.wrap(digest.digest());
         
         logger.debug("Pixel hash calculated: {}", hash);
         return hash;
     }
 
     /**
-     * Converts byte array to hexadecimal string
-     *
-     * @param bytes byte array to convert
-     * @return hex string
+     * Reusable buffers holding a block of rows of an image as ARGB bytes
      */
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
+    private static final class PixelBlock {
+
+        private int[] pixels = new int[0];
+        private byte[] components = new byte[0];
+        private byte[] argb = new byte[0];
+        private IntBuffer argbInts;
+
+        /**
+         * Reads rows of an image as ARGB bytes, 4 per pixel
+         *
+         * @return a buffer starting with the bytes of the rows; valid until the next call
+         */
+        byte[] readArgb(BufferedImage image, int y, int rows) {
+            int width = image.getWidth();
+            int count = width * rows;
+            if (argb.length < count * 4) {
+                argb = new byte[count * 4];
+                argbInts = ByteBuffer.wrap(argb).asIntBuffer();
+            }
+            Raster raster = image.getRaster();
+            switch (image.getType()) {
+                case BufferedImage.TYPE_INT_ARGB -> putInts((int[]) raster.getDataElements(0, y, width, rows, pixels(count)), count, 0);
+                case BufferedImage.TYPE_INT_RGB -> putInts((int[]) raster.getDataElements(0, y, width, rows, pixels(count)), count, 0xFF000000);
+                case BufferedImage.TYPE_3BYTE_BGR -> {
+                    // Data elements come in band order: red, green, blue
+                    byte[] rgb = (byte[]) raster.getDataElements(0, y, width, rows, components(count * 3));
+                    for (int i = 0, j = 0; i < count; i++, j += 3) {
+                        int o = i * 4;
+                        argb[o] = (byte) 0xFF;
+                        argb[o + 1] = rgb[j];
+                        argb[o + 2] = rgb[j + 1];
+                        argb[o + 3] = rgb[j + 2];
+                    }
+                }
+                case BufferedImage.TYPE_4BYTE_ABGR -> {
+                    // Data elements come in band order: red, green, blue, alpha
+                    byte[] rgba = (byte[]) raster.getDataElements(0, y, width, rows, components(count * 4));
+                    for (int o = 0; o < count * 4; o += 4) {
+                        argb[o] = rgba[o + 3];
+                        argb[o + 1] = rgba[o];
+                        argb[o + 2] = rgba[o + 1];
+                        argb[o + 3] = rgba[o + 2];
+                    }
+                }
+                default -> putInts(image.getRGB(0, y, width, rows, pixels(count), 0, width), count, 0);
+            }
+            return argb;
+        }
+
+        private void putInts(int[] values, int count, int mask) {
+            if (mask != 0) {
+                for (int i = 0; i < count; i++) {
+                    values[i] |= mask;
+                }
+            }
+            argbInts.clear();
+            argbInts.put(values, 0, count);
+        }
+
+        private int[] pixels(int count) {
+            if (pixels.length < count) {
+                pixels = new int[count];
+            }
+            return pixels;
+        }
+
+        private byte[] components(int count) {
+            if (components.length < count) {
+                components = new byte[count];
+            }
+            return components;
         }
-        return result.toString();
     }
 
     // Supported image formats for pixel-based hashing
@@ -126,6 +472,21 @@ public boolean isSupportedImageFormat(File file) {
             return false;
         }
 
+        return hasSupportedExtension(file);
+    }
+
+    /**
+     * Checks only the file name against the supported image formats, without touching the file system.
+     * Useful during scanning, where existence has already been established by traversal.
+     *
+     * @param file the file to check
+     * @return true if the file name has a supported image extension
+     */
+    public boolean hasSupportedExtension(File file) {
+        if (file == null) {
+            return false;
+        }
+
         String name = file.getName().toLowerCase();
         return SUPPORTED_FORMATS.stream().anyMatch(name::endsWith);
     }
@@ -0,0 +1,304 @@
+package com.jesusluna.duplicateremover.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Finds the number of concurrent reads at which the storage actually being scanned delivers
+ * the most throughput, by hill climbing on measurements taken during the scan.
+ *
+ * Completed reads are counted as they happen; every window (half a second by default) the
+ * throughput of the current level is scored, counting each file as {@link #FILE_COST_BYTES}
+ * on top of its bytes so that scans of many tiny files are driven by files per second and
+ * scans of large files by bytes per second. The level moves in one direction while the score
+ * improves; when a move does not pay off it is undone, and the search turns around with half
+ * the step. A move to fewer readers that keeps the score is kept, which settles spinning
+ * disks on few readers. Once a single step no longer helps, the level is held for a while
+ * and then probed again, so that the level follows the workload when it changes.
+ *
+ * Windows in which the limit was not saturated (there was less work than readers) measure the
+ * producer rather than the storage and are ignored.
+ *
+ * Not thread-safe except for {@link #recordCompleted(long)}: intended to be ticked by a
+ * single dispatcher thread.
+ */
+public class ParallelismController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelismController.class);
+
+    /**
+     * Default length of a measurement window
+     */
+    public static final long DEFAULT_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    /**
+     * Default ratio between the highest level tried and the configured level
+     */
+    public static final int DEFAULT_RANGE_FACTOR = 4;
+
+    /**
+     * Bytes of throughput one file is worth on top of its size (open, metadata, seek)
+     */
+    static final long FILE_COST_BYTES = 64 * 1024;
+
+    /**
+     * Relative score change below which a move is considered to make no difference
+     */
+    static final double TOLERANCE = 0.05;
+
+    /**
+     * Windows the level is held after converging before it is probed again
+     */
+    static final int HOLD_WINDOWS = 20;
+
+    /**
+     * Number of recent levels and scores kept for the log
+     */
+    private static final int TRACE_LENGTH = 16;
+
+    private final String name;
+    private final int minLevel;
+    private final int maxLevel;
+    private final long windowNanos;
+    private final IntConsumer levelListener;
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final Deque<String> trace = new ArrayDeque<>();
+
+    private int level;
+    private int step;
+    private int direction = 1;
+    private int lastMove;
+    private double lastScore = -1;
+    private boolean converged;
+    private int convergences;
+    private int holdRemaining;
+    private int adjustments;
+
+    private long windowStart = -1;
+    private int ticks;
+    private int saturatedTicks;
+
+    /**
+     * @param initialLevel level to start from
+     * @param minLevel lowest level tried (at least 1)
+     * @param maxLevel highest level tried
+     * @param windowNanos length of each measurement window
+     * @param levelListener applies a new level, e.g. as the read limit of a device
+     */
+    public ParallelismController(int initialLevel, int minLevel, int maxLevel, long windowNanos, IntConsumer levelListener) {
+        this("the scan", initialLevel, minLevel, maxLevel, windowNanos, levelListener);
+    }
+
+    /**
+     * @param name what the level applies to (e.g. a device), for the log
+     * @param initialLevel level to start from
+     * @param minLevel lowest level tried (at least 1)
+     * @param maxLevel highest level tried
+     * @param windowNanos length of each measurement window
+     * @param levelListener applies a new level
+     */
+    public ParallelismController(String name, int initialLevel, int minLevel, int maxLevel, long windowNanos, IntConsumer levelListener) {
+        this.name = name;
+        this.minLevel = Math.max(1, minLevel);
+        this.maxLevel = Math.max(this.minLevel, maxLevel);
+        this.level = Math.min(this.maxLevel, Math.max(this.minLevel, initialLevel));
+        this.step = Math.max(1, this.level / 2);
+        this.windowNanos = windowNanos;
+        this.levelListener = levelListener;
+    }
+
+    /**
+     * Counts a completed read. Safe to call from any thread.
+     *
+     * @param byteCount number of bytes read
+     */
+    public void recordCompleted(long byteCount) {
+        files.increment();
+        bytes.add(byteCount);
+    }
+
+    /**
+     * Called regularly by the dispatcher; adjusts the level at the end of each window
+     *
+     * @param saturated true if there is currently more work than the level lets run
+     */
+    public void tick(boolean saturated) {
+        tick(System.nanoTime(), saturated);
+    }
+
+    void tick(long now, boolean saturated) {
+        if (windowStart < 0) {
+            startWindow(now);
+        }
+        ticks++;
+        if (saturated) {
+            saturatedTicks++;
+        }
+        long elapsed = now - windowStart;
+        if (elapsed < windowNanos) {
+            return;
+        }
+
+        long windowFiles = files.sumThenReset();
+        long windowBytes = bytes.sumThenReset();
+        boolean valid = windowFiles > 0 && saturatedTicks * 2 >= ticks;
+        startWindow(now);
+        if (valid) {
+            double seconds = elapsed / 1e9;
+            onWindow((windowBytes + windowFiles * FILE_COST_BYTES) / seconds,
+                     windowBytes / seconds, windowFiles / seconds);
+        }
+    }
+
+    private void startWindow(long now) {
+        windowStart = now;
+        ticks = 0;
+        saturatedTicks = 0;
+    }
+
+    private void onWindow(double score, double bytesPerSecond, double filesPerSecond) {
+        addTrace(String.format("%d: %.1f MB/s %.0f files/s", level, bytesPerSecond / (1024 * 1024), filesPerSecond));
+
+        if (converged) {
+            if (--holdRemaining > 0) {
+                return;
+            }
+            // Probe again around the current level, alternately upwards and downwards
+            converged = false;
+            lastScore = -1;
+            step = 1;
+            direction = convergences % 2 == 1 ? 1 : -1;
+        }
+
+        if (lastScore < 0) {
+            lastScore = score;
+            lastMove = move(direction * step);
+            if (lastMove == 0) {
+                direction = -direction;
+                lastMove = move(direction * step);
+            }
+            if (lastMove == 0) {
+                converge();
+            }
+            return;
+        }
+
+        double change = score / lastScore - 1;
+        if (change > TOLERANCE) {
+            // The last move paid off: keep going
+            lastScore = score;
+            lastMove = move(direction * step);
+            if (lastMove == 0) {
+                converge();
+            }
+            return;
+        }
+
+        if (lastMove < 0 && change >= -TOLERANCE) {
+            // Fewer readers for the same throughput: keep going down
+            lastScore = score;
+            lastMove = move(direction * step);
+            if (lastMove == 0) {
+                converge();
+            }
+            return;
+        }
+
+        // No gain: undo the last move, keeping the score of the level returned to
+        move(-lastMove);
+        if (step == 1) {
+            converge();
+            return;
+        }
+        step = Math.max(1, step / 2);
+        direction = -direction;
+        lastMove = move(direction * step);
+        if (lastMove == 0) {
+            converge();
+        }
+    }
+
+    /**
+     * Changes the level by up to delta within the bounds
+     *
+     * @return the change actually made
+     */
+    private int move(int delta) {
+        int target = Math.min(maxLevel, Math.max(minLevel, level + delta));
+        int moved = target - level;
+        if (moved != 0) {
+            level = target;
+            adjustments++;
+            levelListener.accept(level);
+        }
+        return moved;
+    }
+
+    private void converge() {
+        converged = true;
+        holdRemaining = HOLD_WINDOWS;
+        convergences++;
+        if (convergences == 1) {
+            logger.info("Parallelism for {} converged on {} concurrent reads after {} adjustments ({})",
+                        name, level, adjustments, getTrace());
+        } else {
+            logger.debug("Parallelism for {} re-converged on {} concurrent reads ({})", name, level, getTrace());
+        }
+    }
+
+    private void addTrace(String entry) {
+        if (trace.size() == TRACE_LENGTH) {
+            trace.removeFirst();
+        }
+        trace.addLast(entry);
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getMinLevel() {
+        return minLevel;
+    }
+
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * Returns true while the level is held after a search
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    /**
+     * Returns the number of level changes made so far
+     */
+    public int getAdjustments() {
+        return adjustments;
+    }
+
+    /**
+     * Returns the most recent levels with their measured throughput, oldest first
+     */
+    public String getTrace() {
+        return String.join(" -> ", trace);
+    }
+
+    /**
+     * Returns a one-line description of the current state for logging
+     */
+    public String toSummary() {
+        return String.format("%d concurrent reads (range %d-%d), %s after %d adjustments; recent windows: %s",
+                             level, minLevel, maxLevel, convergences > 0 ? "converged" : "still searching",
+                             adjustments, trace.isEmpty() ? "none measured" : getTrace());
+    }
+}
@@ -0,0 +1,166 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithm;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithms;
+import com.jesusluna.duplicateremover.service.hash.Hasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Service for calculating cheap partial fingerprints of files.
+ * The fingerprint covers the first block, the last block and a few evenly spaced
+ * sampled blocks in between, plus the file length. Files with different fingerprints
+ * are certainly different, so only files whose fingerprints collide need a full hash.
+ */
+public class PartialHashService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartialHashService.class);
+
+    /**
+     * Size of each sampled block
+     */
+    public static final int BLOCK_SIZE = 4096; // 4KB
+
+    /**
+     * Number of sampled blocks between the head and tail blocks
+     */
+    public static final int SAMPLE_COUNT = 3;
+
+    /**
+     * Files smaller than this are cheaper to hash in full than to fingerprint first
+     */
+    public static final long MIN_PREFILTER_SIZE = 64 * 1024; // 64KB
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+    private final Hasher hasher;
+
+    public PartialHashService() {
+        this(HashAlgorithms.DEFAULT);
+    }
+
+    public PartialHashService(HashAlgorithm hashAlgorithm) {
+        this.hasher = hashAlgorithm.newHasher();
+    }
+
+    /**
+     * Identifies fingerprints computed with the given algorithm, e.g. in the {@link HashCache}
+     */
+    public static String fingerprintType(HashAlgorithm hashAlgorithm) {
+        return "fingerprint-" + BLOCK_SIZE + "x" + SAMPLE_COUNT + "-" + hashAlgorithm.getName();
+    }
+
+    /**
+     * Checks if a file of the given size benefits from the prefilter stage
+     *
+     * @param size file length in bytes
+     * @return true if fingerprinting reads significantly less than a full hash
+     */
+    public static boolean isWorthPrefiltering(long size) {
+        return size >= MIN_PREFILTER_SIZE;
+    }
+
+    /**
+     * Returns the number of bytes read to fingerprint a file of the given size
+     *
+     * @param size file length in bytes
+     * @return bytes read by {@link #calculateFingerprint(File)}
+     */
+    public static long fingerprintBytes(long size) {
+        return Math.min(size, (long) BLOCK_SIZE * (SAMPLE_COUNT + 2));
+    }
+
+    /**
+     * Calculates the partial fingerprint of a file.
+     * Not thread-safe: use one instance per thread.
+     *
+     * @param file the file to fingerprint
+     * @return hex-encoded fingerprint string
+     * @throws IllegalArgumentException if file is null, doesn't exist, or is not a regular file
+     * @throws IOException if file cannot be read
+     */
+    public String calculateFingerprint(File file) throws IOException {
+        return calculateFingerprintKey(file).toHex();
+    }
+
+    /**
+     * Calculates the partial fingerprint of a file as a binary key, see {@link #calculateFingerprint(File)}.
+     * Not thread-safe: use one instance per thread.
+     *
+     * @param file the file to fingerprint
+     * @return the fingerprint
+     * @throws IllegalArgumentException if file is null, doesn't exist, or is not a regular file
+     * @throws IOException if file cannot be read
+     */
+    public HashKey calculateFingerprintKey(File file) throws IOException {
+        if (file == null || !file.exists() || !file.isFile()) {
+            throw new IllegalArgumentException("Invalid file: " + file);
+        }
+
+        hasher.reset();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            // Include the length so that fingerprints of different-sized files never collide
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                hasher.update((byte) (size >>> shift));
+            }
+
+            for (long offset : sampleOffsets(size)) {
+                readBlock(channel, offset);
+            }
+
+            HashKey fingerprint = HashKey.wrap(hasher.digest());
+            logger.debug("Fingerprint calculated for {}: {}", file.getAbsolutePath(), fingerprint);
+            return fingerprint;
+        }
+    }
+
+    /**
+     * Calculates the offsets of the head block, the sampled blocks and the tail block.
+     * Sampled offsets are aligned to the block size.
+     *
+     * @param size file length in bytes
+     * @return block offsets in ascending order
+     */
+    static long[] sampleOffsets(long size) {
+        if (size <= (long) BLOCK_SIZE * (SAMPLE_COUNT + 2)) {
+            // Small enough to read in full, block by block
+            int blocks = (int) ((size + BLOCK_SIZE - 1) / BLOCK_SIZE);
+            long[] offsets = new long[blocks];
+            for (int i = 0; i < blocks; i++) {
+                offsets[i] = (long) i * BLOCK_SIZE;
+            }
+            return offsets;
+        }
+
+        long[] offsets = new long[SAMPLE_COUNT + 2];
+        offsets[0] = 0;
+        for (int i = 1; i <= SAMPLE_COUNT; i++) {
+            long offset = size / (SAMPLE_COUNT + 1) * i;
+            offsets[i] = offset - (offset % BLOCK_SIZE);
+        }
+        offsets[SAMPLE_COUNT + 1] = size - BLOCK_SIZE;
+        return offsets;
+    }
+
+    private void readBlock(FileChannel channel, long offset) throws IOException {
+        buffer.clear();
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        buffer.flip();
+        hasher.update(buffer);
+    }
+}
@@ -0,0 +1,37 @@
+package com.jesusluna.duplicateremover.service;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Reusable objects (hashers, readers and their buffers) shared by any number of threads.
+ * Unlike a {@link ThreadLocal} it holds one instance per concurrent use rather than per
+ * thread, which matters with virtual threads: each of them runs a single task, so per-thread
+ * instances, direct buffers included, would be allocated again for every task.
+ *
+ * @param <T> resource type; a released resource must be ready for reuse
+ */
+final class ResourcePool<T> {
+
+    private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+    private final Supplier<T> factory;
+
+    ResourcePool(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Takes an idle resource, or creates one if all are in use
+     */
+    T acquire() {
+        T resource = idle.poll();
+        return resource != null ? resource : factory.get();
+    }
+
+    /**
+     * Returns a resource taken with {@link #acquire()}
+     */
+    void release(T resource) {
+        idle.offer(resource);
+    }
+}
@@ -0,0 +1,304 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithm;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithms;
+import com.jesusluna.duplicateremover.service.io.ReadHashPipeline;
+import com.jesusluna.duplicateremover.service.io.ReadOrdering;
+import com.jesusluna.duplicateremover.service.io.ReadStrategy;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Settings for a duplicate scan.
+ * Setters return this instance so options can be chained:
+ * {@code new ScanOptions().setIncludeSubfolders(true).setParallelism(4)}
+ */
+public class ScanOptions {
+
+    private boolean includeSubfolders;
+    private boolean useAdvancedImageDetection = true;
+    private int similarImageDistance = -1;
+    private int parallelism = calculateDefaultParallelism();
+    private Path hashCacheFile;
+    private HashAlgorithm hashAlgorithm = HashAlgorithms.DEFAULT;
+    private ReadStrategy readStrategy = ReadStrategy.ADAPTIVE;
+    private int readBlockSize = ReadStrategy.DEFAULT_BLOCK_SIZE;
+    private long treeHashThreshold = TreeHashService.DEFAULT_THRESHOLD;
+    private int inlineKeyThreshold = FileHashService.DEFAULT_INLINE_KEY_THRESHOLD;
+    private int directCompareLimit = ContentComparator.DEFAULT_GROUP_LIMIT;
+    private int treeHashChunkSize = TreeHashService.DEFAULT_CHUNK_SIZE;
+    private int readThreads = ReadHashPipeline.DEFAULT_READER_THREADS;
+    private int readBufferCount;
+    private WorkerMode workerMode = WorkerMode.FIXED_POOL;
+    private int maxConcurrentReads;
+    private boolean adaptiveParallelism = true;
+    private ReadOrdering readOrdering = ReadOrdering.AUTO;
+
+    /**
+     * Calculates optimal parallelism based on available CPU cores
+     * Uses all cores for SSD-optimized scanning
+     */
+    static int calculateDefaultParallelism() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        // Use all cores for optimal performance on modern systems with SSDs
+        return cores;
+    }
+
+    public boolean isIncludeSubfolders() {
+        return includeSubfolders;
+    }
+
+    public ScanOptions setIncludeSubfolders(boolean includeSubfolders) {
+        this.includeSubfolders = includeSubfolders;
+        return this;
+    }
+
+    public boolean isUseAdvancedImageDetection() {
+        return useAdvancedImageDetection;
+    }
+
+    public ScanOptions setUseAdvancedImageDetection(boolean useAdvancedImageDetection) {
+        this.useAdvancedImageDetection = useAdvancedImageDetection;
+        return this;
+    }
+
+    public int getSimilarImageDistance() {
+        return similarImageDistance;
+    }
+
+    /**
+     * Checks if images that look alike are searched for, see {@link #setSimilarImageDistance(int)}
+     */
+    public boolean isFindSimilarImages() {
+        return useAdvancedImageDetection && similarImageDistance >= 0;
+    }
+
+    /**
+     * Sets the largest number of bits, out of 64, in which the perceptual hashes of images
+     * reported as similar may differ (see {@link SimilarImageIndex}); negative values, the
+     * default, disable the search. {@link SimilarImageIndex#DEFAULT_MAX_DISTANCE} finds resized
+     * and recompressed copies. Only applies with advanced image detection, and decodes every image.
+     */
+    public ScanOptions setSimilarImageDistance(int similarImageDistance) {
+        this.similarImageDistance = Math.min(Long.SIZE, similarImageDistance);
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of worker threads; values below 1 are treated as 1
+     */
+    public ScanOptions setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    /**
+     * Returns the persistent hash cache file, or null if caching is disabled
+     */
+    public Path getHashCacheFile() {
+        return hashCacheFile;
+    }
+
+    /**
+     * Enables the persistent hash cache stored in the given file (see {@link HashCache}),
+     * or disables it when null. The cache is loaded and saved by the scan itself,
+     * off the JavaFX application thread.
+     */
+    public ScanOptions setHashCacheFile(Path hashCacheFile) {
+        this.hashCacheFile = hashCacheFile;
+        return this;
+    }
+
+    public HashAlgorithm getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    /**
+     * Selects the algorithm used for fingerprints and full hashes (see {@link HashAlgorithms}).
+     * Cached hashes are tagged with the algorithm, so switching algorithms never mixes digests.
+     */
+    public ScanOptions setHashAlgorithm(HashAlgorithm hashAlgorithm) {
+        this.hashAlgorithm = Objects.requireNonNull(hashAlgorithm, "hashAlgorithm");
+        return this;
+    }
+
+    public ReadStrategy getReadStrategy() {
+        return readStrategy;
+    }
+
+    /**
+     * Selects how file content is read for full hashing when the read/hash pipeline is
+     * disabled (see {@link #setReadThreads(int)}), and by {@link FileHashService} outside scans
+     */
+    public ScanOptions setReadStrategy(ReadStrategy readStrategy) {
+        this.readStrategy = Objects.requireNonNull(readStrategy, "readStrategy");
+        return this;
+    }
+
+    public int getReadBlockSize() {
+        return readBlockSize;
+    }
+
+    /**
+     * Sets the size of each read when hashing; values below
+     * {@link ReadStrategy#MIN_BLOCK_SIZE} are treated as the minimum
+     */
+    public ScanOptions setReadBlockSize(int readBlockSize) {
+        this.readBlockSize = Math.max(ReadStrategy.MIN_BLOCK_SIZE, readBlockSize);
+        return this;
+    }
+
+    public long getTreeHashThreshold() {
+        return treeHashThreshold;
+    }
+
+    /**
+     * Sets the size from which files are split into chunks and tree-hashed in parallel
+     * (see {@link TreeHashService}); {@code Long.MAX_VALUE} disables tree hashing
+     */
+    public ScanOptions setTreeHashThreshold(long treeHashThreshold) {
+        this.treeHashThreshold = treeHashThreshold;
+        return this;
+    }
+
+    public int getInlineKeyThreshold() {
+        return inlineKeyThreshold;
+    }
+
+    /**
+     * Sets the size up to which a file's content itself, read in a single call, is its
+     * grouping key instead of a hash of it; 0 limits this to empty files, which are
+     * grouped without being read
+     */
+    public ScanOptions setInlineKeyThreshold(int inlineKeyThreshold) {
+        this.inlineKeyThreshold = Math.max(0, inlineKeyThreshold);
+        return this;
+    }
+
+    public int getDirectCompareLimit() {
+        return directCompareLimit;
+    }
+
+    /**
+     * Sets the largest candidate group whose files are verified by comparing their bytes
+     * directly (see {@link ContentComparator}) instead of by hashing each of them; values
+     * below 2 hash every group. Groups are compared once traversal has found all their files,
+     * unless a file is served by the hash cache or lives on a device read in physical order
+     * and is larger than a read block, since reading several files in lockstep makes a
+     * spinning disk seek between them.
+     */
+    public ScanOptions setDirectCompareLimit(int directCompareLimit) {
+        this.directCompareLimit = Math.max(0, directCompareLimit);
+        return this;
+    }
+
+    public int getTreeHashChunkSize() {
+        return treeHashChunkSize;
+    }
+
+    /**
+     * Sets the size of each tree hash chunk; values below
+     * {@link ReadStrategy#MIN_BLOCK_SIZE} are treated as the minimum
+     */
+    public ScanOptions setTreeHashChunkSize(int treeHashChunkSize) {
+        this.treeHashChunkSize = Math.max(ReadStrategy.MIN_BLOCK_SIZE, treeHashChunkSize);
+        return this;
+    }
+
+    public int getReadThreads() {
+        return readThreads;
+    }
+
+    /**
+     * Sets the number of reader threads of the read/hash pipeline (see {@link ReadHashPipeline}),
+     * which overlaps reading with hashing on {@link #getParallelism()} hasher threads.
+     * Use a few readers for SSDs and one for a spinning disk; 0 disables the pipeline,
+     * so that each worker reads and hashes its own files.
+     */
+    public ScanOptions setReadThreads(int readThreads) {
+        this.readThreads = Math.max(0, readThreads);
+        return this;
+    }
+
+    public int getReadBufferCount() {
+        return readBufferCount;
+    }
+
+    /**
+     * Sets the number of pooled read buffers of the read/hash pipeline, each of
+     * {@link #getReadBlockSize()} bytes; 0 sizes the pool from the thread counts
+     */
+    public ScanOptions setReadBufferCount(int readBufferCount) {
+        this.readBufferCount = Math.max(0, readBufferCount);
+        return this;
+    }
+
+    public WorkerMode getWorkerMode() {
+        return workerMode;
+    }
+
+    /**
+     * Selects how fingerprint and hash tasks are run. In {@link WorkerMode#VIRTUAL_THREADS}
+     * mode the tasks read their files themselves, so the read/hash pipeline is not used.
+     */
+    public ScanOptions setWorkerMode(WorkerMode workerMode) {
+        this.workerMode = Objects.requireNonNull(workerMode, "workerMode");
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of files read at the same time by the scan's tasks:
+     * the configured value, or by default the pool size for {@link WorkerMode#FIXED_POOL}
+     * and {@link WorkerMode#DEFAULT_VIRTUAL_READS} for {@link WorkerMode#VIRTUAL_THREADS}
+     */
+    public int getMaxConcurrentReads() {
+        if (maxConcurrentReads > 0) {
+            return maxConcurrentReads;
+        }
+        return workerMode == WorkerMode.VIRTUAL_THREADS ? WorkerMode.DEFAULT_VIRTUAL_READS : parallelism;
+    }
+
+    /**
+     * Caps the number of files read at the same time, independently of the number of threads;
+     * 0 selects the default of the worker mode
+     */
+    public ScanOptions setMaxConcurrentReads(int maxConcurrentReads) {
+        this.maxConcurrentReads = Math.max(0, maxConcurrentReads);
+        return this;
+    }
+
+    public boolean isAdaptiveParallelism() {
+        return adaptiveParallelism;
+    }
+
+    /**
+     * Lets the scan tune the number of concurrent reads to the storage it is reading, starting
+     * from the configured reader count (see {@link ParallelismController}). Each device is tuned
+     * separately, starting from {@link #getReadThreads()} when the read/hash pipeline is used,
+     * otherwise from {@link #getMaxConcurrentReads()}; the level ranges from 1 to
+     * {@link ParallelismController#DEFAULT_RANGE_FACTOR} times that value.
+     * Devices read in physical order always use a single reader.
+     */
+    public ScanOptions setAdaptiveParallelism(boolean adaptiveParallelism) {
+        this.adaptiveParallelism = adaptiveParallelism;
+        return this;
+    }
+
+    public ReadOrdering getReadOrdering() {
+        return readOrdering;
+    }
+
+    /**
+     * Selects in which order the files of each device are read; by default in physical order
+     * with a single reader on rotational disks, and unordered elsewhere
+     */
+    public ScanOptions setReadOrdering(ReadOrdering readOrdering) {
+        this.readOrdering = Objects.requireNonNull(readOrdering, "readOrdering");
+        return this;
+    }
+}
@@ -0,0 +1,987 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.DuplicateGroup;
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.model.ScannedFile;
+import com.jesusluna.duplicateremover.service.TaskBatch.HashJob;
+import com.jesusluna.duplicateremover.service.io.PipelineStatistics;
+import com.jesusluna.duplicateremover.service.io.ReadHashPipeline;
+import com.jesusluna.duplicateremover.service.io.StorageDevice;
+import com.jesusluna.duplicateremover.service.io.StorageDevices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Streaming pipeline of a {@link DuplicateFileScanner} scan.
+ * A traversal thread feeds discovered files through a bounded queue to the dispatcher
+ * (the thread calling {@link #run()}), which buckets them by size, sends colliding files to
+ * the partial fingerprint stage and fingerprint collisions to the full hash stage.
+ * Fingerprints and hashes are computed by the workers (see {@link WorkerMode}) while traversal
+ * is still running. The dispatcher is the only thread touching the bucket indexes; the threads
+ * that compute full hashes, or look them up in the hash cache, add the files to the
+ * concurrent hash groups themselves.
+ *
+ * Work reaches the pool in batches of files per task (see {@link TaskBatch}), and the number of
+ * files in flight is bounded: when it is reached the dispatcher only handles results until
+ * there is room. The results of every stage arrive on one completion queue.
+ *
+ * Each device the files live on has its own queue of work and its own limit on concurrent
+ * reads (see {@link DeviceQueue}). The devices take turns for the worker pool, which is the
+ * CPU budget they share. Devices read in physical order (see
+ * {@link com.jesusluna.duplicateremover.service.io.ReadOrdering}) get a single read at a
+ * time, their queue sorted by location.
+ *
+ * Candidate groups of up to {@link ScanOptions#getDirectCompareLimit()} files are held back
+ * instead of hashed, and once traversal and fingerprinting are done, when no group can grow
+ * any more, their files are compared directly (see {@link ContentComparator}).
+ *
+ * Images grouped by their pixels are bucketed by the dimensions read from their headers
+ * instead of their size, and only images sharing their dimensions with another image are
+ * hashed. Their raw content is hashed first, and only one image of each byte-identical class
+ * is decoded; the others share its pixel hash. When similar images are searched for, every
+ * image also gets a perceptual hash, and the images are clustered once all are hashed (see
+ * {@link SimilarImageIndex}).
+ *
+ * A pipeline runs a single scan.
+ */
+class ScanPipeline {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ScanPipeline.class);
+    
+    /**
+     * Capacity of the queue between traversal and the dispatcher; traversal blocks when it is full
+     */
+    private static final int DISCOVERY_QUEUE_CAPACITY = 10_000;
+    
+    /**
+     * Maximum number of discovered files dispatched before results are checked again
+     */
+    private static final int DISPATCH_BATCH_SIZE = 1_000;
+    
+    /**
+     * How long the dispatcher waits for new work before checking again
+     */
+    private static final long POLL_INTERVAL_MS = 10;
+    
+    /**
+     * Files handed to the workers but not yet handled by the dispatcher, per worker thread.
+     * The dispatcher stops taking discovered files above this, so traversal blocks on the full
+     * discovery queue and memory stays flat however many files there are.
+     */
+    private static final int IN_FLIGHT_FILES_PER_THREAD = 256;
+    
+    /**
+     * Result of an image stage for a file that could not be read as an image
+     */
+    private static final HashKey UNREADABLE_IMAGE = HashKey.wrap(new byte[0]);
+    
+    private final Path root;
+    private final ScanOptions options;
+    private final HashCache hashCache;
+    private final ScanStatistics statistics;
+    private final BooleanSupplier cancelled;
+    private final ProgressListener progress;
+    private final ImageHashService imageHashService = new ImageHashService();
+    private final String pixelHashType;
+    private final String fingerprintType;
+    
+    private final BlockingQueue<Candidate> discovered = new ArrayBlockingQueue<>(DISCOVERY_QUEUE_CAPACITY);
+    private final AtomicBoolean traversalDone = new AtomicBoolean();
+    private final AtomicReference<RuntimeException> traversalError = new AtomicReference<>();
+    private final CandidateBucketIndex<Long> sizeIndex = new CandidateBucketIndex<>();
+    private final CandidateBucketIndex<HashKey> fingerprintIndex = new CandidateBucketIndex<>();
+    private final CandidateBucketIndex<HashKey> dimensionIndex = new CandidateBucketIndex<>();
+    private final boolean findSimilarImages;
+    private final SimilarImageIndex similarImages = new SimilarImageIndex();
+    // Small candidate groups held back to be compared rather than hashed, by size or fingerprint
+    private final CompareGroupIndex<Long> sizeComparisons;
+    private final CompareGroupIndex<HashKey> fingerprintComparisons;
+    private final ContentComparator comparator;
+    private final Queue<DuplicateGroup> comparedGroups = new ConcurrentLinkedQueue<>();
+    private final AtomicLong comparedClasses = new AtomicLong();
+    private final HashGroupIndex hashGroups;
+    // Images matched by their pixels, whose bytes may differ, are kept apart from byte-identical files
+    private final HashGroupIndex pixelGroups;
+    // Pixel hash of each image content decoded, or being decoded, by the first worker to reach it
+    private final Map<ImageContent, CompletableFuture<HashKey>> imageKeys = new ConcurrentHashMap<>();
+    // Files that are read further, by file key; a later path to one of them is a hard link
+    private final Map<Object, ScannedFile> identities = new HashMap<>();
+    // Further paths to a file, by the file as first found
+    private final Map<ScannedFile, List<File>> hardLinks = new LinkedHashMap<>();
+    private final boolean adaptive;
+    // Reads each device runs at the same time: pipeline readers if the pipeline does the content
+    // reads, otherwise workers. With virtual threads this, not the thread count, bounds the I/O.
+    // Tuned while scanning when adaptive, so the threads must allow the maximum.
+    private final int initialDeviceReads;
+    private final int maxDeviceReads;
+    private final ExecutorService executor;
+    // Worker tasks running at once across all devices; virtual threads are only bounded per device
+    private final int workerSlots;
+    private final AtomicInteger workerTasksRunning = new AtomicInteger();
+    // Results of every stage, the worker pool's and the read/hash pipeline's, in the order they complete
+    private final BlockingQueue<Future<StageResults>> completions = new LinkedBlockingQueue<>();
+    private final CompletionService<StageResults> taskResults;
+    private final int maxInFlight;
+    
+    private final StorageDevices storageDevices = new StorageDevices();
+    private final Map<StorageDevice, DeviceStages> deviceStages = new HashMap<>();
+    private final List<DeviceStages> devices = new ArrayList<>();
+    private int nextDevice;
+    private long lastTick = -1;
+    
+    // Shared by all workers; it pools its hashers and read buffers
+    private final FileHashService hashService;
+    // Tree-hashes on the calling worker alone, so that a device read in physical order
+    // still has a single read at a time
+    private final FileHashService sequentialHashService;
+    
+    private final ReadHashPipeline readHashPipeline;
+    
+    private long discoveredFiles;
+    private int submitted;
+    private int completed;
+    
+    /**
+     * @param root canonical directory to scan
+     * @param options scan settings
+     * @param workerMode worker mode resolved for this JVM
+     * @param hashCache cache to look hashes up in and store them to, or null
+     * @param statistics receives the counters of each stage
+     * @param cancelled checks if the scan is cancelled
+     * @param progress receives the progress of the dispatcher
+     */
+    ScanPipeline(Path root, ScanOptions options, WorkerMode workerMode, HashCache hashCache, ScanStatistics statistics,
+                 BooleanSupplier cancelled, ProgressListener progress) {
+        this.root = root;
+        this.options = options;
+        this.hashCache = hashCache;
+        this.statistics = statistics;
+        this.cancelled = cancelled;
+        this.progress = progress;
+        this.pixelHashType = ImageHashService.pixelHashType(options.getHashAlgorithm());
+        this.fingerprintType = PartialHashService.fingerprintType(options.getHashAlgorithm());
+        this.findSimilarImages = options.isFindSimilarImages();
+        this.sizeComparisons = new CompareGroupIndex<>(options.getDirectCompareLimit());
+        this.fingerprintComparisons = new CompareGroupIndex<>(options.getDirectCompareLimit());
+        this.comparator = new ContentComparator(options.getReadBlockSize());
+        this.hashGroups = new HashGroupIndex(options.getHashAlgorithm().getName());
+        this.pixelGroups = new HashGroupIndex(pixelHashType);
+        
+        int parallelism = options.getParallelism();
+        // Plain content hashes go through separate reader and hasher threads when enabled;
+        // virtual threads read their files themselves
+        boolean pipelined = options.getReadThreads() > 0 && workerMode == WorkerMode.FIXED_POOL;
+        this.adaptive = options.isAdaptiveParallelism();
+        this.initialDeviceReads = pipelined ? options.getReadThreads() : options.getMaxConcurrentReads();
+        this.maxDeviceReads = adaptive 
+            ? initialDeviceReads * ParallelismController.DEFAULT_RANGE_FACTOR 
+            : initialDeviceReads;
+        int maxWorkerReads = pipelined ? options.getMaxConcurrentReads() : maxDeviceReads;
+        int workerThreads = Math.max(parallelism, maxWorkerReads);
+        this.executor = workerMode.createExecutor(workerThreads, "scan-worker-");
+        this.workerSlots = workerMode == WorkerMode.FIXED_POOL ? workerThreads : Integer.MAX_VALUE;
+        this.taskResults = new ExecutorCompletionService<>(executor, completions);
+        this.maxInFlight = Math.max(DISPATCH_BATCH_SIZE, workerThreads * IN_FLIGHT_FILES_PER_THREAD);
+        this.hashService = new FileHashService(options, executor);
+        this.sequentialHashService = new FileHashService(options);
+        this.readHashPipeline = pipelined
+            ? new ReadHashPipeline(options.getHashAlgorithm(), 
+                                   maxDeviceReads, parallelism, options.getReadBufferCount(), options.getReadBlockSize())
+            : null;
+    }
+    
+    /**
+     * Returns the counters of the read/hash pipeline, or null if it is disabled
+     */
+    PipelineStatistics getPipelineStatistics() {
+        return readHashPipeline != null ? readHashPipeline.getStatistics() : null;
+    }
+    
+    /**
+     * Runs the scan on the calling thread, which becomes the dispatcher
+     *
+     * @return the files grouped by their content hash
+     * @throws InterruptedException if interrupted while waiting for the workers to stop
+     */
+    HashGroupIndex run() throws InterruptedException {
+        Thread traversal = new Thread(this::traverse, "scan-traversal");
+        traversal.setDaemon(true);
+        traversal.start();
+        
+        List<Candidate> batch = new ArrayList<>(DISPATCH_BATCH_SIZE);
+        try {
+            while (!cancelled.getAsBoolean()) {
+                boolean progressed = drainResults();
+                
+                // Read the flag before draining so that no file put before it is missed
+                boolean traversalFinished = traversalDone.get();
+                int room = maxInFlight - (submitted - completed);
+                if (room > 0 && discovered.drainTo(batch, Math.min(DISPATCH_BATCH_SIZE, room)) == 0 
+                        && !progressed && !traversalFinished) {
+                    Candidate candidate = discovered.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    if (candidate != null) {
+                        batch.add(candidate);
+                    }
+                }
+                for (Candidate candidate : batch) {
+                    onDiscovered(candidate);
+                }
+                batch.clear();
+                flushDevices();
+                if (traversalFinished && discovered.isEmpty() && completed == submitted && submitComparisons()) {
+                    flushDevices();
+                }
+                startQueuedWork();
+                
+                if (traversalFinished && discovered.isEmpty() && completed == submitted) {
+                    break;
+                }
+                if ((traversalFinished || room <= 0) && !progressed) {
+                    // Only results can make progress; wait for the next one of any stage instead of spinning
+                    Future<StageResults> next = completions.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        handleResult(next);
+                    }
+                }
+                progress.update(traversalFinished, discoveredFiles, completed, submitted);
+                tickDevices();
+            }
+        } finally {
+            shutdown(traversal);
+        }
+        
+        RuntimeException error = traversalError.get();
+        if (error != null) {
+            throw error;
+        }
+        
+        if (readHashPipeline != null) {
+            logger.info("Read/hash pipeline: {}", readHashPipeline.getStatistics().toSummary());
+        }
+        tickDevices();
+        for (DeviceStages device : devices) {
+            device.queue().logTuning();
+            statistics.recordDeviceThroughput(device.queue().toThroughput());
+        }
+        statistics.recordSizeSkipped(sizeIndex.getUnpromotedFileCount(), sizeIndex.getUnpromotedBytes());
+        statistics.recordPrefilterEliminated(
+            fingerprintIndex.getUnpromotedFileCount(), fingerprintIndex.getUnpromotedBytes());
+        statistics.recordImageDimensionsUnique(dimensionIndex.getUnpromotedFileCount());
+        return hashGroups;
+    }
+    
+    /**
+     * Runs on the traversal thread and pushes every regular file into the bounded queue
+     */
+    private void traverse() {
+        try {
+            DirectoryWalker walker = new DirectoryWalker(options.getParallelism(), options.isIncludeSubfolders());
+            walker.walk(root, (path, attributes) -> {
+                File file = path.toFile();
+                boolean pixelHashed = options.isUseAdvancedImageDetection() && imageHashService.hasSupportedExtension(file);
+                enqueue(new Candidate(ScannedFile.of(file, attributes), pixelHashed));
+            }, cancelled);
+        } catch (RuntimeException e) {
+            traversalError.set(e);
+        } finally {
+            traversalDone.set(true);
+        }
+    }
+    
+    /**
+     * Blocks the calling traversal worker while the queue is full (backpressure),
+     * giving up if the scan is cancelled
+     */
+    private void enqueue(Candidate candidate) {
+        try {
+            while (!discovered.offer(candidate, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                if (cancelled.getAsBoolean()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void onDiscovered(Candidate candidate) {
+        ScannedFile file = candidate.file();
+        discoveredFiles++;
+        statistics.recordDiscovered(1, file.getSize());
+        if (hashCache != null) {
+            hashCache.markPresent(file);
+        }
+        
+        if (file.getSize() == 0) {
+            // All empty files are the same; deleting one frees no data, but they are still reported
+            hashGroups.add(FileHashService.EMPTY_KEY, file);
+            statistics.recordEmptyFile();
+            return;
+        }
+        
+        if (candidate.pixelHashed()) {
+            if (!isHardLink(file, false)) {
+                remember(file);
+                queue(stages(file).headers(), file, null);
+                if (findSimilarImages) {
+                    queue(stages(file).perceptual(), file, null);
+                }
+            }
+            return;
+        }
+        
+        if (isHardLink(file, true)) {
+            return;
+        }
+        // Only files sharing their size with another file can be duplicates
+        for (ScannedFile promoted : sizeIndex.add(file.getSize(), file)) {
+            remember(promoted);
+            if (!PartialHashService.isWorthPrefiltering(promoted.getSize())) {
+                verify(sizeComparisons, promoted.getSize(), promoted);
+                continue;
+            }
+            // Cached files still go through the fingerprint stage, where new files of their size meet them
+            HashKey fingerprint = hashCache != null ? hashCache.getFingerprint(promoted, fingerprintType) : null;
+            if (fingerprint != null) {
+                onFingerprint(HashResult.success(promoted, fingerprint));
+            } else {
+                queue(stages(promoted).fingerprints(), promoted, null);
+                statistics.recordPrefiltered(1, PartialHashService.fingerprintBytes(promoted.getSize()));
+            }
+        }
+    }
+    
+    /**
+     * Checks if a file is another path to a file already found and if so records it as a
+     * hard link of that file, which is then read once for both. A hard link has the size of
+     * its file, so a file alone in its size bucket is compared directly and only the
+     * identities of files read further need to be remembered.
+     *
+     * @param sizeBucketed true if the file goes through the size stage
+     */
+    private boolean isHardLink(ScannedFile file, boolean sizeBucketed) {
+        Object identity = file.getFileKey();
+        if (identity == null) {
+            return false;
+        }
+        ScannedFile original = sizeBucketed ? sizeIndex.getSingleFile(file.getSize()) : null;
+        if (original == null || !identity.equals(original.getFileKey())) {
+            original = identities.get(identity);
+        }
+        if (original == null) {
+            return false;
+        }
+        hardLinks.computeIfAbsent(original, key -> new ArrayList<>()).add(file.getFile());
+        statistics.recordHardLink(1, file.getSize());
+        return true;
+    }
+    
+    private void remember(ScannedFile file) {
+        Object identity = file.getFileKey();
+        if (identity != null) {
+            identities.putIfAbsent(identity, file);
+        }
+    }
+    
+    /**
+     * Returns a group for each file found by several paths, listing the path found first
+     * and then the others
+     */
+    List<DuplicateGroup> getHardLinkGroups() {
+        List<DuplicateGroup> groups = new ArrayList<>(hardLinks.size());
+        hardLinks.forEach((file, links) -> {
+            DuplicateGroup group = new DuplicateGroup(String.valueOf(file.getFileKey()), DuplicateGroup.Kind.HARD_LINK);
+            group.addFile(file.getFile());
+            links.forEach(group::addFile);
+            groups.add(group);
+        });
+        return groups;
+    }
+    
+    private void onFingerprint(HashResult result) {
+        // Only files whose fingerprint collides with another file need a full hash
+        for (ScannedFile promoted : fingerprintIndex.add(result.getHashKey(), result.getScannedFile())) {
+            verify(fingerprintComparisons, result.getHashKey(), promoted);
+        }
+    }
+    
+    private void onImageHeader(HashResult result) {
+        if (UNREADABLE_IMAGE.equals(result.getHashKey())) {
+            // Possibly not an image at all, which the pixel hash falls back to hashing by content
+            submitHash(result.getScannedFile(), pixelHashType, false);
+            return;
+        }
+        // Only images whose dimensions match another image's can have the same pixels
+        for (ScannedFile promoted : dimensionIndex.add(result.getHashKey(), result.getScannedFile())) {
+            submitHash(promoted, pixelHashType, false);
+        }
+    }
+    
+    /**
+     * Runs on a worker: reads the dimensions of an image from its header
+     *
+     * @return their key, or {@link #UNREADABLE_IMAGE} if the header cannot be read
+     */
+    private HashKey readDimensionKey(ScannedFile file) {
+        try {
+            Dimension dimensions = imageHashService.readDimensions(file.getFile());
+            return dimensions != null ? ImageHashService.dimensionKey(dimensions) : UNREADABLE_IMAGE;
+        } catch (IOException e) {
+            logger.debug("Unable to read the header of {}: {}", file.getFile(), e.getMessage());
+            return UNREADABLE_IMAGE;
+        }
+    }
+    
+    private void onPerceptualHash(HashResult result) {
+        if (!UNREADABLE_IMAGE.equals(result.getHashKey())) {
+            similarImages.add(result.getScannedFile(), ByteBuffer.wrap(result.getHashKey().toByteArray()).getLong());
+        }
+    }
+    
+    /**
+     * Runs on a worker: calculates the perceptual hash of an image
+     *
+     * @return the hash as a key, or {@link #UNREADABLE_IMAGE} if the image cannot be decoded
+     */
+    private HashKey readPerceptualKey(ScannedFile file) {
+        try {
+            statistics.recordPerceptualHash();
+            return ImageHashService.perceptualKey(imageHashService.calculatePerceptualHash(file.getFile()));
+        } catch (IOException e) {
+            logger.debug("Unable to decode {} for its perceptual hash: {}", file.getFile(), e.getMessage());
+            return UNREADABLE_IMAGE;
+        }
+    }
+    
+    /**
+     * Returns the groups of images that look alike, if searched for. A file is listed in a
+     * single group: of the files already grouped as exact copies only the original kept from
+     * their group is listed, and a cluster left with one file is not reported.
+     *
+     * @param exactGroups the groups of identical files
+     */
+    List<DuplicateGroup> getSimilarGroups(List<DuplicateGroup> exactGroups) {
+        if (!findSimilarImages) {
+            return List.of();
+        }
+        Set<File> copies = new HashSet<>();
+        for (DuplicateGroup group : exactGroups) {
+            File original = group.getOriginalFile();
+            group.getFiles().stream().filter(file -> !file.equals(original)).forEach(copies::add);
+        }
+        List<DuplicateGroup> groups = new ArrayList<>();
+        for (SimilarImageIndex.Cluster cluster : similarImages.cluster(options.getSimilarImageDistance())) {
+            List<ScannedFile> files = cluster.files().stream()
+                .filter(file -> !copies.contains(file.getFile()))
+                .toList();
+            if (files.size() < 2) {
+                continue;
+            }
+            DuplicateGroup group = new DuplicateGroup(ImageHashService.perceptualKey(cluster.hash()), 
+                ImageHashService.PERCEPTUAL_HASH_NAME, DuplicateGroup.Kind.SIMILAR);
+            files.forEach(group::addFile);
+            groups.add(group);
+        }
+        statistics.recordSimilarGroups(groups.size(), groups.stream().mapToLong(DuplicateGroup::getFileCount).sum());
+        return groups;
+    }
+    
+    /**
+     * Sends a candidate file to be verified against the other files of its group: held back
+     * while the group may still be compared directly, otherwise hashed
+     */
+    private <K> void verify(CompareGroupIndex<K> comparisons, K key, ScannedFile file) {
+        if (comparisons.getLimit() < 2) {
+            submitContentHash(file);
+            return;
+        }
+        boolean comparable = isComparable(file);
+        List<ScannedFile> toHash = comparable ? comparisons.add(key, file) : comparisons.release(key);
+        for (ScannedFile candidate : toHash) {
+            submitContentHash(candidate);
+        }
+        if (!comparable) {
+            submitContentHash(file);
+        }
+    }
+    
+    /**
+     * Checks if a file may be verified by comparison: hashing is preferred for files keyed by
+     * their content, files served by the hash cache, and files of more than one block on a
+     * device read in physical order
+     */
+    private boolean isComparable(ScannedFile file) {
+        return !hashService.isInlineKeyed(file.getSize()) && !isCached(file)
+            && (file.getSize() < options.getReadBlockSize() || !stages(file).queue().isPhysical());
+    }
+    
+    /**
+     * Queues the comparison of every group still held back. Called once every file has been
+     * discovered and every fingerprint computed, when the groups can no longer grow.
+     *
+     * @return true if any work was queued
+     */
+    private boolean submitComparisons() {
+        List<List<ScannedFile>> groups = new ArrayList<>(sizeComparisons.drain());
+        groups.addAll(fingerprintComparisons.drain());
+        for (List<ScannedFile> group : groups) {
+            if (group.size() < 2) {
+                group.forEach(this::submitContentHash);
+                continue;
+            }
+            DeviceQueue device = stages(group.get(0)).queue();
+            device.enqueue(new DeviceQueue.WorkItem(true, device.positionOf(group.get(0)), () -> taskResults.submit(() -> {
+                try {
+                    return new StageResults(compareOnWorker(group, device), null);
+                } finally {
+                    device.finished(true);
+                }
+            })));
+            submitted += group.size();
+        }
+        return !groups.isEmpty();
+    }
+    
+    /**
+     * Runs on a worker: compares the files of a group and adds each class of identical files
+     * as a group of its own. If a file cannot be read the files are hashed instead, which
+     * reports that file and still groups the others.
+     */
+    private List<HashResult> compareOnWorker(List<ScannedFile> group, DeviceQueue device) {
+        if (cancelled.getAsBoolean()) {
+            return List.of();
+        }
+        ContentComparator.Comparison comparison;
+        try {
+            comparison = comparator.compare(group.stream().map(ScannedFile::getFile).toList());
+        } catch (IOException e) {
+            logger.debug("Unable to compare {} files of {} bytes, hashing them instead: {}", 
+                        group.size(), group.get(0).getSize(), e.getMessage());
+            return hashEach(group, device);
+        }
+        device.recordRead(comparison.bytesRead());
+        statistics.recordComparison(group.size(), group.stream().mapToLong(ScannedFile::getSize).sum(), 
+                                    comparison.bytesRead());
+        
+        Map<File, ScannedFile> scannedFiles = new HashMap<>();
+        group.forEach(file -> scannedFiles.put(file.getFile(), file));
+        List<HashResult> results = new ArrayList<>(group.size());
+        for (List<File> identical : comparison.classes()) {
+            HashKey key = ContentComparator.classKey(comparedClasses.incrementAndGet());
+            if (identical.size() > 1) {
+                DuplicateGroup duplicates = new DuplicateGroup(key, ContentComparator.ALGORITHM_NAME);
+                identical.forEach(file -> duplicates.addFile(scannedFiles.get(file)));
+                comparedGroups.add(duplicates);
+            }
+            for (File file : identical) {
+                results.add(HashResult.success(file, key));
+            }
+        }
+        return results;
+    }
+    
+    private List<HashResult> hashEach(List<ScannedFile> group, DeviceQueue device) {
+        List<HashResult> results = new ArrayList<>(group.size());
+        for (ScannedFile file : group) {
+            try {
+                results.add(hashOnWorker(device.getHashService(), 
+                    new HashJob(file, hashService.getContentHashType(file.getSize())), device));
+            } catch (IOException | RuntimeException e) {
+                results.add(HashResult.failure(file, e));
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Returns the groups of images with identical pixels
+     */
+    List<DuplicateGroup> getPixelGroups() {
+        return pixelGroups.getDuplicates();
+    }
+    
+    /**
+     * Returns the groups of identical files found by comparison
+     */
+    List<DuplicateGroup> getComparedGroups() {
+        return List.copyOf(comparedGroups);
+    }
+    
+    private boolean isCached(ScannedFile file) {
+        return hashCache != null && hashCache.contains(file, hashService.getContentHashType(file.getSize()));
+    }
+    
+    /**
+     * Sends a file to the full content hash stage. Tree-hashed files stay on the worker
+     * pool, which hashes their chunks in parallel; others use the read/hash pipeline if enabled.
+     * Files small enough to be keyed by their content are read by the workers and not cached,
+     * since reading them costs no more than a cache lookup.
+     */
+    private void submitContentHash(ScannedFile file) {
+        if (hashService.isInlineKeyed(file.getSize())) {
+            submitHash(file, null, false);
+            return;
+        }
+        boolean treeHashed = hashService.isTreeHashed(file.getSize());
+        submitHash(file, hashService.getContentHashType(file.getSize()), readHashPipeline != null && !treeHashed);
+    }
+    
+    /**
+     * Sends a file to the full hash stage. With a hash cache, the worker that takes the file
+     * looks it up first, so that cache hits are grouped in parallel too. Files for the
+     * read/hash pipeline are looked up here instead: a miss is queued on its device, where it
+     * holds one of the device's reads until the pipeline has hashed it.
+     *
+     * @param pipelined true to hash the raw content on the read/hash pipeline instead of the worker pool
+     */
+    private void submitHash(ScannedFile file, String hashType, boolean pipelined) {
+        DeviceStages stages = stages(file);
+        if (!pipelined) {
+            queue(stages.hashes(), file, hashType);
+            return;
+        }
+        submitted++;
+        HashKey cached = lookUpCache(file, hashType);
+        if (cached != null) {
+            hashGroups.add(cached, file);
+            completions.add(CompletableFuture.completedFuture(
+                new StageResults(List.of(HashResult.success(file, cached)), null)));
+            return;
+        }
+        recordFullHash(file);
+        DeviceQueue device = stages.queue();
+        device.enqueue(new DeviceQueue.WorkItem(false, device.positionOf(file), 
+                                                () -> submitToReadHashPipeline(file, hashType, device)));
+    }
+    
+    /**
+     * Looks a file up in the hash cache, if there is one
+     *
+     * @return the cached hash, or null if the file has to be hashed
+     */
+    private HashKey lookUpCache(ScannedFile file, String hashType) {
+        if (hashCache == null) {
+            return null;
+        }
+        HashKey cached = hashCache.get(file, hashType);
+        if (cached != null) {
+            statistics.recordCacheHit(file.getSize());
+        } else {
+            statistics.recordCacheMiss();
+        }
+        return cached;
+    }
+    
+    /**
+     * Queues a file on a stage of its device, to be sent to the workers with other files
+     */
+    private void queue(TaskBatch batch, ScannedFile file, String hashType) {
+        batch.add(new HashJob(file, hashType));
+        submitted++;
+    }
+    
+    private DeviceStages stages(ScannedFile file) {
+        return deviceStages.computeIfAbsent(storageDevices.deviceOf(file), storage -> {
+            boolean physical = options.getReadOrdering().isPhysical(storage);
+            // Helpers would read other chunks of the same file at the same time
+            DeviceQueue queue = new DeviceQueue(storage, physical, physical ? sequentialHashService : hashService, 
+                                                initialDeviceReads, maxDeviceReads, adaptive, workerTasksRunning, workerSlots);
+            DeviceStages stages = new DeviceStages(queue,
+                new TaskBatch(queue, taskResults, cancelled, this::onFingerprint, this::fingerprintOnWorker),
+                // Only the start of the file is read, so no bytes are counted towards the throughput
+                new TaskBatch(queue, taskResults, cancelled, this::onImageHeader, (hashService, job, device) -> 
+                    HashResult.success(job.file(), read(() -> readDimensionKey(job.file()), 0, device))),
+                new TaskBatch(queue, taskResults, cancelled, this::onPerceptualHash, (hashService, job, device) -> 
+                    HashResult.success(job.file(), read(() -> readPerceptualKey(job.file()), job.file().getSize(), device))),
+                new TaskBatch(queue, taskResults, cancelled, null, this::hashOnWorker));
+            devices.add(stages);
+            return stages;
+        });
+    }
+    
+    /**
+     * Runs on a worker: calculates the partial fingerprint of a file and caches it
+     */
+    private HashResult fingerprintOnWorker(FileHashService hashService, HashJob job, DeviceQueue device) throws IOException {
+        ScannedFile file = job.file();
+        HashKey fingerprint = read(() -> hashService.calculatePartialHash(file.getFile()), 
+                                   PartialHashService.fingerprintBytes(file.getSize()), device);
+        if (hashCache != null) {
+            hashCache.putFingerprint(file, fingerprintType, fingerprint);
+        }
+        return HashResult.success(file, fingerprint);
+    }
+    
+    /**
+     * Runs on a worker: serves the file from the hash cache or hashes it, and adds it to its group
+     */
+    private HashResult hashOnWorker(FileHashService hashService, HashJob job, DeviceQueue device) throws IOException {
+        ScannedFile file = job.file();
+        HashGroupIndex groups = pixelHashType.equals(job.hashType()) ? pixelGroups : hashGroups;
+        if (job.hashType() == null) {
+            statistics.recordInlineKey(1, file.getSize());
+            HashKey key = read(() -> hashService.calculateInlineKey(file.getFile().toPath()), file.getSize(), device);
+            hashGroups.add(key, file);
+            return HashResult.success(file, key);
+        }
+        HashKey cached = lookUpCache(file, job.hashType());
+        if (cached != null) {
+            groups.add(cached, file);
+            return HashResult.success(file, cached);
+        }
+        
+        recordFullHash(file);
+        HashKey hash = groups == pixelGroups
+            ? read(() -> calculateImageKey(hashService, file), file.getSize(), device)
+            : read(() -> hashService.calculateKey(file.getFile()), file.getSize(), device);
+        if (hashCache != null) {
+            hashCache.put(file, job.hashType(), hash);
+        }
+        groups.add(hash, file);
+        return HashResult.success(file, hash);
+    }
+    
+    /**
+     * Runs on a worker: calculates the pixel hash of an image, decoding it only if no image
+     * with the same bytes was decoded before. Hashing the raw content costs a fraction of a
+     * decode and leaves the file in the page cache for the decode if one is needed. A copy
+     * of an image being decoded by another worker waits for its result. The content hash is
+     * cryptographic, since nothing compares the bytes of images that share a decode.
+     */
+    private HashKey calculateImageKey(FileHashService hashService, ScannedFile file) throws IOException {
+        ImageContent content = new ImageContent(file.getSize(), hashService.calculateSecureContentKey(file.getFile()));
+        CompletableFuture<HashKey> decode = new CompletableFuture<>();
+        CompletableFuture<HashKey> earlier = imageKeys.putIfAbsent(content, decode);
+        if (earlier != null) {
+            try {
+                HashKey key = earlier.join();
+                statistics.recordImageDecodeShared();
+                return key;
+            } catch (CompletionException | CancellationException e) {
+                // The image decoded first could not be read; decode this copy itself
+            }
+        }
+        statistics.recordImageDecoded();
+        try {
+            HashKey key = hashService.calculateKey(file.getFile());
+            decode.complete(key);
+            return key;
+        } catch (IOException | RuntimeException e) {
+            decode.completeExceptionally(e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Runs a read on a worker; the task already holds one of the device's reads
+     *
+     * @param bytes number of bytes the read covers, counted towards the device's throughput
+     */
+    private HashKey read(ReadCall call, long bytes, DeviceQueue device) throws IOException {
+        HashKey hash = call.read();
+        device.recordRead(bytes);
+        return hash;
+    }
+    
+    private void flushDevices() {
+        for (DeviceStages device : devices) {
+            device.flush();
+        }
+    }
+    
+    /**
+     * Starts queued work on every device with a free read, the devices taking turns so that
+     * none of them can take all the workers while others wait
+     */
+    private void startQueuedWork() {
+        int count = devices.size();
+        boolean started;
+        do {
+            started = false;
+            for (int i = 0; i < count; i++) {
+                started |= devices.get((nextDevice + i) % count).queue().startNext();
+            }
+        } while (started);
+        if (count > 0) {
+            nextDevice = (nextDevice + 1) % count;
+        }
+    }
+    
+    /**
+     * Accounts the time since the last call to the devices that were reading, and lets the
+     * parallelism controllers measure
+     */
+    private void tickDevices() {
+        long now = System.nanoTime();
+        for (DeviceStages device : devices) {
+            device.queue().tick(lastTick < 0 ? 0 : now - lastTick);
+        }
+        lastTick = now;
+    }
+    
+    private void recordFullHash(ScannedFile file) {
+        statistics.recordFullHash(1, file.getSize());
+        if (hashService.isTreeHashed(file.getSize())) {
+            statistics.recordTreeHash(TreeHashService.chunkCount(file.getSize(), options.getTreeHashChunkSize()));
+        }
+    }
+    
+    /**
+     * Hashes a file on the read/hash pipeline. The hasher thread groups it; the result joins
+     * the worker pool's results so the dispatcher accounts for both the same way.
+     * Started from the device's queue, the file holds one of the device's reads until it is
+     * hashed; the caller has already counted it as submitted.
+     */
+    private void submitToReadHashPipeline(ScannedFile file, String hashType, DeviceQueue device) {
+        readHashPipeline.submit(file.getFile().toPath()).whenComplete((hash, error) -> {
+            device.finished(false);
+            HashResult result;
+            if (error == null) {
+                device.recordRead(file.getSize());
+                if (hashCache != null) {
+                    hashCache.put(file, hashType, hash);
+                }
+                hashGroups.add(hash, file);
+                result = HashResult.success(file, hash);
+            } else {
+                result = HashResult.failure(file, error instanceof Exception e ? e : new ExecutionException(error));
+            }
+            completions.add(CompletableFuture.completedFuture(new StageResults(List.of(result), null)));
+        });
+    }
+    
+    /**
+     * Handles every result that is already available without blocking
+     *
+     * @return true if at least one result was handled
+     */
+    private boolean drainResults() {
+        boolean handled = false;
+        Future<StageResults> future;
+        while ((future = completions.poll()) != null) {
+            handleResult(future);
+            handled = true;
+        }
+        return handled;
+    }
+    
+    private void handleResult(Future<StageResults> future) {
+        try {
+            StageResults stageResults = future.get();
+            completed += stageResults.results().size();
+            for (HashResult result : stageResults.results()) {
+                if (!result.isSuccess()) {
+                    logger.warn("Error calculating hash for file: {}", 
+                               result.getFile().getAbsolutePath(), result.getError());
+                } else if (stageResults.handler() != null) {
+                    stageResults.handler().accept(result);
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Hash calculation interrupted", e);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Error processing hash result", e);
+        }
+    }
+    
+    private void shutdown(Thread traversal) throws InterruptedException {
+        if (readHashPipeline != null) {
+            readHashPipeline.close();
+        }
+        if (cancelled.getAsBoolean()) {
+            executor.shutdownNow();
+        } else {
+            // Shutdown executor gracefully
+            executor.shutdown();
+        }
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        // Traversal stops on its own once cancellation is observed
+        traversal.join(TimeUnit.SECONDS.toMillis(5));
+    }
+    
+    /**
+     * A file discovered by traversal, with the metadata read from its attributes
+     *
+     * @param pixelHashed true if the file is an image grouped by pixel content, which
+     *                    can match images of a different byte size and so goes through the
+     *                    dimension stage instead of the size stage
+     */
+    private record Candidate(ScannedFile file, boolean pixelHashed) {
+    }
+    
+    /**
+     * Identifies the raw content of an image, so that byte-identical images are decoded once
+     */
+    private record ImageContent(long size, HashKey hash) {
+    }
+    
+    /**
+     * The queue of a device and the files collected for each of its stages
+     */
+    private record DeviceStages(DeviceQueue queue, TaskBatch fingerprints, TaskBatch headers, 
+                                TaskBatch perceptual, TaskBatch hashes) {
+        
+        void flush() {
+            fingerprints.flush();
+            headers.flush();
+            perceptual.flush();
+            hashes.flush();
+        }
+    }
+    
+    /**
+     * Results of a worker task, or of a file hashed on the read/hash pipeline
+     *
+     * @param handler handles each successful result on the dispatcher, as the stage that produced them requires;
+     *                null for full hashes and comparisons, whose files the thread that computed them has
+     *                already added to their groups
+     */
+    record StageResults(List<HashResult> results, Consumer<HashResult> handler) {
+    }
+    
+    /**
+     * Reads and hashes (part of) a file
+     */
+    @FunctionalInterface
+    private interface ReadCall {
+        HashKey read() throws IOException;
+    }
+    
+    /**
+     * Receives the progress of the dispatcher. While traversal is running the number of
+     * files is unknown, so only the files discovered and processed so far are reported.
+     */
+    @FunctionalInterface
+    interface ProgressListener {
+        
+        /**
+         * @param traversalFinished true once every file has been discovered
+         * @param discoveredFiles files discovered so far
+         * @param processed files whose results the dispatcher has handled
+         * @param submitted files sent to the workers
+         */
+        void update(boolean traversalFinished, long discoveredFiles, int processed, int submitted);
+    }
+}
@@ -0,0 +1,403 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.util.FileUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Counters describing how much work each stage of a scan performed or avoided.
+ * Thread-safe: counters may be updated from worker threads while the scan is running.
+ */
+public class ScanStatistics {
+
+    private final AtomicLong filesDiscovered = new AtomicLong();
+    private final AtomicLong bytesDiscovered = new AtomicLong();
+    private final AtomicLong hardLinkFiles = new AtomicLong();
+    private final AtomicLong hardLinkBytes = new AtomicLong();
+    private final AtomicLong emptyFiles = new AtomicLong();
+    private final AtomicLong inlineKeyFiles = new AtomicLong();
+    private final AtomicLong inlineKeyBytes = new AtomicLong();
+    private final AtomicLong sizeSkippedFiles = new AtomicLong();
+    private final AtomicLong sizeSkippedBytes = new AtomicLong();
+    private final AtomicLong prefilterFiles = new AtomicLong();
+    private final AtomicLong prefilterBytesRead = new AtomicLong();
+    private final AtomicLong prefilterEliminatedFiles = new AtomicLong();
+    private final AtomicLong prefilterEliminatedBytes = new AtomicLong();
+    private final AtomicLong fullHashFiles = new AtomicLong();
+    private final AtomicLong fullHashBytes = new AtomicLong();
+    private final AtomicLong comparedGroups = new AtomicLong();
+    private final AtomicLong comparedFiles = new AtomicLong();
+    private final AtomicLong comparedBytes = new AtomicLong();
+    private final AtomicLong compareBytesRead = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheHitBytes = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong treeHashFiles = new AtomicLong();
+    private final AtomicLong treeHashChunks = new AtomicLong();
+    private final AtomicLong imagesDecoded = new AtomicLong();
+    private final AtomicLong imageDecodesShared = new AtomicLong();
+    private final AtomicLong imageDimensionsUnique = new AtomicLong();
+    private final AtomicLong perceptualHashes = new AtomicLong();
+    private final AtomicLong similarGroups = new AtomicLong();
+    private final AtomicLong similarFiles = new AtomicLong();
+    private final List<DeviceThroughput> devices = new CopyOnWriteArrayList<>();
+
+    /**
+     * Records files found during directory traversal
+     */
+    public void recordDiscovered(long files, long bytes) {
+        filesDiscovered.addAndGet(files);
+        bytesDiscovered.addAndGet(bytes);
+    }
+
+    /**
+     * Records paths to a file already found under another path (hard links), which are not read again
+     */
+    public void recordHardLink(long files, long bytes) {
+        hardLinkFiles.addAndGet(files);
+        hardLinkBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Records an empty file, grouped without being read
+     */
+    public void recordEmptyFile() {
+        emptyFiles.incrementAndGet();
+    }
+
+    /**
+     * Records small files keyed by their content instead of a hash
+     */
+    public void recordInlineKey(long files, long bytes) {
+        inlineKeyFiles.addAndGet(files);
+        inlineKeyBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Records files that were never hashed because their size is unique
+     */
+    public void recordSizeSkipped(long files, long bytes) {
+        sizeSkippedFiles.addAndGet(files);
+        sizeSkippedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Records files that went through the partial fingerprint stage
+     *
+     * @param files number of files fingerprinted
+     * @param bytesRead bytes actually read to build the fingerprints
+     */
+    public void recordPrefiltered(long files, long bytesRead) {
+        prefilterFiles.addAndGet(files);
+        prefilterBytesRead.addAndGet(bytesRead);
+    }
+
+    /**
+     * Records files ruled out by the partial fingerprint stage
+     *
+     * @param files number of files whose fingerprint was unique
+     * @param bytes total size of those files, which never needed a full read
+     */
+    public void recordPrefilterEliminated(long files, long bytes) {
+        prefilterEliminatedFiles.addAndGet(files);
+        prefilterEliminatedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Records files that were hashed in full
+     */
+    public void recordFullHash(long files, long bytes) {
+        fullHashFiles.addAndGet(files);
+        fullHashBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Records a group verified by comparing its files directly instead of hashing them
+     *
+     * @param files number of files compared
+     * @param bytes total size of those files
+     * @param bytesRead bytes actually read before every file was told apart or found identical
+     */
+    public void recordComparison(long files, long bytes, long bytesRead) {
+        comparedGroups.incrementAndGet();
+        comparedFiles.addAndGet(files);
+        comparedBytes.addAndGet(bytes);
+        compareBytesRead.addAndGet(bytesRead);
+    }
+
+    /**
+     * Records a file whose hash was served by the persistent hash cache
+     *
+     * @param bytes size of the file, which did not need to be read
+     */
+    public void recordCacheHit(long bytes) {
+        cacheHits.incrementAndGet();
+        cacheHitBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Records a file that had to be hashed because the cache had no valid entry
+     */
+    public void recordCacheMiss() {
+        cacheMisses.incrementAndGet();
+    }
+
+    /**
+     * Records a full hash that was split into chunks hashed in parallel
+     *
+     * @param chunks number of chunks the file was split into
+     */
+    public void recordTreeHash(long chunks) {
+        treeHashFiles.incrementAndGet();
+        treeHashChunks.addAndGet(chunks);
+    }
+
+    /**
+     * Records an image decoded to hash its pixels
+     */
+    public void recordImageDecoded() {
+        imagesDecoded.incrementAndGet();
+    }
+
+    /**
+     * Records an image that was not decoded because it is byte for byte identical to an image
+     * that was, whose pixel hash it shares
+     */
+    public void recordImageDecodeShared() {
+        imageDecodesShared.incrementAndGet();
+    }
+
+    /**
+     * Records images that were not decoded because no other image has their dimensions
+     */
+    public void recordImageDimensionsUnique(long files) {
+        imageDimensionsUnique.addAndGet(files);
+    }
+
+    /**
+     * Records an image decoded to calculate its perceptual hash
+     */
+    public void recordPerceptualHash() {
+        perceptualHashes.incrementAndGet();
+    }
+
+    /**
+     * Records the groups of similar images found
+     *
+     * @param groups number of groups
+     * @param files number of files in them
+     */
+    public void recordSimilarGroups(long groups, long files) {
+        similarGroups.addAndGet(groups);
+        similarFiles.addAndGet(files);
+    }
+
+    /**
+     * Records what was read from one device over the scan
+     */
+    public void recordDeviceThroughput(DeviceThroughput throughput) {
+        devices.add(throughput);
+    }
+
+    /**
+     * Returns the throughput of each device read during the scan
+     */
+    public List<DeviceThroughput> getDeviceThroughput() {
+        return List.copyOf(devices);
+    }
+
+    public long getFilesDiscovered() {
+        return filesDiscovered.get();
+    }
+
+    public long getBytesDiscovered() {
+        return bytesDiscovered.get();
+    }
+
+    public long getHardLinkFiles() {
+        return hardLinkFiles.get();
+    }
+
+    public long getHardLinkBytes() {
+        return hardLinkBytes.get();
+    }
+
+    public long getEmptyFiles() {
+        return emptyFiles.get();
+    }
+
+    public long getInlineKeyFiles() {
+        return inlineKeyFiles.get();
+    }
+
+    public long getInlineKeyBytes() {
+        return inlineKeyBytes.get();
+    }
+
+    public long getSizeSkippedFiles() {
+        return sizeSkippedFiles.get();
+    }
+
+    public long getSizeSkippedBytes() {
+        return sizeSkippedBytes.get();
+    }
+
+    public long getPrefilterFiles() {
+        return prefilterFiles.get();
+    }
+
+    public long getPrefilterBytesRead() {
+        return prefilterBytesRead.get();
+    }
+
+    public long getPrefilterEliminatedFiles() {
+        return prefilterEliminatedFiles.get();
+    }
+
+    public long getPrefilterEliminatedBytes() {
+        return prefilterEliminatedBytes.get();
+    }
+
+    public long getFullHashFiles() {
+        return fullHashFiles.get();
+    }
+
+    public long getFullHashBytes() {
+        return fullHashBytes.get();
+    }
+
+    public long getComparedGroups() {
+        return comparedGroups.get();
+    }
+
+    public long getComparedFiles() {
+        return comparedFiles.get();
+    }
+
+    public long getComparedBytes() {
+        return comparedBytes.get();
+    }
+
+    public long getCompareBytesRead() {
+        return compareBytesRead.get();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCacheHitBytes() {
+        return cacheHitBytes.get();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    public long getTreeHashFiles() {
+        return treeHashFiles.get();
+    }
+
+    public long getTreeHashChunks() {
+        return treeHashChunks.get();
+    }
+
+    public long getImagesDecoded() {
+        return imagesDecoded.get();
+    }
+
+    public long getImageDecodesShared() {
+        return imageDecodesShared.get();
+    }
+
+    public long getImageDimensionsUnique() {
+        return imageDimensionsUnique.get();
+    }
+
+    public long getPerceptualHashes() {
+        return perceptualHashes.get();
+    }
+
+    public long getSimilarGroups() {
+        return similarGroups.get();
+    }
+
+    public long getSimilarFiles() {
+        return similarFiles.get();
+    }
+
+    /**
+     * Returns the number of images grouped by their pixels without being decoded
+     */
+    public long getImageDecodesAvoided() {
+        return getImageDimensionsUnique() + getImageDecodesShared();
+    }
+
+    /**
+     * Builds a one-line, human-readable summary of the scan stages
+     */
+    public String toSummary() {
+        return String.format("discovered %d files (%s), %d of them hard links to files already seen (%s); "
+                + "%d empty files grouped without reading; size stage skipped %d files (%s); "
+                + "prefilter read %s of %d files and ruled out %d files (%s); "
+                + "%d small files keyed by content (%s); "
+                + "byte comparison verified %d files (%s) in %d groups reading %s; "
+                + "hash cache served %d files (%s), missed %d; full hash read %d files (%s), "
+                + "%d of them tree-hashed in %d chunks; "
+                + "%d images decoded, %d decodes avoided (%d images of unique dimensions, "
+                + "%d identical to a decoded image); "
+                + "%d images hashed perceptually, %d groups of similar images (%d files)",
+            getFilesDiscovered(), FileUtils.formatFileSize(getBytesDiscovered()),
+            getHardLinkFiles(), FileUtils.formatFileSize(getHardLinkBytes()), getEmptyFiles(),
+            getSizeSkippedFiles(), FileUtils.formatFileSize(getSizeSkippedBytes()),
+            FileUtils.formatFileSize(getPrefilterBytesRead()), getPrefilterFiles(),
+            getPrefilterEliminatedFiles(), FileUtils.formatFileSize(getPrefilterEliminatedBytes()),
+            getInlineKeyFiles(), FileUtils.formatFileSize(getInlineKeyBytes()),
+            getComparedFiles(), FileUtils.formatFileSize(getComparedBytes()), getComparedGroups(),
+            FileUtils.formatFileSize(getCompareBytesRead()),
+            getCacheHits(), FileUtils.formatFileSize(getCacheHitBytes()), getCacheMisses(),
+            getFullHashFiles(), FileUtils.formatFileSize(getFullHashBytes()),
+            getTreeHashFiles(), getTreeHashChunks(),
+            getImagesDecoded(), getImageDecodesAvoided(), getImageDimensionsUnique(), getImageDecodesShared(),
+            getPerceptualHashes(), getSimilarGroups(), getSimilarFiles())
+            + (devices.isEmpty() ? "" : devices.stream()
+                .map(DeviceThroughput::toSummary)
+                .collect(Collectors.joining("; ", "; read from " + devices.size() + " device(s): ", "")));
+    }
+
+    /**
+     * Reads performed on one device
+     *
+     * @param device name of the device
+     * @param reads files read from it, counting a fingerprint and a full hash of the same file as two reads
+     * @param bytes bytes read from it
+     * @param busyNanos time during which at least one read on it was in progress
+     * @param concurrentReads most concurrent reads allowed on it during the scan
+     */
+    public record DeviceThroughput(String device, long reads, long bytes, long busyNanos, int concurrentReads) {
+
+        /**
+         * Returns the bytes read per second of busy time
+         */
+        public double getBytesPerSecond() {
+            return busyNanos > 0 ? bytes * 1e9 / busyNanos : 0;
+        }
+
+        /**
+         * Returns the reads completed per second of busy time
+         */
+        public double getReadsPerSecond() {
+            return busyNanos > 0 ? reads * 1e9 / busyNanos : 0;
+        }
+
+        String toSummary() {
+            return String.format("%s: %d reads (%s) in %d ms, %s/s and %.0f reads/s with up to %d concurrent reads",
+                device, reads, FileUtils.formatFileSize(bytes), TimeUnit.NANOSECONDS.toMillis(busyNanos),
+                FileUtils.formatFileSize((long) getBytesPerSecond()), getReadsPerSecond(), concurrentReads);
+        }
+    }
+}
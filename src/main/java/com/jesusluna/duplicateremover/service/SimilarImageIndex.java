@@ -0,0 +1,92 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.ScannedFile;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Groups images whose perceptual hashes (see {@link ImageHashService#perceptualHash}) are
+ * within a Hamming distance of each other. Neighbours are found with a {@link HammingIndex}, so
+ * clustering does not compare every image with every other one.
+ *
+ * Clusters are built around leaders: images are taken in path order, and each image not yet
+ * in a cluster starts one with every image within the distance of it that is not in one yet.
+ * Every member is thus close to its leader, and images that differ more are never chained
+ * together through images in between.
+ *
+ * Not thread-safe: intended to be fed by a single dispatcher thread.
+ */
+public class SimilarImageIndex {
+
+    /**
+     * Default largest distance between similar images, which allows for resizing and recompression
+     */
+    public static final int DEFAULT_MAX_DISTANCE = 10;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Adds an image with its perceptual hash
+     */
+    public void add(ScannedFile file, long hash) {
+        entries.add(new Entry(file, hash));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds the clusters of similar images among all images added
+     *
+     * @param maxDistance largest number of bits in which the hash of a member may differ from its leader's
+     * @return the clusters of at least two images, each listing its leader first and then the others by path
+     */
+    public List<Cluster> cluster(int maxDistance) {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(entry -> entry.file().getFile()));
+        HammingIndex<Integer> index = new HammingIndex<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            index.add(sorted.get(i).hash(), i);
+        }
+
+        boolean[] clustered = new boolean[sorted.size()];
+        List<Cluster> clusters = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            if (clustered[i]) {
+                continue;
+            }
+            clustered[i] = true;
+            List<Integer> members = new ArrayList<>();
+            for (int neighbour : index.search(sorted.get(i).hash(), maxDistance)) {
+                if (!clustered[neighbour]) {
+                    clustered[neighbour] = true;
+                    members.add(neighbour);
+                }
+            }
+            if (members.isEmpty()) {
+                continue;
+            }
+            members.sort(null);
+            List<ScannedFile> files = new ArrayList<>(members.size() + 1);
+            files.add(sorted.get(i).file());
+            members.forEach(member -> files.add(sorted.get(member).file()));
+            clusters.add(new Cluster(sorted.get(i).hash(), files));
+        }
+        return clusters;
+    }
+
+    /**
+     * Images that look alike
+     *
+     * @param hash perceptual hash of the leader
+     * @param files the leader followed by the other members
+     */
+    public record Cluster(long hash, List<ScannedFile> files) {
+    }
+
+    private record Entry(ScannedFile file, long hash) {
+    }
+}
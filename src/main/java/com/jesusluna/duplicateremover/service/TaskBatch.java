@@ -0,0 +1,141 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.ScannedFile;
+import com.jesusluna.duplicateremover.service.io.ReadPosition;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Files collected by the dispatcher for one stage of one device, queued on the device as
+ * worker tasks of several files each. Not thread-safe: intended to be fed by the dispatcher.
+ */
+class TaskBatch {
+
+    /**
+     * Maximum number of files hashed by a single worker task
+     */
+    private static final int MAX_TASK_FILES = 32;
+
+    /**
+     * A worker task takes no more files once it holds this many bytes, so large files are not
+     * serialized behind each other on one worker
+     */
+    private static final long MAX_TASK_BYTES = 8L * 1024 * 1024; // 8MB
+
+    private final DeviceQueue device;
+    private final CompletionService<ScanPipeline.StageResults> results;
+    private final BooleanSupplier cancelled;
+    private final Consumer<HashResult> handler;
+    private final HashFunction hashFunction;
+    private final List<HashJob> jobs = new ArrayList<>();
+
+    /**
+     * @param device queue of the device the files live on
+     * @param results service running the tasks on the worker pool
+     * @param cancelled checks if the scan is cancelled, after which the tasks take no more files
+     * @param handler handles each result of the stage on the dispatcher, or null if the worker groups them
+     * @param hashFunction processes each file on the worker
+     */
+    TaskBatch(DeviceQueue device, CompletionService<ScanPipeline.StageResults> results, BooleanSupplier cancelled,
+              Consumer<HashResult> handler, HashFunction hashFunction) {
+        this.device = device;
+        this.results = results;
+        this.cancelled = cancelled;
+        this.handler = handler;
+        this.hashFunction = hashFunction;
+    }
+
+    void add(HashJob job) {
+        jobs.add(job);
+        if (jobs.size() >= MAX_TASK_FILES * device.getLimit()) {
+            flush();
+        }
+    }
+
+    /**
+     * Queues the collected files. They are split into at least one task per read the device
+     * allows when there are few of them, so that a short batch does not leave workers idle.
+     */
+    void flush() {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        if (device.isPhysical()) {
+            jobs.sort(Comparator.comparing(job -> ReadPosition.of(job.file())));
+        }
+        int filesPerTask = Math.min(MAX_TASK_FILES, Math.max(1, jobs.size() / device.getLimit()));
+        List<HashJob> task = new ArrayList<>(filesPerTask);
+        long bytes = 0;
+        for (HashJob job : jobs) {
+            task.add(job);
+            bytes += job.file().getSize();
+            if (task.size() >= filesPerTask || bytes >= MAX_TASK_BYTES) {
+                submit(task);
+                task = new ArrayList<>(filesPerTask);
+                bytes = 0;
+            }
+        }
+        if (!task.isEmpty()) {
+            submit(task);
+        }
+        jobs.clear();
+    }
+
+    private void submit(List<HashJob> task) {
+        device.enqueue(new DeviceQueue.WorkItem(true, device.positionOf(task.get(0).file()), () -> results.submit(() -> {
+            try {
+                return new ScanPipeline.StageResults(run(task), handler);
+            } finally {
+                device.finished(true);
+            }
+        })));
+    }
+
+    private List<HashResult> run(List<HashJob> task) {
+        List<HashResult> taskResults = new ArrayList<>(task.size());
+        for (int i = 0; i < task.size() && !cancelled.getAsBoolean(); i++) {
+            HashJob job = task.get(i);
+            try {
+                taskResults.add(hashFunction.apply(device.getHashService(), job, device));
+            } catch (Exception e) {
+                taskResults.add(HashResult.failure(job.file(), e));
+            } catch (Error e) {
+                // Reported as a failure of every remaining file rather than of the task,
+                // so the dispatcher still accounts for all of them
+                for (HashJob failed : task.subList(i, task.size())) {
+                    taskResults.add(HashResult.failure(failed.file(), new ExecutionException(e)));
+                }
+                break;
+            }
+        }
+        return taskResults;
+    }
+
+    /**
+     * A file waiting for a worker
+     *
+     * @param hashType type under which the hash is cached; null for fingerprints and for files keyed
+     *                 by their content, which are not cached
+     */
+    record HashJob(ScannedFile file, String hashType) {
+    }
+
+    /**
+     * Processes a file using the worker thread's hash service
+     */
+    @FunctionalInterface
+    interface HashFunction {
+
+        /**
+         * @param device queue of the device the file lives on, whose read the task holds
+         */
+        HashResult apply(FileHashService hashService, HashJob job, DeviceQueue device) throws IOException;
+    }
+}
@@ -0,0 +1,224 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithm;
+import com.jesusluna.duplicateremover.service.hash.Hasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Service for hashing very large files in parallel.
+ * The file is split into fixed-size chunks that are hashed independently; the identity of
+ * the file is the hash of its length, the chunk size and the chunk digests in order.
+ * The result only depends on the content, the algorithm and the chunk size, never on how
+ * many threads took part, so it is stable across runs.
+ *
+ * Chunks are hashed on the scan's own pool without risk of deadlock: the calling worker
+ * hashes chunks itself and only invites idle workers to help. A helper that starts after
+ * every chunk has been claimed returns immediately, and the caller only ever waits for
+ * chunks that a running helper is already hashing.
+ */
+public class TreeHashService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TreeHashService.class);
+
+    /**
+     * Default size of the files that are tree-hashed
+     */
+    public static final long DEFAULT_THRESHOLD = 1024L * 1024 * 1024; // 1GB
+
+    /**
+     * Default size of each independently hashed chunk
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024; // 64MB
+
+    private final int chunkSize;
+    private final Executor executor;
+    private final int maxHelpers;
+    private final ResourcePool<Hasher> hashers;
+    private final ResourcePool<ByteBuffer> buffers;
+
+    /**
+     * @param hashAlgorithm algorithm for the chunk digests and the root digest
+     * @param chunkSize size of each chunk in bytes
+     * @param readBlockSize size of each read within a chunk
+     * @param executor pool on which helpers run, or null to hash every chunk on the calling thread
+     * @param maxHelpers maximum number of helper tasks per file
+     */
+    public TreeHashService(HashAlgorithm hashAlgorithm, int chunkSize, int readBlockSize,
+                           Executor executor, int maxHelpers) {
+        this.chunkSize = chunkSize;
+        this.executor = executor;
+        this.maxHelpers = executor != null ? Math.max(0, maxHelpers) : 0;
+        this.hashers = new ResourcePool<>(hashAlgorithm::newHasher);
+        this.buffers = new ResourcePool<>(() -> ByteBuffer.allocateDirect(Math.min(readBlockSize, chunkSize)));
+    }
+
+    /**
+     * Identifies tree hashes computed with the given algorithm and chunk size, e.g. in the {@link HashCache}
+     */
+    public static String treeHashType(HashAlgorithm hashAlgorithm, int chunkSize) {
+        return "tree-" + chunkSize + "-" + hashAlgorithm.getName();
+    }
+
+    /**
+     * Returns the number of chunks a file of the given size is split into
+     */
+    public static long chunkCount(long size, int chunkSize) {
+        return Math.max(1, (size + chunkSize - 1) / chunkSize);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Calculates the tree hash of a file
+     *
+     * @param file the file to hash
+     * @return the root digest
+     * @throws IOException if the file cannot be read, or changes size while being read
+     */
+    public HashKey calculateKey(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunks = chunkCount(size, chunkSize);
+            if (chunks > Integer.MAX_VALUE) {
+                throw new IOException("File too large for tree hashing: " + file);
+            }
+
+            ChunkJob job = new ChunkJob(channel, size, (int) chunks);
+            int helpers = (int) Math.min(maxHelpers, chunks - 1);
+            for (int i = 0; i < helpers; i++) {
+                try {
+                    executor.execute(job::hashChunks);
+                } catch (RejectedExecutionException e) {
+                    // Pool is shutting down; the caller hashes the remaining chunks alone
+                    break;
+                }
+            }
+            job.hashChunks();
+            job.await();
+
+            Hasher root = hashers.acquire();
+            HashKey hash;
+            try {
+                root.reset();
+                updateLong(root, size);
+                updateLong(root, chunkSize);
+                for (byte[] digest : job.digests) {
+                    root.update(digest);
+                }
+                hash = HashKey.wrap(root.digest());
+            } finally {
+                hashers.release(root);
+            }
+            logger.debug("Tree hash of {} ({} chunks) calculated: {}", file, chunks, hash);
+            return hash;
+        }
+    }
+
+    private static void updateLong(Hasher hasher, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            hasher.update((byte) (value >>> shift));
+        }
+    }
+
+    /**
+     * Chunks of one file, claimed one at a time by the caller and its helpers
+     */
+    private final class ChunkJob {
+
+        private final FileChannel channel;
+        private final long size;
+        private final byte[][] digests;
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        private final CountDownLatch remaining;
+        private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+        ChunkJob(FileChannel channel, long size, int chunks) {
+            this.channel = channel;
+            this.size = size;
+            this.digests = new byte[chunks][];
+            this.remaining = new CountDownLatch(chunks);
+        }
+
+        /**
+         * Claims and hashes chunks until none are left
+         */
+        void hashChunks() {
+            if (nextChunk.get() >= digests.length) {
+                // Started after every chunk was claimed
+                return;
+            }
+            Hasher hasher = hashers.acquire();
+            ByteBuffer buffer = buffers.acquire();
+            try {
+                int chunk;
+                while ((chunk = nextChunk.getAndIncrement()) < digests.length) {
+                    try {
+                        if (failure.get() == null) {
+                            digests[chunk] = hashChunk(chunk, hasher, buffer);
+                        }
+                    } catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, new IOException(e));
+                    } finally {
+                        remaining.countDown();
+                    }
+                }
+            } finally {
+                buffers.release(buffer);
+                hashers.release(hasher);
+            }
+        }
+
+        private byte[] hashChunk(int chunk, Hasher hasher, ByteBuffer buffer) throws IOException {
+            hasher.reset();
+
+            long position = (long) chunk * chunkSize;
+            long end = Math.min(size, position + chunkSize);
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("File shrank while being read");
+                }
+                buffer.flip();
+                hasher.update(buffer);
+                position += read;
+            }
+            return hasher.digest();
+        }
+
+        /**
+         * Waits for the chunks still being hashed by helpers
+         */
+        void await() throws IOException {
+            try {
+                remaining.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for chunk hashes");
+            }
+            IOException error = failure.get();
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+}
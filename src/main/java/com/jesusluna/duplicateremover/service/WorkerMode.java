@@ -0,0 +1,110 @@
+package com.jesusluna.duplicateremover.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How the scan runs its fingerprint and hash tasks
+ */
+public enum WorkerMode {
+
+    /**
+     * A fixed pool of {@link ScanOptions#getParallelism()} platform threads. Concurrent reads
+     * are bounded by the pool size, which suits local SSDs and CPU-bound hashing.
+     */
+    FIXED_POOL,
+
+    /**
+     * One virtual thread per task (Java 21 or later). Many more reads can be waiting on the
+     * storage at once, bounded by {@link ScanOptions#getMaxConcurrentReads()}, without a
+     * platform thread for each; this suits high-latency storage such as network shares.
+     * On older runtimes the scan falls back to {@link #FIXED_POOL}.
+     */
+    VIRTUAL_THREADS;
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerMode.class);
+
+    /**
+     * Default cap on concurrent reads in {@link #VIRTUAL_THREADS} mode
+     */
+    public static final int DEFAULT_VIRTUAL_READS = 64;
+
+    // Looked up reflectively so the application still builds and runs on Java 17
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builder.getMethod("name", String.class, long.class);
+            builderFactory = builder.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            // Java 19 and 20 only have virtual threads as a preview feature; this throws there unless enabled
+            ofVirtual.invoke(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    /**
+     * Checks if the running JVM supports this mode
+     */
+    public boolean isSupported() {
+        return this == FIXED_POOL || OF_VIRTUAL != null;
+    }
+
+    /**
+     * Returns the mode actually used on this JVM: this mode if supported, otherwise {@link #FIXED_POOL}
+     */
+    public WorkerMode resolve() {
+        if (isSupported()) {
+            return this;
+        }
+        logger.warn("{} requires Java 21 or later (running {}); using {}",
+                    this, Runtime.version(), FIXED_POOL);
+        return FIXED_POOL;
+    }
+
+    /**
+     * Creates the executor for the scan's tasks
+     *
+     * @param parallelism number of threads of a fixed pool
+     * @param namePrefix prefix of the thread names
+     * @throws UnsupportedOperationException if the mode is not supported on this JVM
+     */
+    public ExecutorService createExecutor(int parallelism, String namePrefix) {
+        if (this == FIXED_POOL) {
+            // Numbered from 0 like the virtual threads
+            AtomicLong threadNumber = new AtomicLong();
+            return Executors.newFixedThreadPool(parallelism, 
+                task -> new Thread(task, namePrefix + threadNumber.getAndIncrement()));
+        }
+        if (!isSupported()) {
+            throw new UnsupportedOperationException(this + " requires Java 21 or later");
+        }
+        try {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Unable to create virtual thread executor", e);
+        }
+    }
+}
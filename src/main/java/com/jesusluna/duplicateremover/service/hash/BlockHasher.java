@@ -0,0 +1,151 @@
+package com.jesusluna.duplicateremover.service.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Base class for hashers that consume their input in fixed-size blocks.
+ * Buffers partial blocks across updates so subclasses only see whole blocks,
+ * followed by the final partial block in {@link #finish(byte[], int, long)}.
+ * Whole blocks of direct (e.g. memory-mapped) buffers are processed in place, without copying.
+ */
+abstract class BlockHasher implements Hasher {
+
+    private static final VarHandle LONG_LE =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE =
+        MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final int blockSize;
+    private final byte[] pending;
+    private int pendingLength;
+    private long totalLength;
+
+    protected BlockHasher(int blockSize) {
+        this.blockSize = blockSize;
+        this.pending = new byte[blockSize];
+    }
+
+    /**
+     * Processes one whole block starting at the given offset
+     */
+    protected abstract void processBlock(byte[] bytes, int offset);
+
+    /**
+     * Processes one whole block of a little-endian buffer starting at the given index,
+     * without changing the buffer's position
+     */
+    protected abstract void processBlock(ByteBuffer buffer, int index);
+
+    /**
+     * Completes the hash
+     *
+     * @param tail the final partial block, in bytes [0, tailLength)
+     * @param tailLength number of bytes in the final partial block, less than the block size
+     * @param totalLength number of bytes fed since the last reset
+     * @return the digest
+     */
+    protected abstract byte[] finish(byte[] tail, int tailLength, long totalLength);
+
+    /**
+     * Restores the initial state of the hash
+     */
+    protected abstract void resetState();
+
+    @Override
+    public void update(byte value) {
+        pending[pendingLength++] = value;
+        totalLength++;
+        if (pendingLength == blockSize) {
+            processBlock(pending, 0);
+            pendingLength = 0;
+        }
+    }
+
+    @Override
+    public void update(byte[] bytes, int offset, int length) {
+        totalLength += length;
+
+        if (pendingLength > 0) {
+            int fill = Math.min(length, blockSize - pendingLength);
+            System.arraycopy(bytes, offset, pending, pendingLength, fill);
+            pendingLength += fill;
+            offset += fill;
+            length -= fill;
+            if (pendingLength < blockSize) {
+                return;
+            }
+            processBlock(pending, 0);
+            pendingLength = 0;
+        }
+
+        int end = offset + length - blockSize;
+        while (offset <= end) {
+            processBlock(bytes, offset);
+            offset += blockSize;
+            length -= blockSize;
+        }
+
+        System.arraycopy(bytes, offset, pending, 0, length);
+        pendingLength = length;
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int position = buffer.position();
+            update(buffer.array(), buffer.arrayOffset() + position, buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+
+        totalLength += buffer.remaining();
+
+        if (pendingLength > 0) {
+            int fill = Math.min(buffer.remaining(), blockSize - pendingLength);
+            buffer.get(pending, pendingLength, fill);
+            pendingLength += fill;
+            if (pendingLength < blockSize) {
+                return;
+            }
+            processBlock(pending, 0);
+            pendingLength = 0;
+        }
+
+        ByteBuffer littleEndian = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int index = buffer.position();
+        int end = buffer.limit() - blockSize;
+        while (index <= end) {
+            processBlock(littleEndian, index);
+            index += blockSize;
+        }
+
+        pendingLength = buffer.limit() - index;
+        buffer.get(index, pending, 0, pendingLength);
+        buffer.position(buffer.limit());
+    }
+
+    @Override
+    public byte[] digest() {
+        byte[] digest = finish(pending, pendingLength, totalLength);
+        reset();
+        return digest;
+    }
+
+    @Override
+    public void reset() {
+        pendingLength = 0;
+        totalLength = 0;
+        resetState();
+    }
+
+    protected static long readLongLE(byte[] bytes, int offset) {
+        return (long) LONG_LE.get(bytes, offset);
+    }
+
+    protected static int readIntLE(byte[] bytes, int offset) {
+        return (int) INT_LE.get(bytes, offset);
+    }
+}
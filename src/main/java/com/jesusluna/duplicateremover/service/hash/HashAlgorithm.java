@@ -0,0 +1,34 @@
+package com.jesusluna.duplicateremover.service.hash;
+
+/**
+ * A hash function used to identify file content.
+ * Implementations are stateless and thread-safe; all state lives in the {@link Hasher}s they create.
+ *
+ * Additional algorithms can be plugged in as {@link java.util.ServiceLoader} providers of this
+ * interface; they are picked up by {@link HashAlgorithms#forName(String)}.
+ */
+public interface HashAlgorithm {
+
+    /**
+     * Returns the name identifying this algorithm, e.g. "SHA-256" or "XXH64".
+     * The name is recorded next to every cached hash, so it must never change
+     * for a given digest format.
+     */
+    String getName();
+
+    /**
+     * Returns the length of the digests produced by this algorithm, in bytes
+     */
+    int getDigestLength();
+
+    /**
+     * Checks if this is a cryptographic hash. Non-cryptographic hashes are much faster,
+     * but their digests are short enough that a match should be verified before acting on it.
+     */
+    boolean isCryptographic();
+
+    /**
+     * Creates a new hasher. Hashers are not thread-safe: use one per thread.
+     */
+    Hasher newHasher();
+}
@@ -0,0 +1,58 @@
+package com.jesusluna.duplicateremover.service.hash;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the available hash algorithms.
+ * SHA-256 is the default; XXH64 and Murmur3-128 are several times faster when files
+ * are in the page cache and hashing, not I/O, is the bottleneck.
+ */
+public final class HashAlgorithms {
+
+    public static final HashAlgorithm SHA_256 = new MessageDigestHashAlgorithm("SHA-256");
+    public static final HashAlgorithm XXH64 = new XxHash64Algorithm();
+    public static final HashAlgorithm MURMUR3_128 = new Murmur3HashAlgorithm();
+
+    /**
+     * Algorithm used when a scan does not select one
+     */
+    public static final HashAlgorithm DEFAULT = SHA_256;
+
+    private static final List<HashAlgorithm> BUILT_IN = List.of(SHA_256, XXH64, MURMUR3_128);
+
+    private HashAlgorithms() {
+    }
+
+    /**
+     * Returns the built-in algorithms followed by any provided through {@link ServiceLoader}
+     */
+    public static List<HashAlgorithm> available() {
+        List<HashAlgorithm> algorithms = new ArrayList<>(BUILT_IN);
+        for (HashAlgorithm provided : ServiceLoader.load(HashAlgorithm.class)) {
+            algorithms.add(provided);
+        }
+        return Collections.unmodifiableList(algorithms);
+    }
+
+    /**
+     * Looks up an algorithm by name, ignoring case
+     *
+     * @param name algorithm name, as returned by {@link HashAlgorithm#getName()}
+     * @return the algorithm
+     * @throws IllegalArgumentException if no algorithm has that name
+     */
+    public static HashAlgorithm forName(String name) {
+        for (HashAlgorithm algorithm : BUILT_IN) {
+            if (algorithm.getName().equalsIgnoreCase(name)) {
+                return algorithm;
+            }
+        }
+        return available().stream()
+            .filter(algorithm -> algorithm.getName().equalsIgnoreCase(name))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown hash algorithm: " + name));
+    }
+}
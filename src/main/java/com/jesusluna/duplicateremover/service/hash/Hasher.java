@@ -0,0 +1,44 @@
+package com.jesusluna.duplicateremover.service.hash;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental hash computation created by a {@link HashAlgorithm}.
+ * Not thread-safe; a hasher can be reused after {@link #digest()} or {@link #reset()}.
+ */
+public interface Hasher {
+
+    /**
+     * Feeds a single byte
+     */
+    void update(byte value);
+
+    /**
+     * Feeds a range of a byte array
+     */
+    void update(byte[] bytes, int offset, int length);
+
+    /**
+     * Feeds the remaining bytes of a buffer, advancing its position to its limit
+     */
+    void update(ByteBuffer buffer);
+
+    /**
+     * Feeds a whole byte array
+     */
+    default void update(byte[] bytes) {
+        update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Completes the computation and resets the hasher for reuse
+     *
+     * @return digest of {@link HashAlgorithm#getDigestLength()} bytes
+     */
+    byte[] digest();
+
+    /**
+     * Discards all bytes fed so far
+     */
+    void reset();
+}
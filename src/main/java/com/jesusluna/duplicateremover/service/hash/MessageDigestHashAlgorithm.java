@@ -0,0 +1,82 @@
+package com.jesusluna.duplicateremover.service.hash;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Adapts a JDK {@link MessageDigest} (e.g. SHA-256) to the {@link HashAlgorithm} interface
+ */
+public class MessageDigestHashAlgorithm implements HashAlgorithm {
+
+    private final String name;
+    private final int digestLength;
+
+    /**
+     * @param name JCA name of the digest algorithm
+     * @throws IllegalArgumentException if the algorithm is not available in this JVM
+     */
+    public MessageDigestHashAlgorithm(String name) {
+        this.name = name;
+        this.digestLength = createDigest(name).getDigestLength();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getDigestLength() {
+        return digestLength;
+    }
+
+    @Override
+    public boolean isCryptographic() {
+        return true;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        MessageDigest digest = createDigest(name);
+        return new Hasher() {
+            @Override
+            public void update(byte value) {
+                digest.update(value);
+            }
+
+            @Override
+            public void update(byte[] bytes, int offset, int length) {
+                digest.update(bytes, offset, length);
+            }
+
+            @Override
+            public void update(ByteBuffer buffer) {
+                digest.update(buffer);
+            }
+
+            @Override
+            public byte[] digest() {
+                return digest.digest();
+            }
+
+            @Override
+            public void reset() {
+                digest.reset();
+            }
+        };
+    }
+
+    private static MessageDigest createDigest(String name) {
+        try {
+            return MessageDigest.getInstance(name);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(name + " algorithm not available", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,136 @@
+package com.jesusluna.duplicateremover.service.hash;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pure-Java MurmurHash3 x64 128-bit variant with seed 0.
+ * A fast 128-bit non-cryptographic hash; the digest is the two 64-bit halves in
+ * little-endian byte order, matching Guava's {@code Hashing.murmur3_128()}.
+ */
+public class Murmur3HashAlgorithm implements HashAlgorithm {
+
+    public static final String NAME = "Murmur3-128";
+
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    private static final int BLOCK_SIZE = 16;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getDigestLength() {
+        return 16;
+    }
+
+    @Override
+    public boolean isCryptographic() {
+        return false;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new Murmur3Hasher();
+    }
+
+    @Override
+    public String toString() {
+        return NAME;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static final class Murmur3Hasher extends BlockHasher {
+
+        private long h1;
+        private long h2;
+
+        Murmur3Hasher() {
+            super(BLOCK_SIZE);
+        }
+
+        @Override
+        protected void resetState() {
+            h1 = 0;
+            h2 = 0;
+        }
+
+        @Override
+        protected void processBlock(byte[] bytes, int offset) {
+            mix(readLongLE(bytes, offset), readLongLE(bytes, offset + 8));
+        }
+
+        @Override
+        protected void processBlock(ByteBuffer buffer, int index) {
+            mix(buffer.getLong(index), buffer.getLong(index + 8));
+        }
+
+        private void mix(long k1, long k2) {
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52DCE729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495AB5;
+        }
+
+        @Override
+        protected byte[] finish(byte[] tail, int tailLength, long totalLength) {
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = tailLength - 1; i >= 8; i--) {
+                k2 = (k2 << 8) | (tail[i] & 0xFFL);
+            }
+            for (int i = Math.min(tailLength, 8) - 1; i >= 0; i--) {
+                k1 = (k1 << 8) | (tail[i] & 0xFFL);
+            }
+            if (tailLength > 8) {
+                h2 ^= mixK2(k2);
+            }
+            if (tailLength > 0) {
+                h1 ^= mixK1(k1);
+            }
+
+            h1 ^= totalLength;
+            h2 ^= totalLength;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            h2 += h1;
+
+            byte[] digest = new byte[16];
+            for (int i = 0; i < 8; i++) {
+                digest[i] = (byte) (h1 >>> (8 * i));
+                digest[8 + i] = (byte) (h2 >>> (8 * i));
+            }
+            return digest;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.jesusluna.duplicateremover.service.hash;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pure-Java xxHash64 (XXH64) with seed 0.
+ * A fast 64-bit non-cryptographic hash; the digest is the hash value in big-endian
+ * byte order, matching the canonical representation printed by {@code xxhsum}.
+ */
+public class XxHash64Algorithm implements HashAlgorithm {
+
+    public static final String NAME = "XXH64";
+
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE_SIZE = 32;
+    private static final long SEED = 0;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getDigestLength() {
+        return 8;
+    }
+
+    @Override
+    public boolean isCryptographic() {
+        return false;
+    }
+
+    @Override
+    public Hasher newHasher() {
+        return new XxHash64Hasher();
+    }
+
+    @Override
+    public String toString() {
+        return NAME;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME64_1 + PRIME64_4;
+    }
+
+    private static final class XxHash64Hasher extends BlockHasher {
+
+        private long v1;
+        private long v2;
+        private long v3;
+        private long v4;
+
+        XxHash64Hasher() {
+            super(STRIPE_SIZE);
+            resetState();
+        }
+
+        @Override
+        protected void resetState() {
+            v1 = SEED + PRIME64_1 + PRIME64_2;
+            v2 = SEED + PRIME64_2;
+            v3 = SEED;
+            v4 = SEED - PRIME64_1;
+        }
+
+        @Override
+        protected void processBlock(byte[] bytes, int offset) {
+            v1 = round(v1, readLongLE(bytes, offset));
+            v2 = round(v2, readLongLE(bytes, offset + 8));
+            v3 = round(v3, readLongLE(bytes, offset + 16));
+            v4 = round(v4, readLongLE(bytes, offset + 24));
+        }
+
+        @Override
+        protected void processBlock(ByteBuffer buffer, int index) {
+            v1 = round(v1, buffer.getLong(index));
+            v2 = round(v2, buffer.getLong(index + 8));
+            v3 = round(v3, buffer.getLong(index + 16));
+            v4 = round(v4, buffer.getLong(index + 24));
+        }
+
+        @Override
+        protected byte[] finish(byte[] tail, int tailLength, long totalLength) {
+            long hash;
+            if (totalLength >= STRIPE_SIZE) {
+                hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                     + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                hash = mergeRound(hash, v1);
+                hash = mergeRound(hash, v2);
+                hash = mergeRound(hash, v3);
+                hash = mergeRound(hash, v4);
+            } else {
+                hash = SEED + PRIME64_5;
+            }
+            hash += totalLength;
+
+            int offset = 0;
+            for (; offset + 8 <= tailLength; offset += 8) {
+                hash ^= round(0, readLongLE(tail, offset));
+                hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+            }
+            if (offset + 4 <= tailLength) {
+                hash ^= (readIntLE(tail, offset) & 0xFFFFFFFFL) * PRIME64_1;
+                hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+                offset += 4;
+            }
+            for (; offset < tailLength; offset++) {
+                hash ^= (tail[offset] & 0xFFL) * PRIME64_5;
+                hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+            }
+
+            hash ^= hash >>> 33;
+            hash *= PRIME64_2;
+            hash ^= hash >>> 29;
+            hash *= PRIME64_3;
+            hash ^= hash >>> 32;
+
+            byte[] digest = new byte[8];
+            for (int i = 0; i < 8; i++) {
+                digest[i] = (byte) (hash >>> (56 - 8 * i));
+            }
+            return digest;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import com.jesusluna.duplicateremover.service.hash.Hasher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Chooses between two readers by file size
+ */
+class AdaptiveContentReader implements ContentReader {
+
+    private final ContentReader smallFileReader;
+    private final ContentReader largeFileReader;
+    private final long threshold;
+
+    AdaptiveContentReader(ContentReader smallFileReader, ContentReader largeFileReader, long threshold) {
+        this.smallFileReader = smallFileReader;
+        this.largeFileReader = largeFileReader;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public long read(Path file, Hasher hasher) throws IOException {
+        ContentReader reader = Files.size(file) >= threshold ? largeFileReader : smallFileReader;
+        return reader.read(file, hasher);
+    }
+}
@@ -0,0 +1,23 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import com.jesusluna.duplicateremover.service.hash.Hasher;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Reads the full content of a file into a {@link Hasher}.
+ * Readers keep reusable buffers and are not thread-safe: use one per thread.
+ */
+public interface ContentReader {
+
+    /**
+     * Feeds every byte of a file to the hasher
+     *
+     * @param file the file to read
+     * @param hasher receives the content, in order
+     * @return number of bytes read
+     * @throws IOException if the file cannot be read
+     */
+    long read(Path file, Hasher hasher) throws IOException;
+}
@@ -0,0 +1,39 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import com.jesusluna.duplicateremover.service.hash.Hasher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads through a {@link FileChannel} into a reusable direct buffer
+ */
+class DirectBufferContentReader implements ContentReader {
+
+    private final ByteBuffer buffer;
+
+    DirectBufferContentReader(int blockSize) {
+        this.buffer = ByteBuffer.allocateDirect(blockSize);
+    }
+
+    @Override
+    public long read(Path file, Hasher hasher) throws IOException {
+        long total = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (true) {
+                buffer.clear();
+                int bytesRead = channel.read(buffer);
+                if (bytesRead < 0) {
+                    break;
+                }
+                buffer.flip();
+                hasher.update(buffer);
+                total += bytesRead;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,52 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import com.jesusluna.duplicateremover.service.hash.Hasher;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Maps a file into memory in fixed-size windows and hashes each window in place.
+ * Windows bound the address space used per file; the JDK unmaps them once they
+ * are garbage collected.
+ */
+class MappedContentReader implements ContentReader {
+
+    /**
+     * Default size of each mapped window
+     */
+    static final long WINDOW_SIZE = 64L * 1024 * 1024; // 64MB
+
+    private final long windowSize;
+
+    MappedContentReader(int blockSize) {
+        this(Math.max(WINDOW_SIZE, blockSize));
+    }
+
+    MappedContentReader(long windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public long read(Path file, Hasher hasher) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(windowSize, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                try {
+                    hasher.update(window);
+                } catch (InternalError e) {
+                    // Raised instead of SIGBUS when the file is truncated while mapped
+                    throw new IOException("File changed while being read: " + file, e);
+                }
+                position += length;
+            }
+            return position;
+        }
+    }
+}
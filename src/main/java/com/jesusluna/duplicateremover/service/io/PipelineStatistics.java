@@ -0,0 +1,109 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import com.jesusluna.duplicateremover.util.FileUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a {@link ReadHashPipeline}, used to balance reader and hasher threads.
+ * Large reader stalls mean hashing is the bottleneck (add hashers or use a faster algorithm);
+ * large hasher idle times mean reading is the bottleneck (add readers if the device allows).
+ * Thread-safe.
+ */
+public class PipelineStatistics {
+
+    private final AtomicLong filesHashed = new AtomicLong();
+    private final AtomicLong blocksRead = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong readerStalls = new AtomicLong();
+    private final AtomicLong readerStallNanos = new AtomicLong();
+    private final AtomicLong hasherIdleNanos = new AtomicLong();
+    private final AtomicLong peakPendingFiles = new AtomicLong();
+    private final AtomicLong peakQueuedBlocks = new AtomicLong();
+
+    void recordFileHashed() {
+        filesHashed.incrementAndGet();
+    }
+
+    void recordBlockRead(int bytes) {
+        blocksRead.incrementAndGet();
+        bytesRead.addAndGet(bytes);
+    }
+
+    void recordReaderStall(long nanos) {
+        readerStalls.incrementAndGet();
+        readerStallNanos.addAndGet(nanos);
+    }
+
+    void recordHasherIdle(long nanos) {
+        hasherIdleNanos.addAndGet(nanos);
+    }
+
+    void recordPendingFiles(int depth) {
+        peakPendingFiles.accumulateAndGet(depth, Math::max);
+    }
+
+    void recordQueuedBlocks(int depth) {
+        peakQueuedBlocks.accumulateAndGet(depth, Math::max);
+    }
+
+    public long getFilesHashed() {
+        return filesHashed.get();
+    }
+
+    public long getBlocksRead() {
+        return blocksRead.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * Returns how often a reader had to wait for a free buffer
+     */
+    public long getReaderStalls() {
+        return readerStalls.get();
+    }
+
+    /**
+     * Returns the total time readers spent waiting for a free buffer
+     */
+    public long getReaderStallNanos() {
+        return readerStallNanos.get();
+    }
+
+    /**
+     * Returns the total time hashers spent waiting for a block
+     */
+    public long getHasherIdleNanos() {
+        return hasherIdleNanos.get();
+    }
+
+    /**
+     * Returns the largest number of files seen waiting for a reader
+     */
+    public long getPeakPendingFiles() {
+        return peakPendingFiles.get();
+    }
+
+    /**
+     * Returns the largest number of blocks seen waiting in a single hasher queue
+     */
+    public long getPeakQueuedBlocks() {
+        return peakQueuedBlocks.get();
+    }
+
+    /**
+     * Builds a one-line, human-readable summary
+     */
+    public String toSummary() {
+        return String.format("pipeline hashed %d files (%s in %d blocks); readers stalled %d times for %d ms, "
+                + "hashers idle %d ms; peak queue depth %d files, %d blocks",
+            getFilesHashed(), FileUtils.formatFileSize(getBytesRead()), getBlocksRead(),
+            getReaderStalls(), TimeUnit.NANOSECONDS.toMillis(getReaderStallNanos()),
+            TimeUnit.NANOSECONDS.toMillis(getHasherIdleNanos()),
+            getPeakPendingFiles(), getPeakQueuedBlocks());
+    }
+}
@@ -0,0 +1,317 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithm;
+import com.jesusluna.duplicateremover.service.hash.Hasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Hashes file content with separate reader and hasher threads, so that the disk queue
+ * and the CPUs can both stay busy.
+ *
+ * Readers fill buffers taken from a bounded ring of pooled direct buffers and append them
+ * to the FIFO queue of one hasher; all blocks of a file go to the same hasher, in order,
+ * while the next block is already being read. Hashers return each buffer to the ring once
+ * it is hashed. Readers stall when every buffer is in flight (hashing is the bottleneck);
+ * hashers idle when their queue is empty (reading is the bottleneck). Both are measured
+ * in {@link PipelineStatistics} to help size the two stages.
+ */
+public class ReadHashPipeline implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadHashPipeline.class);
+
+    /**
+     * Default number of reader threads, enough to keep several requests queued on an SSD
+     */
+    public static final int DEFAULT_READER_THREADS = 4;
+
+    /**
+     * Buffers per thread when the ring size is not configured
+     */
+    private static final int BUFFERS_PER_THREAD = 2;
+
+    private final HashAlgorithm hashAlgorithm;
+    private final int blockSize;
+    private final BlockingQueue<ReadJob> pendingFiles = new LinkedBlockingQueue<>();
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final List<BlockingQueue<Block>> hasherQueues = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Hasher> idleHashers = new ConcurrentLinkedQueue<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final PipelineStatistics statistics = new PipelineStatistics();
+    private volatile boolean closed;
+
+    /**
+     * Creates and starts the pipeline threads
+     *
+     * @param hashAlgorithm algorithm for the content hashes
+     * @param readers number of reader threads (at least 1)
+     * @param hashers number of hasher threads (at least 1)
+     * @param bufferCount number of pooled buffers, or 0 for two per thread
+     * @param blockSize size of each buffer in bytes
+     */
+    public ReadHashPipeline(HashAlgorithm hashAlgorithm, int readers, int hashers, int bufferCount, int blockSize) {
+        this.hashAlgorithm = hashAlgorithm;
+        this.blockSize = Math.max(ReadStrategy.MIN_BLOCK_SIZE, blockSize);
+        int readerThreads = Math.max(1, readers);
+        int hasherThreads = Math.max(1, hashers);
+        int buffers = bufferCount > 0 ? bufferCount : BUFFERS_PER_THREAD * (readerThreads + hasherThreads);
+
+        this.freeBuffers = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(this.blockSize));
+        }
+        for (int i = 0; i < hasherThreads; i++) {
+            BlockingQueue<Block> queue = new LinkedBlockingQueue<>();
+            hasherQueues.add(queue);
+            start("hash-" + i, () -> hashLoop(queue));
+        }
+        for (int i = 0; i < readerThreads; i++) {
+            start("read-" + i, this::readLoop);
+        }
+        logger.info("Read/hash pipeline started: {} readers, {} hashers, {} buffers of {} bytes",
+                    readerThreads, hasherThreads, buffers, this.blockSize);
+    }
+
+    private void start(String name, Runnable loop) {
+        Thread thread = new Thread(loop, "pipeline-" + name);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+    }
+
+    /**
+     * Queues a file for hashing
+     *
+     * @param file the file to hash
+     * @return completes with the hash of the file's content, or exceptionally with the read error
+     */
+    public CompletableFuture<HashKey> submit(Path file) {
+        ReadJob job = new ReadJob(file);
+        if (closed) {
+            job.result.completeExceptionally(new CancellationException("Pipeline closed"));
+            return job.result;
+        }
+        pendingFiles.add(job);
+        statistics.recordPendingFiles(pendingFiles.size());
+        return job.result;
+    }
+
+    public PipelineStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns the number of files waiting for a reader
+     */
+    public int getPendingFiles() {
+        return pendingFiles.size();
+    }
+
+    /**
+     * Returns the number of read blocks waiting for a hasher
+     */
+    public int getQueuedBlocks() {
+        return hasherQueues.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    /**
+     * Returns the number of pooled buffers not currently holding a block
+     */
+    public int getFreeBuffers() {
+        return freeBuffers.size();
+    }
+
+    /**
+     * Stops all threads. Files still queued or in flight complete with a {@link CancellationException}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        ReadJob job;
+        while ((job = pendingFiles.poll()) != null) {
+            job.result.completeExceptionally(new CancellationException("Pipeline closed"));
+        }
+        for (BlockingQueue<Block> queue : hasherQueues) {
+            Block block;
+            while ((block = queue.poll()) != null) {
+                block.job.result.completeExceptionally(new CancellationException("Pipeline closed"));
+            }
+        }
+    }
+
+    private void readLoop() {
+        try {
+            while (!closed) {
+                read(pendingFiles.take());
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Reads one file block by block into the queue of the least busy hasher
+     */
+    private void read(ReadJob job) throws InterruptedException {
+        BlockingQueue<Block> queue = leastBusyQueue();
+        try (FileChannel channel = FileChannel.open(job.file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            boolean last = false;
+            while (!last) {
+                ByteBuffer buffer = takeBuffer();
+                try {
+                    last = fill(channel, buffer, position, size);
+                } catch (IOException | RuntimeException e) {
+                    freeBuffers.add(buffer);
+                    throw e;
+                }
+                buffer.flip();
+                position += buffer.remaining();
+                statistics.recordBlockRead(buffer.remaining());
+                queue.add(new Block(job, buffer, last, null));
+                statistics.recordQueuedBlocks(queue.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            // Queued behind the blocks already read, so the hasher sees them in order
+            queue.add(new Block(job, null, true, e));
+        } catch (InterruptedException e) {
+            job.result.completeExceptionally(new CancellationException("Pipeline closed"));
+            throw e;
+        }
+    }
+
+    /**
+     * Reads into the buffer until it is full or the expected end of the file is reached
+     *
+     * @return true if this is the last block of the file
+     */
+    private boolean fill(FileChannel channel, ByteBuffer buffer, long position, long size) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining() && position < size) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                // Shrank since it was opened: hash what is there
+                return true;
+            }
+            position += read;
+        }
+        return position >= size;
+    }
+
+    private ByteBuffer takeBuffer() throws InterruptedException {
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        long start = System.nanoTime();
+        buffer = freeBuffers.take();
+        statistics.recordReaderStall(System.nanoTime() - start);
+        return buffer;
+    }
+
+    private BlockingQueue<Block> leastBusyQueue() {
+        BlockingQueue<Block> best = hasherQueues.get(0);
+        for (BlockingQueue<Block> queue : hasherQueues) {
+            if (queue.size() < best.size()) {
+                best = queue;
+            }
+        }
+        return best;
+    }
+
+    private void hashLoop(BlockingQueue<Block> queue) {
+        try {
+            while (!closed) {
+                Block block = queue.poll();
+                if (block == null) {
+                    long start = System.nanoTime();
+                    block = queue.take();
+                    statistics.recordHasherIdle(System.nanoTime() - start);
+                }
+                hash(block);
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    private void hash(Block block) {
+        ReadJob job = block.job;
+        if (block.error != null) {
+            releaseHasher(job);
+            job.result.completeExceptionally(block.error);
+            return;
+        }
+
+        if (job.hasher == null) {
+            Hasher hasher = idleHashers.poll();
+            job.hasher = hasher != null ? hasher : hashAlgorithm.newHasher();
+            job.hasher.reset();
+        }
+        try {
+            job.hasher.update(block.buffer);
+        } finally {
+            freeBuffers.add(block.buffer);
+        }
+
+        if (block.last) {
+            HashKey hash = HashKey.wrap(job.hasher.digest());
+            releaseHasher(job);
+            statistics.recordFileHashed();
+            job.result.complete(hash);
+        }
+    }
+
+    private void releaseHasher(ReadJob job) {
+        if (job.hasher != null) {
+            idleHashers.add(job.hasher);
+            job.hasher = null;
+        }
+    }
+
+    /**
+     * A file being hashed. Its hasher is only touched by the one hasher thread its blocks go to.
+     */
+    private static final class ReadJob {
+        private final Path file;
+        private final CompletableFuture<HashKey> result = new CompletableFuture<>();
+        private Hasher hasher;
+
+        ReadJob(Path file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * A block of a file, or the read error that ended it
+     */
+    private record Block(ReadJob job, ByteBuffer buffer, boolean last, Exception error) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.jesusluna.duplicateremover.service.io;
+
+/**
+ * In which order the files of a device are read
+ */
+public enum ReadOrdering {
+
+    /**
+     * Files are read in the order they are found, by as many readers as the device allows.
+     * Suits SSDs and network storage, which gain from many concurrent reads.
+     */
+    UNORDERED,
+
+    /**
+     * Files are read by a single reader in directory and name order, as a proxy for their
+     * layout on disk, sweeping across the device instead of seeking back and forth.
+     * Very large files are tree-hashed by that reader alone, one chunk after the other.
+     * Suits rotational disks, where seeks cost far more than the reads themselves.
+     */
+    PHYSICAL,
+
+    /**
+     * {@link #PHYSICAL} on devices reported as rotational, {@link #UNORDERED} elsewhere
+     */
+    AUTO;
+
+    /**
+     * Checks if the files of a device are read in physical order under this setting
+     */
+    public boolean isPhysical(StorageDevice device) {
+        return this == PHYSICAL || (this == AUTO && device.isRotational());
+    }
+}
@@ -0,0 +1,31 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import com.jesusluna.duplicateremover.model.ScannedFile;
+
+import java.io.File;
+import java.util.Comparator;
+
+/**
+ * Where a file probably lies on its device, as far as can be told without asking the file
+ * system for block maps: file systems place the files of a directory together, so reading
+ * directory by directory keeps the disk head within a region at a time.
+ *
+ * @param directory path of the directory holding the file
+ * @param name file name, which orders the files of a directory
+ */
+public record ReadPosition(String directory, String name) implements Comparable<ReadPosition> {
+
+    private static final Comparator<ReadPosition> ORDER = Comparator
+        .comparing(ReadPosition::directory)
+        .thenComparing(ReadPosition::name);
+
+    public static ReadPosition of(ScannedFile file) {
+        File parent = file.getFile().getParentFile();
+        return new ReadPosition(parent != null ? parent.getPath() : "", file.getFile().getName());
+    }
+
+    @Override
+    public int compareTo(ReadPosition other) {
+        return ORDER.compare(this, other);
+    }
+}
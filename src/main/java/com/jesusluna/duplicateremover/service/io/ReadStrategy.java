@@ -0,0 +1,62 @@
+package com.jesusluna.duplicateremover.service.io;
+
+/**
+ * How file content is read for full hashing
+ */
+public enum ReadStrategy {
+
+    /**
+     * {@code FileInputStream} into a heap array (the original implementation)
+     */
+    STREAM,
+
+    /**
+     * {@code FileChannel} reads into a reusable direct buffer, avoiding the copy
+     * the JDK makes when reading into a heap array
+     */
+    DIRECT_BUFFER,
+
+    /**
+     * The file is mapped into memory window by window and hashed in place
+     */
+    MEMORY_MAPPED,
+
+    /**
+     * Direct buffer reads for most files, memory-mapped windows for large files
+     * where the per-read system calls and copies dominate
+     */
+    ADAPTIVE;
+
+    /**
+     * Default size of the read buffer
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024; // 256KB
+
+    /**
+     * Smallest accepted read buffer size
+     */
+    public static final int MIN_BLOCK_SIZE = 4096; // 4KB
+
+    /**
+     * Files of at least this size are memory-mapped by {@link #ADAPTIVE}
+     */
+    public static final long MAPPED_THRESHOLD = 32L * 1024 * 1024; // 32MB
+
+    /**
+     * Creates a reader for this strategy
+     *
+     * @param blockSize size of the read buffer in bytes (at least {@link #MIN_BLOCK_SIZE});
+     *                  mapped windows are never smaller than this
+     * @return a new reader, to be used by a single thread
+     */
+    public ContentReader createReader(int blockSize) {
+        int size = Math.max(MIN_BLOCK_SIZE, blockSize);
+        return switch (this) {
+            case STREAM -> new StreamContentReader(size);
+            case DIRECT_BUFFER -> new DirectBufferContentReader(size);
+            case MEMORY_MAPPED -> new MappedContentReader(size);
+            case ADAPTIVE -> new AdaptiveContentReader(
+                new DirectBufferContentReader(size), new MappedContentReader(size), MAPPED_THRESHOLD);
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import java.util.Objects;
+
+/**
+ * A device (file system) files of a scan live on, which is scheduled separately from the
+ * others: a slow disk should not hold up reads from a fast one.
+ */
+public final class StorageDevice {
+
+    private final Object key;
+    private final String name;
+    private final String type;
+    private final boolean rotational;
+
+    /**
+     * @param key identifies the device; files with equal keys live on the same device
+     * @param name human-readable name, e.g. the mount point and device of the file store
+     * @param type file system type, or null if unknown
+     * @param rotational true if the device is known to be a spinning disk
+     */
+    public StorageDevice(Object key, String name, String type, boolean rotational) {
+        this.key = Objects.requireNonNull(key, "key");
+        this.name = Objects.requireNonNull(name, "name");
+        this.type = type;
+        this.rotational = rotational;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the file system type (e.g. "ext4" or "NTFS"), or null if unknown
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Checks if the device is known to be a spinning disk, on which seeks dominate read time.
+     * False when unknown, e.g. outside Linux or for network and virtual file systems.
+     */
+    public boolean isRotational() {
+        return rotational;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return key.equals(((StorageDevice) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        String description = type != null ? name + " [" + type + "]" : name;
+        return rotational ? description + " (rotational)" : description;
+    }
+}
@@ -0,0 +1,118 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import com.jesusluna.duplicateremover.model.ScannedFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tells which {@link StorageDevice} each scanned file lives on.
+ *
+ * Files are told apart by the device identifier in their file key, which traversal has
+ * already read, so no further call is made per file; the {@link FileStore} is only looked up
+ * once per device, to name it. Where file keys carry no device (e.g. on Windows), the root
+ * of the path, i.e. the drive, stands for the device.
+ *
+ * On Linux, whether a device is rotational is read from sysfs, following the device number
+ * to the block device (or, for a partition, its disk) and its {@code queue/rotational} flag.
+ *
+ * Not thread-safe: intended for the single dispatcher thread of a scan.
+ */
+public class StorageDevices {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageDevices.class);
+
+    private static final Path SYSFS = Paths.get("/sys");
+
+    private final Map<Object, StorageDevice> devices = new LinkedHashMap<>();
+    private final Path sysfs;
+
+    public StorageDevices() {
+        this(SYSFS);
+    }
+
+    /**
+     * @param sysfs where sysfs is mounted
+     */
+    StorageDevices(Path sysfs) {
+        this.sysfs = sysfs;
+    }
+
+    /**
+     * Returns the device of a file, resolving its file store the first time the device is seen
+     */
+    public StorageDevice deviceOf(ScannedFile file) {
+        Object key = keyOf(file);
+        StorageDevice device = devices.get(key);
+        if (device == null) {
+            device = resolve(key, file.getFile().toPath());
+            devices.put(key, device);
+        }
+        return device;
+    }
+
+    /**
+     * Returns the devices seen so far, in the order they were first seen
+     */
+    public List<StorageDevice> getDevices() {
+        return new ArrayList<>(devices.values());
+    }
+
+    static Object keyOf(ScannedFile file) {
+        if (file.getDeviceId() >= 0) {
+            return file.getDeviceId();
+        }
+        Path root = file.getFile().toPath().toAbsolutePath().getRoot();
+        return root != null ? root.toString() : "";
+    }
+
+    private StorageDevice resolve(Object key, Path path) {
+        boolean rotational = key instanceof Long id && isRotational(id);
+        try {
+            FileStore store = Files.getFileStore(path);
+            StorageDevice device = new StorageDevice(key, store.toString(), store.type(), rotational);
+            logger.debug("Scanning device {}", device);
+            return device;
+        } catch (IOException | SecurityException e) {
+            logger.debug("Unable to resolve the file store of {}: {}", path, e.getMessage());
+            String name = key instanceof Long id ? "device " + Long.toHexString(id) : key.toString();
+            return new StorageDevice(key, name, null, rotational);
+        }
+    }
+
+    /**
+     * Checks the sysfs rotational flag of a device number; false if there is none
+     * (not Linux, or not a block device, e.g. tmpfs, NFS or btrfs subvolumes)
+     */
+    boolean isRotational(long deviceId) {
+        // Linux dev_t encoding, as decoded by major(3) and minor(3)
+        long major = ((deviceId >>> 8) & 0xfff) | ((deviceId >>> 32) & ~0xfffL);
+        long minor = (deviceId & 0xff) | ((deviceId >>> 12) & ~0xffL);
+        Path link = sysfs.resolve("dev").resolve("block").resolve(major + ":" + minor);
+        try {
+            if (!Files.exists(link)) {
+                return false;
+            }
+            Path devices = sysfs.resolve("devices").toRealPath();
+            // A partition has no queue of its own; its disk is the parent directory
+            for (Path dir = link.toRealPath(); dir != null && dir.startsWith(devices); dir = dir.getParent()) {
+                Path flag = dir.resolve("queue").resolve("rotational");
+                if (Files.isRegularFile(flag)) {
+                    return "1".equals(Files.readString(flag).trim());
+                }
+            }
+        } catch (IOException | SecurityException e) {
+            logger.debug("Unable to tell if device {}:{} is rotational: {}", major, minor, e.getMessage());
+        }
+        return false;
+    }
+}
@@ -0,0 +1,33 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import com.jesusluna.duplicateremover.service.hash.Hasher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads through an {@link InputStream} into a reusable heap buffer
+ */
+class StreamContentReader implements ContentReader {
+
+    private final byte[] buffer;
+
+    StreamContentReader(int blockSize) {
+        this.buffer = new byte[blockSize];
+    }
+
+    @Override
+    public long read(Path file, Hasher hasher) throws IOException {
+        long total = 0;
+        try (InputStream input = Files.newInputStream(file)) {
+            int bytesRead;
+            while ((bytesRead = input.read(buffer)) != -1) {
+                hasher.update(buffer, 0, bytesRead);
+                total += bytesRead;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,84 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Queue that hands out items in ascending order of their position, sweeping like a disk
+ * elevator: it continues from the position of the last item taken, and only when no item lies
+ * at or beyond it starts over from the lowest position (C-SCAN). Items added behind the sweep
+ * wait for the next one instead of sending the reader back, so a stream of new items cannot
+ * make it seek back and forth.
+ *
+ * Items with equal positions are handed out in the order they were added. Not thread-safe.
+ *
+ * @param <T> item type
+ * @param <P> position type
+ */
+public class SweepQueue<T, P extends Comparable<P>> extends AbstractQueue<T> {
+
+    private final TreeMap<Slot<P>, T> items = new TreeMap<>();
+    private final Function<T, P> positionOf;
+    private long sequence;
+    private Slot<P> last;
+
+    /**
+     * @param positionOf gives the position of an item
+     */
+    public SweepQueue(Function<T, P> positionOf) {
+        this.positionOf = positionOf;
+    }
+
+    @Override
+    public boolean offer(T item) {
+        items.put(new Slot<>(positionOf.apply(item), sequence++), item);
+        return true;
+    }
+
+    @Override
+    public T poll() {
+        Map.Entry<Slot<P>, T> next = next();
+        if (next == null) {
+            return null;
+        }
+        items.remove(next.getKey());
+        last = next.getKey();
+        return next.getValue();
+    }
+
+    @Override
+    public T peek() {
+        Map.Entry<Slot<P>, T> next = next();
+        return next != null ? next.getValue() : null;
+    }
+
+    private Map.Entry<Slot<P>, T> next() {
+        Map.Entry<Slot<P>, T> next = last != null ? items.higherEntry(last) : null;
+        return next != null ? next : items.firstEntry();
+    }
+
+    /**
+     * Iterates in position order, not in the order items are handed out
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return items.values().iterator();
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    private record Slot<P extends Comparable<P>>(P position, long sequence) implements Comparable<Slot<P>> {
+
+        @Override
+        public int compareTo(Slot<P> other) {
+            int byPosition = position.compareTo(other.position);
+            return byPosition != 0 ? byPosition : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.jesusluna.duplicateremover.ui;
 
+import com.jesusluna.duplicateremover.model.DuplicateGroup;
 import com.jesusluna.duplicateremover.service.DuplicateFileScanner;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -27,12 +28,25 @@ public class DuplicateFileItem extends HBox {
     private static final int THUMBNAIL_SIZE = 48;
     
     private final File file;
+    private final DuplicateGroup group;
+    private final File original;
     private final CheckBox checkBox;
     private final boolean isOriginal;
     
     public DuplicateFileItem(File file, boolean isOriginal) {
+        this(file, null, isOriginal ? file : null);
+    }
+    
+    /**
+     * @param group the group the file was found in
+     * @param original the original shown as kept from the group, which the file is checked against
+     *                 before deletion
+     */
+    public DuplicateFileItem(File file, DuplicateGroup group, File original) {
         this.file = file;
-        this.isOriginal = isOriginal;
+        this.group = group;
+        this.original = original;
+        this.isOriginal = file.equals(original);
         this.checkBox = new CheckBox();
         
         setAlignment(Pos.CENTER_LEFT);
@@ -126,6 +140,20 @@ public File getFile() {
         return file;
     }
     
+    /**
+     * Returns the group the file was found in, or null if unknown
+     */
+    public DuplicateGroup getGroup() {
+        return group;
+    }
+    
+    /**
+     * Returns the original shown as kept from the file's group, or null if unknown
+     */
+    public File getOriginal() {
+        return original;
+    }
+    
     public boolean isSelected() {
         return checkBox.isSelected();
     }
@@ -1,8 +1,13 @@
 package com.jesusluna.duplicateremover.ui;
 
 import com.jesusluna.duplicateremover.model.DuplicateGroup;
+import com.jesusluna.duplicateremover.service.DeletionVerifier;
 import com.jesusluna.duplicateremover.service.DuplicateFileScanner;
+import com.jesusluna.duplicateremover.service.HashCache;
+import com.jesusluna.duplicateremover.service.ScanOptions;
+import com.jesusluna.duplicateremover.service.SimilarImageIndex;
 import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -21,7 +26,11 @@
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Progress dialog that shows scanning progress and duplicate results
@@ -95,7 +104,20 @@ public ProgressDialog(Stage owner, ResourceBundle messages, boolean autoDeleteMo
     }
     
     public void startScan(File directory, boolean includeSubfolders, boolean useAdvancedImageDetection) {
-        scanner = new DuplicateFileScanner(directory, includeSubfolders, useAdvancedImageDetection);
+        startScan(directory, includeSubfolders, useAdvancedImageDetection, false);
+    }
+    
+    /**
+     * @param findSimilarImages true to also group images that look alike, with advanced image detection
+     */
+    public void startScan(File directory, boolean includeSubfolders, boolean useAdvancedImageDetection, 
+                          boolean findSimilarImages) {
+        ScanOptions options = new ScanOptions()
+            .setIncludeSubfolders(includeSubfolders)
+            .setUseAdvancedImageDetection(useAdvancedImageDetection)
+            .setSimilarImageDistance(findSimilarImages ? SimilarImageIndex.DEFAULT_MAX_DISTANCE : -1)
+            .setHashCacheFile(HashCache.defaultLocation());
+        scanner = new DuplicateFileScanner(directory, options);
         
         // Bind progress
         progressBar.progressProperty().bind(scanner.progressProperty());
@@ -141,7 +163,13 @@ private void handleAutomaticDeletion(List<DuplicateGroup> duplicates) {
         // Clear progress UI
         mainContainer.getChildren().clear();
         
-        if (duplicates.isEmpty()) {
+        // Paths hard-linked to the same file free no space when deleted, and images that only
+        // look alike need a review, so only exact copies are deleted
+        List<DuplicateGroup> reclaimable = duplicates.stream()
+                .filter(DuplicateGroup::isIdentical)
+                .toList();
+        
+        if (reclaimable.isEmpty()) {
             // No duplicates found
             showNoDuplicatesMessage();
             return;
@@ -149,7 +177,7 @@ private void handleAutomaticDeletion(List<DuplicateGroup> duplicates) {
         
         // Count files to delete (all duplicates except originals)
         int filesToDelete = 0;
-        for (DuplicateGroup group : duplicates) {
+        for (DuplicateGroup group : reclaimable) {
             // Each group has N files, we keep 1 original, so N-1 to delete
             filesToDelete += group.getFileCount() - 1;
         }
@@ -171,56 +199,30 @@ private void handleAutomaticDeletion(List<DuplicateGroup> duplicates) {
         }
         
         // User confirmed, proceed with deletion
-        performAutomaticDeletion(duplicates);
+        performAutomaticDeletion(reclaimable);
     }
     
     private void performAutomaticDeletion(List<DuplicateGroup> duplicates) {
-        int deleted = 0;
-        List<String> errors = new ArrayList<>();
-        
+        List<DeletionVerifier.Deletion> deletions = new ArrayList<>();
+        List<File> files = new ArrayList<>();
         for (DuplicateGroup group : duplicates) {
             File original = group.getOriginalFile();
             
             for (File file : group.getFiles()) {
                 if (!file.equals(original)) {
-                    // Safety check: verify file still exists before deletion
-                    if (!file.exists()) {
-                        logger.warn("File no longer exists, skipping: {}", file.getAbsolutePath());
-                        errors.add(file.getAbsolutePath() + " (file not found)");
-                        continue;
-                    }
-                    
-                    // This is a duplicate, delete it
-                    if (file.delete()) {
-                        deleted++;
-                        logger.info("Deleted duplicate file: {}", file.getAbsolutePath());
-                    } else {
-                        // Store full path for better error reporting
-                        errors.add(file.getAbsolutePath());
-                        logger.warn("Failed to delete file: {}", file.getAbsolutePath());
-                    }
+                    deletions.add(new DeletionVerifier.Deletion(group, original, file));
+                    files.add(file);
                 }
             }
         }
         
-        // Show summary
-        Alert summary = new Alert(Alert.AlertType.INFORMATION);
-        summary.initOwner(dialog);
-        summary.setTitle(messages.getString("delete.summary.title"));
-        summary.setHeaderText(
-            String.format(messages.getString("delete.summary.header"), deleted)
-        );
-        
-        if (!errors.isEmpty()) {
-            summary.setContentText(
-                messages.getString("delete.summary.errors") + "\n" + String.join("\n", errors)
-            );
-        }
-        
-        summary.showAndWait();
-        
-        // Close the dialog
-        dialog.close();
+        // Store full paths for better error reporting
+        deleteInBackground(deletions, files, File::getAbsolutePath, outcome -> {
+            showDeletionSummary(outcome, "\n");
+            
+            // Close the dialog
+            dialog.close();
+        });
     }
     
     private void showNoDuplicatesMessage() {
@@ -248,8 +250,9 @@ private void showManualResults(List<DuplicateGroup> duplicates) {
         resultsTitle.setFont(Font.font("Segoe UI Semibold", 18));
         resultsTitle.setTextFill(Color.web("#00bfff"));
         
+        long reclaimableGroups = duplicates.stream().filter(DuplicateGroup::isIdentical).count();
         Label resultsSubtitle = new Label(
-            String.format(messages.getString("results.subtitle"), duplicates.size())
+            String.format(messages.getString("results.subtitle"), reclaimableGroups)
         );
         resultsSubtitle.setFont(Font.font("Segoe UI", 12));
         resultsSubtitle.setTextFill(Color.web("#cccccc"));
@@ -306,6 +309,11 @@ private VBox createResultsView(List<DuplicateGroup> duplicates) {
         container.setPadding(new Insets(10));
         
         for (DuplicateGroup group : duplicates) {
+            if (!group.isReclaimable()) {
+                addHardLinkGroup(container, group);
+                continue;
+            }
+            
             // Get the original file for this group
             File originalFile = group.getOriginalFile();
             
@@ -313,8 +321,9 @@ private VBox createResultsView(List<DuplicateGroup> duplicates) {
             HBox groupHeader = new HBox(10);
             groupHeader.setAlignment(Pos.CENTER_LEFT);
             
+            String header = group.isIdentical() ? "results.group.header" : "results.group.similar";
             Label groupLabel = new Label(
-                String.format(messages.getString("results.group.header"), 
+                String.format(messages.getString(header), 
                     group.getFileCount(), formatFileSize(group.getTotalSize()))
             );
             groupLabel.setFont(Font.font("Segoe UI Semibold", 13));
@@ -334,8 +343,7 @@ private VBox createResultsView(List<DuplicateGroup> duplicates) {
             
             // Files in group
             for (File file : group.getFiles()) {
-                boolean isOriginal = file.equals(originalFile);
-                DuplicateFileItem item = new DuplicateFileItem(file, isOriginal);
+                DuplicateFileItem item = new DuplicateFileItem(file, group, originalFile);
                 groupItems.add(item);
                 container.getChildren().add(item);
             }
@@ -358,11 +366,40 @@ private VBox createResultsView(List<DuplicateGroup> duplicates) {
         return container;
     }
     
+    /**
+     * Lists paths that lead to one and the same file. They are shown for information only:
+     * deleting any of them frees no space, so they cannot be selected.
+     */
+    private void addHardLinkGroup(VBox container, DuplicateGroup group) {
+        List<File> files = group.getFiles();
+        long size = files.isEmpty() ? 0 : files.get(0).length();
+        
+        Label groupLabel = new Label(
+            String.format(messages.getString("results.group.hardlinks"), files.size(), formatFileSize(size))
+        );
+        groupLabel.setFont(Font.font("Segoe UI Semibold", 13));
+        groupLabel.setTextFill(Color.web("#888888"));
+        groupLabel.setPadding(new Insets(10, 0, 5, 0));
+        container.getChildren().add(groupLabel);
+        
+        for (File file : files) {
+            Label pathLabel = new Label(file.getAbsolutePath());
+            pathLabel.setFont(Font.font("Segoe UI", 11));
+            pathLabel.setTextFill(Color.web("#888888"));
+            pathLabel.setPadding(new Insets(2, 10, 2, 10));
+            container.getChildren().add(pathLabel);
+        }
+        
+        Separator separator = new Separator();
+        separator.setStyle("-fx-background-color: #333;");
+        container.getChildren().add(separator);
+    }
+    
     private void selectAllDuplicates(VBox resultsContainer) {
-        // Select all items that are not marked as original
+        // Select all items that are not marked as original; similar images are only selected group by group
         for (var node : resultsContainer.getChildren()) {
             if (node instanceof DuplicateFileItem item) {
-                if (!item.isOriginal()) {
+                if (!item.isOriginal() && (item.getGroup() == null || item.getGroup().isIdentical())) {
                     item.setSelected(true);
                 }
             }
@@ -399,41 +436,104 @@ private void deleteSelectedFiles(VBox resultsContainer) {
             return;
         }
         
-        // Delete files and track which items were deleted
-        int deleted = 0;
-        List<String> errors = new ArrayList<>();
-        List<DuplicateFileItem> deletedItems = new ArrayList<>();
-        
+        // Safety check: every selected file must still be a copy of the original shown for its group,
+        // which is not recomputed since the files' modification times may have changed
+        List<DeletionVerifier.Deletion> deletions = new ArrayList<>();
+        List<File> files = new ArrayList<>();
         for (DuplicateFileItem item : selectedItems) {
-            File file = item.getFile();
-            if (file.delete()) {
-                deleted++;
-                deletedItems.add(item);
-                logger.info("Deleted file: {}", file.getAbsolutePath());
-            } else {
-                errors.add(file.getName());
-                logger.warn("Failed to delete file: {}", file.getAbsolutePath());
+            if (item.getGroup() != null) {
+                deletions.add(new DeletionVerifier.Deletion(item.getGroup(), item.getOriginal(), item.getFile()));
             }
+            files.add(item.getFile());
         }
         
-        // Show summary
+        deleteInBackground(deletions, files, File::getName, outcome -> {
+            showDeletionSummary(outcome, ", ");
+            
+            // Refresh view by removing successfully deleted items from UI
+            resultsContainer.getChildren().removeIf(node -> node instanceof DuplicateFileItem item
+                    && outcome.deleted().contains(item.getFile()));
+        });
+    }
+    
+    /**
+     * Verifies and deletes the files on a background thread, since verification may read them all.
+     * The dialog is disabled until it is done.
+     *
+     * @param deletions the checks the files must pass before they are deleted
+     * @param files the files to delete, in order; those without a check are deleted as they are
+     * @param label names a file in the errors shown to the user
+     * @param onDone handles the outcome on the JavaFX thread
+     */
+    private void deleteInBackground(List<DeletionVerifier.Deletion> deletions, List<File> files,
+                                    Function<File, String> label, Consumer<DeletionOutcome> onDone) {
+        Task<DeletionOutcome> task = new Task<>() {
+            @Override
+            protected DeletionOutcome call() {
+                // Safety check: every duplicate must still be a copy of its original
+                Map<File, DeletionVerifier.Failure> failures = new DeletionVerifier().verify(deletions);
+                
+                List<File> deleted = new ArrayList<>();
+                List<String> errors = new ArrayList<>();
+                for (File file : files) {
+                    DeletionVerifier.Failure failure = failures.get(file);
+                    if (failure != null) {
+                        logger.warn("Not deleting {}: {}", file.getAbsolutePath(), failure);
+                        errors.add(label.apply(file) + " (" + describe(failure) + ")");
+                    } else if (file.delete()) {
+                        deleted.add(file);
+                        logger.info("Deleted duplicate file: {}", file.getAbsolutePath());
+                    } else {
+                        errors.add(label.apply(file));
+                        logger.warn("Failed to delete file: {}", file.getAbsolutePath());
+                    }
+                }
+                return new DeletionOutcome(deleted, errors);
+            }
+        };
+        
+        task.setOnSucceeded(e -> {
+            mainContainer.setDisable(false);
+            onDone.accept(task.getValue());
+        });
+        
+        task.setOnFailed(e -> {
+            mainContainer.setDisable(false);
+            logger.error("Deletion failed", task.getException());
+            showError(messages.getString("error.delete.failed"));
+        });
+        
+        mainContainer.setDisable(true);
+        Thread deleteThread = new Thread(task);
+        deleteThread.setDaemon(true);
+        deleteThread.start();
+    }
+    
+    /**
+     * @param separator separates the files listed as errors
+     */
+    private void showDeletionSummary(DeletionOutcome outcome, String separator) {
         Alert summary = new Alert(Alert.AlertType.INFORMATION);
         summary.initOwner(dialog);
         summary.setTitle(messages.getString("delete.summary.title"));
         summary.setHeaderText(
-            String.format(messages.getString("delete.summary.header"), deleted)
+            String.format(messages.getString("delete.summary.header"), outcome.deleted().size())
         );
         
-        if (!errors.isEmpty()) {
+        if (!outcome.errors().isEmpty()) {
             summary.setContentText(
-                messages.getString("delete.summary.errors") + "\n" + String.join(", ", errors)
+                messages.getString("delete.summary.errors") + "\n" + String.join(separator, outcome.errors())
             );
         }
         
         summary.showAndWait();
-        
-        // Refresh view by removing successfully deleted items from UI
-        resultsContainer.getChildren().removeAll(deletedItems);
+    }
+    
+    /**
+     * Returns the localized reason a file was not deleted
+     */
+    private String describe(DeletionVerifier.Failure failure) {
+        return messages.getString("delete.verify." + failure.name().toLowerCase(Locale.ROOT));
     }
     
     private void cancelScan() {
@@ -464,4 +564,11 @@ private String smallButtonStyle() {
     private String formatFileSize(long bytes) {
         return com.jesusluna.duplicateremover.util.FileUtils.formatFileSize(bytes);
     }
+    
+    /**
+     * @param deleted the files deleted
+     * @param errors the files not deleted, with the reason when they failed verification
+     */
+    private record DeletionOutcome(List<File> deleted, List<String> errors) {
+    }
 }
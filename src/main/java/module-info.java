@@ -11,7 +11,11 @@
     
     exports com.jesusluna.duplicateremover;
     exports com.jesusluna.duplicateremover.service;
+    exports com.jesusluna.duplicateremover.service.hash;
+    exports com.jesusluna.duplicateremover.service.io;
     exports com.jesusluna.duplicateremover.model;
     exports com.jesusluna.duplicateremover.ui;
     exports com.jesusluna.duplicateremover.util;
+
+    uses com.jesusluna.duplicateremover.service.hash.HashAlgorithm;
 }
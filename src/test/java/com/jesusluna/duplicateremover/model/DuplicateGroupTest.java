@@ -167,4 +167,36 @@ public void testGetOriginalFileByPathWhenSameModificationDate(@TempDir Path temp
         // fileA should be original as it's lexicographically first
         assertEquals(fileA, group.getOriginalFile());
     }
+
+    @Test
+    public void testKind() {
+        DuplicateGroup exact = new DuplicateGroup("test-hash");
+        assertEquals(DuplicateGroup.Kind.EXACT, exact.getKind());
+        assertTrue(exact.isReclaimable());
+        assertTrue(exact.isIdentical());
+
+        DuplicateGroup links = new DuplicateGroup("(dev=1,ino=2)", DuplicateGroup.Kind.HARD_LINK);
+        assertEquals(DuplicateGroup.Kind.HARD_LINK, links.getKind());
+        assertFalse(links.isReclaimable());
+        assertFalse(links.isIdentical());
+
+        DuplicateGroup similar = new DuplicateGroup(HashKey.wrap(new byte[8]), "dHash", DuplicateGroup.Kind.SIMILAR);
+        assertEquals(DuplicateGroup.Kind.SIMILAR, similar.getKind());
+        assertTrue(similar.isReclaimable());
+        assertFalse(similar.isIdentical());
+    }
+
+    @Test
+    public void testScannedMetadataIsKept() {
+        DuplicateGroup group = new DuplicateGroup("test-hash");
+        ScannedFile scanned = new ScannedFile(new File("a.txt"), 10, 1234, null);
+        File plain = new File("b.txt");
+
+        group.addFile(scanned);
+        group.addFile(plain);
+
+        assertEquals(2, group.getFileCount());
+        assertSame(scanned, group.getScannedFile(scanned.getFile()));
+        assertNull(group.getScannedFile(plain), "Files added without metadata have none");
+    }
 }
@@ -0,0 +1,61 @@
+package com.jesusluna.duplicateremover.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for HashKey
+ */
+public class HashKeyTest {
+
+    @Test
+    public void testEqualDigestsAreEqualKeys() {
+        HashKey key1 = HashKey.wrap(new byte[] {1, 2, 3, (byte) 0xff});
+        HashKey key2 = HashKey.copyOf(new byte[] {1, 2, 3, (byte) 0xff});
+
+        assertEquals(key1, key2);
+        assertEquals(key1.hashCode(), key2.hashCode());
+
+        Map<HashKey, String> map = new HashMap<>();
+        map.put(key1, "group");
+        assertEquals("group", map.get(key2));
+    }
+
+    @Test
+    public void testDifferentDigestsAreDifferentKeys() {
+        assertNotEquals(HashKey.wrap(new byte[] {1, 2, 3}), HashKey.wrap(new byte[] {1, 2, 4}));
+        assertNotEquals(HashKey.wrap(new byte[] {1, 2, 3}), HashKey.wrap(new byte[] {1, 2, 3, 0}),
+                        "Digests of different lengths never match");
+    }
+
+    @Test
+    public void testHexRoundTrip() {
+        HashKey key = HashKey.wrap(new byte[] {0x00, 0x0f, (byte) 0xab, (byte) 0xff});
+
+        assertEquals("000fabff", key.toHex());
+        assertEquals(key, HashKey.fromHex("000FABFF"));
+        assertEquals("000fabff", HashKey.fromHex("000FABFF").toHex());
+        assertEquals(4, key.length());
+    }
+
+    @Test
+    public void testFromHexRejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> HashKey.fromHex("abc"));
+        assertThrows(IllegalArgumentException.class, () -> HashKey.fromHex("zz"));
+    }
+
+    @Test
+    public void testCopyOfDoesNotShareArray() {
+        byte[] bytes = {1, 2, 3};
+        HashKey key = HashKey.copyOf(bytes);
+        bytes[0] = 9;
+
+        assertEquals("010203", key.toHex());
+        key.toByteArray()[1] = 9;
+        assertEquals("010203", key.toHex());
+    }
+}
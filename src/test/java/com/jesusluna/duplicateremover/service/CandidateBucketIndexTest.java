@@ -0,0 +1,76 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.ScannedFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for CandidateBucketIndex
+ */
+public class CandidateBucketIndexTest {
+
+    /**
+     * Helper method to create a scanned file without touching the file system
+     */
+    private ScannedFile file(String name, long size) {
+        return new ScannedFile(new File(name), size, 0, null);
+    }
+
+    @Test
+    public void testUniqueKeysAreNotPromoted() {
+        CandidateBucketIndex<Long> index = new CandidateBucketIndex<>();
+
+        assertTrue(index.add(100L, file("a.txt", 100)).isEmpty());
+        assertTrue(index.add(200L, file("b.txt", 200)).isEmpty());
+        assertTrue(index.add(300L, file("c.txt", 300)).isEmpty());
+
+        assertEquals(0, index.getPromotedFileCount());
+        assertEquals(3, index.getUnpromotedFileCount());
+        assertEquals(600, index.getUnpromotedBytes());
+    }
+
+    @Test
+    public void testSecondMemberPromotesBothFiles() {
+        CandidateBucketIndex<Long> index = new CandidateBucketIndex<>();
+        ScannedFile a = file("a.txt", 100);
+        ScannedFile b = file("b.txt", 100);
+
+        assertTrue(index.add(100L, a).isEmpty());
+        List<ScannedFile> promoted = index.add(100L, b);
+
+        assertEquals(List.of(a, b), promoted, "Both members should be promoted together");
+        assertEquals(2, index.getPromotedFileCount());
+        assertEquals(0, index.getUnpromotedFileCount());
+    }
+
+    @Test
+    public void testLaterMembersArePromotedOnArrival() {
+        CandidateBucketIndex<String> index = new CandidateBucketIndex<>();
+        ScannedFile c = file("c.txt", 10);
+
+        index.add("key", file("a.txt", 10));
+        index.add("key", file("b.txt", 10));
+        List<ScannedFile> promoted = index.add("key", c);
+
+        assertEquals(List.of(c), promoted, "Only the new file should be promoted");
+        assertEquals(3, index.getPromotedFileCount());
+    }
+
+    @Test
+    public void testTotals() {
+        CandidateBucketIndex<Long> index = new CandidateBucketIndex<>();
+        index.add(10L, file("a.txt", 10));
+        index.add(10L, file("b.txt", 10));
+        index.add(0L, file("c.txt", 0));
+
+        assertEquals(3, index.getFileCount());
+        assertEquals(20, index.getTotalBytes());
+        assertEquals(2, index.getBucketCount());
+        assertEquals(1, index.getUnpromotedFileCount());
+        assertEquals(0, index.getUnpromotedBytes());
+    }
+}
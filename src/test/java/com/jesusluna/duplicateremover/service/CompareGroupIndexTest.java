@@ -0,0 +1,69 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.ScannedFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for CompareGroupIndex
+ */
+public class CompareGroupIndexTest {
+
+    /**
+     * Helper method to create a scanned file without touching the file system
+     */
+    private ScannedFile file(String name, long size) {
+        return new ScannedFile(new File(name), size, 0, null);
+    }
+
+    @Test
+    public void testSmallGroupsAreHeldUntilDrained() {
+        CompareGroupIndex<Long> index = new CompareGroupIndex<>(3);
+        ScannedFile a = file("a.txt", 100);
+        ScannedFile b = file("b.txt", 100);
+        ScannedFile c = file("c.txt", 200);
+        ScannedFile d = file("d.txt", 200);
+
+        assertTrue(index.add(100L, a).isEmpty());
+        assertTrue(index.add(100L, b).isEmpty());
+        assertTrue(index.add(200L, c).isEmpty());
+        assertTrue(index.add(200L, d).isEmpty());
+        assertEquals(4, index.getHeldFileCount());
+
+        assertEquals(List.of(List.of(a, b), List.of(c, d)), index.drain());
+        assertEquals(0, index.getHeldFileCount());
+        assertTrue(index.drain().isEmpty());
+    }
+
+    @Test
+    public void testGroupPastTheLimitIsReleased() {
+        CompareGroupIndex<Long> index = new CompareGroupIndex<>(2);
+        ScannedFile a = file("a.txt", 100);
+        ScannedFile b = file("b.txt", 100);
+        ScannedFile c = file("c.txt", 100);
+        ScannedFile d = file("d.txt", 100);
+
+        index.add(100L, a);
+        index.add(100L, b);
+        assertEquals(List.of(a, b, c), index.add(100L, c), "Every held file should be released with the new one");
+        assertEquals(List.of(d), index.add(100L, d), "Later files should be hashed on arrival");
+        assertTrue(index.drain().isEmpty());
+    }
+
+    @Test
+    public void testReleaseReturnsHeldFiles() {
+        CompareGroupIndex<String> index = new CompareGroupIndex<>(3);
+        ScannedFile a = file("a.txt", 100);
+        ScannedFile b = file("b.txt", 100);
+
+        index.add("key", a);
+        assertEquals(List.of(a), index.release("key"));
+        assertEquals(List.of(b), index.add("key", b));
+        assertTrue(index.release("other").isEmpty());
+        assertEquals(0, index.getHeldFileCount());
+    }
+}
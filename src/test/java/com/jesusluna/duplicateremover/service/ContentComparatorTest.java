@@ -0,0 +1,105 @@
+package com.jesusluna.duplicateremover.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ContentComparator
+ */
+public class ContentComparatorTest {
+
+    private static final int BLOCK_SIZE = 4096;
+
+    private final ContentComparator comparator = new ContentComparator(BLOCK_SIZE);
+
+    /**
+     * Helper method to create a file filled with a repeating byte pattern, with one byte changed
+     *
+     * @param flipped position of the changed byte, or -1 for none
+     */
+    private File createFile(Path tempDir, String filename, int size, int flipped) throws IOException {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        if (flipped >= 0) {
+            content[flipped] ^= 0x7f;
+        }
+        File file = tempDir.resolve(filename).toFile();
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    @Test
+    public void testIdenticalFilesFormOneClass(@TempDir Path tempDir) throws IOException {
+        File a = createFile(tempDir, "a.bin", 10 * BLOCK_SIZE + 17, -1);
+        File b = createFile(tempDir, "b.bin", 10 * BLOCK_SIZE + 17, -1);
+
+        ContentComparator.Comparison comparison = comparator.compare(List.of(a, b));
+
+        assertEquals(List.of(List.of(a, b)), comparison.classes());
+        assertEquals(2L * (10 * BLOCK_SIZE + 17), comparison.bytesRead(), "Identical files are read once each");
+    }
+
+    @Test
+    public void testEarlyDifferenceStopsReading(@TempDir Path tempDir) throws IOException {
+        File a = createFile(tempDir, "a.bin", 100 * BLOCK_SIZE, -1);
+        File b = createFile(tempDir, "b.bin", 100 * BLOCK_SIZE, 10);
+
+        ContentComparator.Comparison comparison = comparator.compare(List.of(a, b));
+
+        assertEquals(List.of(List.of(a), List.of(b)), comparison.classes());
+        assertEquals(2L * BLOCK_SIZE, comparison.bytesRead(), "Only the first block should be read");
+    }
+
+    @Test
+    public void testThreeFilesSplitIntoClasses(@TempDir Path tempDir) throws IOException {
+        int size = 5 * BLOCK_SIZE;
+        File a = createFile(tempDir, "a.bin", size, -1);
+        File b = createFile(tempDir, "b.bin", size, size - 1);
+        File c = createFile(tempDir, "c.bin", size, -1);
+
+        ContentComparator.Comparison comparison = comparator.compare(List.of(a, b, c));
+
+        assertEquals(2, comparison.classes().size());
+        assertTrue(comparison.classes().contains(List.of(a, c)));
+        assertTrue(comparison.classes().contains(List.of(b)));
+    }
+
+    @Test
+    public void testLongerFileDiffers(@TempDir Path tempDir) throws IOException {
+        File a = createFile(tempDir, "a.bin", 3 * BLOCK_SIZE, -1);
+        File b = createFile(tempDir, "b.bin", 3 * BLOCK_SIZE + 1, -1);
+
+        assertEquals(List.of(List.of(a), List.of(b)), comparator.compare(List.of(a, b)).classes());
+    }
+
+    @Test
+    public void testEmptyFilesAreIdentical(@TempDir Path tempDir) throws IOException {
+        File a = Files.createFile(tempDir.resolve("a")).toFile();
+        File b = Files.createFile(tempDir.resolve("b")).toFile();
+
+        assertEquals(List.of(List.of(a, b)), comparator.compare(List.of(a, b)).classes());
+    }
+
+    @Test
+    public void testMissingFileThrows(@TempDir Path tempDir) throws IOException {
+        File a = createFile(tempDir, "a.bin", 100, -1);
+
+        assertThrows(IOException.class, () -> comparator.compare(List.of(a, tempDir.resolve("missing").toFile())));
+    }
+
+    @Test
+    public void testClassKeysAreDistinct() {
+        assertNotEquals(ContentComparator.classKey(1), ContentComparator.classKey(2));
+        assertEquals(ContentComparator.classKey(1), ContentComparator.classKey(1));
+    }
+}
@@ -0,0 +1,183 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.DuplicateGroup;
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.model.ScannedFile;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithms;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for DeletionVerifier
+ */
+public class DeletionVerifierTest {
+
+    private static final int REGION_SIZE = 4096;
+
+    private final DeletionVerifier verifier = new DeletionVerifier(4, REGION_SIZE);
+
+    /**
+     * Helper method to create a file filled with a repeating byte pattern, with one byte changed
+     *
+     * @param flipped position of the changed byte, or -1 for none
+     */
+    private File createFile(Path tempDir, String filename, int size, int flipped) throws IOException {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        if (flipped >= 0) {
+            content[flipped] ^= 0x7f;
+        }
+        File file = tempDir.resolve(filename).toFile();
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    /**
+     * Helper method to group files as a scan would, with their current metadata
+     */
+    private DuplicateGroup group(String algorithm, File... files) throws IOException {
+        DuplicateGroup group = new DuplicateGroup(HashKey.fromHex("abcd"), algorithm);
+        for (File file : files) {
+            group.addFile(ScannedFile.of(file, Files.readAttributes(file.toPath(), BasicFileAttributes.class)));
+        }
+        return group;
+    }
+
+    private Map<File, DeletionVerifier.Failure> verify(DuplicateGroup group, File original, File duplicate) {
+        return verifier.verify(List.of(new DeletionVerifier.Deletion(group, original, duplicate)));
+    }
+
+    @Test
+    public void testIdenticalCopyPasses(@TempDir Path tempDir) throws IOException {
+        File original = createFile(tempDir, "original.bin", 10 * REGION_SIZE + 3, -1);
+        File copy = createFile(tempDir, "copy.bin", 10 * REGION_SIZE + 3, -1);
+
+        assertTrue(verify(group(HashAlgorithms.XXH64.getName(), original, copy), original, copy).isEmpty());
+    }
+
+    @Test
+    public void testFastHashCollisionIsCaught(@TempDir Path tempDir) throws IOException {
+        File original = createFile(tempDir, "original.bin", 10 * REGION_SIZE, -1);
+        File copy = createFile(tempDir, "copy.bin", 10 * REGION_SIZE, 7 * REGION_SIZE + 5);
+
+        assertEquals(Map.of(copy, DeletionVerifier.Failure.CONTENT_DIFFERS),
+                     verify(group(HashAlgorithms.XXH64.getName(), original, copy), original, copy));
+    }
+
+    @Test
+    public void testCryptographicHashOnlyChecksMetadata(@TempDir Path tempDir) throws IOException {
+        File original = createFile(tempDir, "original.bin", REGION_SIZE, -1);
+        File copy = createFile(tempDir, "copy.bin", REGION_SIZE, 0);
+
+        // Different bytes are not looked at: SHA-256 rules out a collision
+        assertTrue(verify(group(HashAlgorithms.SHA_256.getName(), original, copy), original, copy).isEmpty());
+        assertFalse(DeletionVerifier.isComparedBeforeDeletion(group(ContentComparator.ALGORITHM_NAME)));
+        assertFalse(DeletionVerifier.isComparedBeforeDeletion(
+            group(ImageHashService.pixelHashType(HashAlgorithms.XXH64))));
+        assertTrue(DeletionVerifier.isPixelComparedBeforeDeletion(
+            group(ImageHashService.pixelHashType(HashAlgorithms.XXH64))));
+        assertFalse(DeletionVerifier.isPixelComparedBeforeDeletion(
+            group(ImageHashService.pixelHashType(HashAlgorithms.SHA_256))));
+        assertFalse(DeletionVerifier.isPixelComparedBeforeDeletion(group(HashAlgorithms.XXH64.getName())));
+        assertTrue(DeletionVerifier.isComparedBeforeDeletion(group("unknown")));
+        assertFalse(DeletionVerifier.isComparedBeforeDeletion(
+            new DuplicateGroup(HashKey.wrap(new byte[8]), ImageHashService.PERCEPTUAL_HASH_NAME, DuplicateGroup.Kind.SIMILAR)));
+    }
+
+    @Test
+    public void testFastPixelHashCollisionIsCaught(@TempDir Path tempDir) throws IOException {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 4) << 16 | (y * 5) << 8 | 0x40);
+            }
+        }
+        File original = tempDir.resolve("original.png").toFile();
+        ImageIO.write(image, "png", original);
+        File copy = tempDir.resolve("copy.bmp").toFile();
+        ImageIO.write(image, "bmp", copy);
+        image.setRGB(63, 47, 0xFFFFFF);
+        File retouched = tempDir.resolve("retouched.png").toFile();
+        ImageIO.write(image, "png", retouched);
+        DuplicateGroup group = group(ImageHashService.pixelHashType(HashAlgorithms.XXH64), original, copy, retouched);
+
+        Map<File, DeletionVerifier.Failure> failures = verifier.verify(List.of(
+            new DeletionVerifier.Deletion(group, original, copy),
+            new DeletionVerifier.Deletion(group, original, retouched)));
+
+        // The copy has other bytes but the same pixels; the retouched image differs in one pixel
+        assertEquals(Map.of(retouched, DeletionVerifier.Failure.CONTENT_DIFFERS), failures);
+    }
+
+    @Test
+    public void testModifiedDuplicateFails(@TempDir Path tempDir) throws IOException {
+        File original = createFile(tempDir, "original.bin", REGION_SIZE, -1);
+        File copy = createFile(tempDir, "copy.bin", REGION_SIZE, -1);
+        DuplicateGroup group = group(HashAlgorithms.SHA_256.getName(), original, copy);
+
+        Files.setLastModifiedTime(copy.toPath(), FileTime.fromMillis(copy.lastModified() + 60_000));
+
+        assertEquals(Map.of(copy, DeletionVerifier.Failure.CHANGED), verify(group, original, copy));
+    }
+
+    @Test
+    public void testModifiedOriginalFails(@TempDir Path tempDir) throws IOException {
+        File original = createFile(tempDir, "original.bin", REGION_SIZE, -1);
+        File copy = createFile(tempDir, "copy.bin", REGION_SIZE, -1);
+        DuplicateGroup group = group(HashAlgorithms.SHA_256.getName(), original, copy);
+
+        Files.write(original.toPath(), new byte[] {1, 2, 3});
+
+        assertEquals(Map.of(copy, DeletionVerifier.Failure.ORIGINAL_CHANGED), verify(group, original, copy));
+    }
+
+    @Test
+    public void testOriginalIsNeverDeleted(@TempDir Path tempDir) throws IOException {
+        File original = createFile(tempDir, "original.bin", REGION_SIZE, -1);
+        File copy = createFile(tempDir, "copy.bin", REGION_SIZE, -1);
+        DuplicateGroup group = group(HashAlgorithms.SHA_256.getName(), original, copy);
+
+        assertEquals(Map.of(original, DeletionVerifier.Failure.IS_ORIGINAL), 
+                     verify(group, new File(original.getPath()), original));
+    }
+
+    @Test
+    public void testMissingDuplicateFails(@TempDir Path tempDir) throws IOException {
+        File original = createFile(tempDir, "original.bin", REGION_SIZE, -1);
+        File copy = createFile(tempDir, "copy.bin", REGION_SIZE, -1);
+        DuplicateGroup group = group(HashAlgorithms.XXH64.getName(), original, copy);
+
+        Files.delete(copy.toPath());
+
+        assertEquals(Map.of(copy, DeletionVerifier.Failure.MISSING), verify(group, original, copy));
+    }
+
+    @Test
+    public void testOnlyFailingDuplicatesAreReported(@TempDir Path tempDir) throws IOException {
+        File original = createFile(tempDir, "original.bin", 3 * REGION_SIZE, -1);
+        File good = createFile(tempDir, "good.bin", 3 * REGION_SIZE, -1);
+        File bad = createFile(tempDir, "bad.bin", 3 * REGION_SIZE, 3 * REGION_SIZE - 1);
+        DuplicateGroup group = group(HashAlgorithms.MURMUR3_128.getName(), original, good, bad);
+
+        Map<File, DeletionVerifier.Failure> failures = verifier.verify(List.of(
+            new DeletionVerifier.Deletion(group, original, good),
+            new DeletionVerifier.Deletion(group, original, bad)));
+
+        assertEquals(Map.of(bad, DeletionVerifier.Failure.CONTENT_DIFFERS), failures);
+    }
+}
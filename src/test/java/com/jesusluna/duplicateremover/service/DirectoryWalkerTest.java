@@ -0,0 +1,103 @@
+package com.jesusluna.duplicateremover.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for DirectoryWalker
+ */
+public class DirectoryWalkerTest {
+
+    /**
+     * Helper method to create a tree with a fixed number of files per directory
+     */
+    private void createTree(Path root, int depth, int width, int filesPerDirectory) throws IOException {
+        for (int i = 0; i < filesPerDirectory; i++) {
+            Files.writeString(root.resolve("file" + i + ".txt"), "content " + i);
+        }
+        if (depth == 0) {
+            return;
+        }
+        for (int i = 0; i < width; i++) {
+            Path child = Files.createDirectory(root.resolve("dir" + i));
+            createTree(child, depth - 1, width, filesPerDirectory);
+        }
+    }
+
+    @Test
+    public void testWalkFindsAllFilesRecursively(@TempDir Path tempDir) throws IOException {
+        // 1 + 3 + 9 + 27 directories with 2 files each
+        createTree(tempDir, 3, 3, 2);
+
+        Set<Path> found = ConcurrentHashMap.newKeySet();
+        DirectoryWalker walker = new DirectoryWalker(4, true);
+        walker.walk(tempDir, (file, attributes) -> found.add(file), () -> false);
+
+        assertEquals(80, found.size());
+        assertEquals(40, walker.getDirectoryCount());
+        assertEquals(80, walker.getFileCount());
+    }
+
+    @Test
+    public void testWalkWithoutRecursionOnlyListsRoot(@TempDir Path tempDir) throws IOException {
+        createTree(tempDir, 2, 2, 3);
+
+        Set<Path> found = ConcurrentHashMap.newKeySet();
+        DirectoryWalker walker = new DirectoryWalker(4, false);
+        walker.walk(tempDir, (file, attributes) -> found.add(file), () -> false);
+
+        assertEquals(3, found.size());
+        assertEquals(1, walker.getDirectoryCount());
+    }
+
+    @Test
+    public void testWalkReportsFileSizeFromAttributes(@TempDir Path tempDir) throws IOException {
+        Files.writeString(tempDir.resolve("a.txt"), "12345");
+
+        AtomicLong size = new AtomicLong(-1);
+        new DirectoryWalker(2, true).walk(tempDir, (file, attributes) -> size.set(attributes.size()), () -> false);
+
+        assertEquals(5, size.get());
+    }
+
+    @Test
+    public void testWalkHandlesVeryDeepTree(@TempDir Path tempDir) throws IOException {
+        Path current = tempDir;
+        for (int i = 0; i < 300; i++) {
+            current = Files.createDirectory(current.resolve("d"));
+        }
+        Files.writeString(current.resolve("deep.txt"), "deep");
+
+        Set<Path> found = ConcurrentHashMap.newKeySet();
+        new DirectoryWalker(4, true).walk(tempDir, (file, attributes) -> found.add(file), () -> false);
+
+        assertEquals(Set.of(current.resolve("deep.txt")), found);
+    }
+
+    @Test
+    public void testWalkStopsWhenCancelled(@TempDir Path tempDir) throws IOException {
+        createTree(tempDir, 2, 3, 5);
+
+        Set<Path> found = ConcurrentHashMap.newKeySet();
+        new DirectoryWalker(2, true).walk(tempDir, (file, attributes) -> found.add(file), () -> true);
+
+        assertTrue(found.isEmpty(), "No file should be reported once cancelled");
+    }
+
+    @Test
+    public void testWalkIgnoresMissingRoot(@TempDir Path tempDir) {
+        DirectoryWalker walker = new DirectoryWalker(2, true);
+        walker.walk(tempDir.resolve("missing"), (file, attributes) -> fail("No files expected"), () -> false);
+
+        assertEquals(1, walker.getErrorCount());
+    }
+}
@@ -1,18 +1,30 @@
 package com.jesusluna.duplicateremover.service;
 
+import com.jesusluna.duplicateremover.model.DuplicateGroup;
+import com.jesusluna.duplicateremover.service.io.ReadOrdering;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Test class for DuplicateFileScanner
- * Note: Full Task tests are skipped as they require JavaFX toolkit initialization
+ * Note: scans run the task body directly, without a JavaFX toolkit
  */
 public class DuplicateFileScannerTest {
 
@@ -63,4 +75,274 @@ public void testIsImageFileCaseInsensitive(@TempDir Path tempDir) throws IOExcep
         assertTrue(DuplicateFileScanner.isImageFile(jpgUpperCase));
         assertTrue(DuplicateFileScanner.isImageFile(pngMixedCase));
     }
+
+    @Test
+    public void testHardLinksReadOnceAndReportedApart(@TempDir Path tempDir) throws Exception {
+        byte[] content = new byte[100_000];
+        Path original = Files.write(tempDir.resolve("original.bin"), content);
+        Path link;
+        try {
+            link = Files.createLink(tempDir.resolve("link.bin"), original);
+        } catch (UnsupportedOperationException | IOException e) {
+            return; // File system without hard links
+        }
+        Path copy = Files.write(tempDir.resolve("copy.bin"), content);
+        Path otherLink = Files.createLink(tempDir.resolve("other-link.bin"), Files.write(tempDir.resolve("other.bin"), new byte[5]));
+
+        HeadlessScanner scanner = new HeadlessScanner(tempDir.toFile(), new ScanOptions().setIncludeSubfolders(true));
+        List<DuplicateGroup> groups = scanner.scan();
+
+        List<DuplicateGroup> exact = groups.stream().filter(DuplicateGroup::isReclaimable).toList();
+        List<DuplicateGroup> linked = groups.stream().filter(group -> !group.isReclaimable()).toList();
+        assertEquals(1, exact.size(), "One inode each for original and copy");
+        assertEquals(2, exact.get(0).getFileCount());
+        assertTrue(exact.get(0).getFiles().contains(copy.toFile()));
+        assertEquals(2, linked.size());
+        for (DuplicateGroup group : linked) {
+            assertEquals(DuplicateGroup.Kind.HARD_LINK, group.getKind());
+            assertEquals(2, group.getFileCount());
+        }
+        Set<File> linkedFiles = Set.of(link.toFile(), original.toFile(), otherLink.toFile(), tempDir.resolve("other.bin").toFile());
+        assertTrue(linked.stream().flatMap(group -> group.getFiles().stream()).allMatch(linkedFiles::contains));
+
+        assertEquals(2, scanner.getStatistics().getHardLinkFiles());
+        assertEquals(2, scanner.getStatistics().getFullHashFiles() + scanner.getStatistics().getComparedFiles(), 
+                     "Each inode of the shared size read once");
+    }
+
+    @Test
+    public void testEmptyAndTinyFilesGroupedByContent(@TempDir Path tempDir) throws Exception {
+        Path empty1 = Files.createFile(tempDir.resolve("empty1"));
+        Path empty2 = Files.createFile(tempDir.resolve("empty2"));
+        Files.writeString(tempDir.resolve("a.conf"), "x=1");
+        Files.writeString(tempDir.resolve("b.conf"), "x=1");
+        Files.writeString(tempDir.resolve("c.conf"), "x=2");
+
+        HeadlessScanner scanner = new HeadlessScanner(tempDir.toFile(), new ScanOptions().setIncludeSubfolders(true));
+        List<DuplicateGroup> groups = scanner.scan();
+
+        assertEquals(2, groups.size());
+        assertTrue(groups.stream().anyMatch(group -> 
+            group.getFiles().containsAll(List.of(empty1.toFile(), empty2.toFile()))));
+        assertTrue(groups.stream().anyMatch(group -> 
+            group.getFiles().containsAll(List.of(tempDir.resolve("a.conf").toFile(), tempDir.resolve("b.conf").toFile()))));
+        assertEquals(2, scanner.getStatistics().getEmptyFiles());
+        assertEquals(3, scanner.getStatistics().getInlineKeyFiles());
+        assertEquals(0, scanner.getStatistics().getFullHashFiles());
+    }
+
+    @Test
+    public void testSmallGroupsVerifiedByComparison(@TempDir Path tempDir) throws Exception {
+        byte[] large = new byte[100_000];
+        Arrays.fill(large, (byte) 7);
+        Files.write(tempDir.resolve("large1.bin"), large);
+        Files.write(tempDir.resolve("large2.bin"), large);
+        // Too small to be fingerprinted; one of them differs in its last byte
+        Files.writeString(tempDir.resolve("a.txt"), "x".repeat(1000));
+        Files.writeString(tempDir.resolve("b.txt"), "x".repeat(1000));
+        Files.writeString(tempDir.resolve("c.txt"), "x".repeat(999) + "y");
+        for (int i = 0; i < 4; i++) {
+            Files.writeString(tempDir.resolve("copy" + i + ".txt"), "z".repeat(2000));
+        }
+
+        HeadlessScanner scanner = new HeadlessScanner(tempDir.toFile(), new ScanOptions().setIncludeSubfolders(true));
+        List<DuplicateGroup> groups = scanner.scan();
+
+        assertEquals(3, groups.size());
+        DuplicateGroup largeGroup = groups.stream()
+            .filter(group -> group.getFiles().contains(tempDir.resolve("large1.bin").toFile()))
+            .findFirst().orElseThrow();
+        assertEquals(List.of(tempDir.resolve("large1.bin").toFile(), tempDir.resolve("large2.bin").toFile()), 
+                     largeGroup.getFiles().stream().sorted().toList());
+        assertEquals(ContentComparator.ALGORITHM_NAME, largeGroup.getHashAlgorithm());
+        assertTrue(groups.stream().anyMatch(group -> group.getFileCount() == 2 
+            && group.getFiles().containsAll(List.of(tempDir.resolve("a.txt").toFile(), tempDir.resolve("b.txt").toFile()))));
+        assertTrue(groups.stream().anyMatch(group -> group.getFileCount() == 4));
+
+        ScanStatistics statistics = scanner.getStatistics();
+        assertEquals(2, statistics.getComparedGroups());
+        assertEquals(5, statistics.getComparedFiles());
+        assertEquals(4, statistics.getFullHashFiles(), "Only the group larger than the limit should be hashed");
+    }
+
+    @Test
+    public void testComparisonCanBeDisabled(@TempDir Path tempDir) throws Exception {
+        Files.writeString(tempDir.resolve("a.txt"), "x".repeat(1000));
+        Files.writeString(tempDir.resolve("b.txt"), "x".repeat(1000));
+
+        HeadlessScanner scanner = new HeadlessScanner(tempDir.toFile(), 
+            new ScanOptions().setIncludeSubfolders(true).setDirectCompareLimit(0));
+        List<DuplicateGroup> groups = scanner.scan();
+
+        assertEquals(1, groups.size());
+        assertEquals(0, scanner.getStatistics().getComparedFiles());
+        assertEquals(2, scanner.getStatistics().getFullHashFiles());
+    }
+
+    @Test
+    public void testPipelinedHashesServedFromCacheOnRescan(@TempDir Path tempDir) throws Exception {
+        Path directory = Files.createDirectory(tempDir.resolve("files"));
+        for (String name : new String[] {"a", "b", "c"}) {
+            Files.writeString(directory.resolve(name + ".txt"), "x".repeat(10_000));
+        }
+        Files.writeString(directory.resolve("d.txt"), "y".repeat(10_000));
+        ScanOptions options = new ScanOptions().setIncludeSubfolders(true).setDirectCompareLimit(0)
+            .setReadThreads(2).setReadOrdering(ReadOrdering.PHYSICAL)
+            .setHashCacheFile(tempDir.resolve("hashes.cache"));
+
+        HeadlessScanner first = new HeadlessScanner(directory.toFile(), options);
+        assertEquals(1, first.scan().size());
+        assertEquals(4, first.getStatistics().getCacheMisses());
+        assertEquals(4, first.getPipelineStatistics().getFilesHashed());
+        assertEquals(1, first.getPipelineStatistics().getPeakPendingFiles(), 
+                     "Cache misses reach the pipeline one at a time, within the device's single read");
+
+        HeadlessScanner rescan = new HeadlessScanner(directory.toFile(), options);
+        List<DuplicateGroup> groups = rescan.scan();
+        assertEquals(1, groups.size());
+        assertEquals(3, groups.get(0).getFileCount());
+        assertEquals(4, rescan.getStatistics().getCacheHits());
+        assertEquals(0, rescan.getStatistics().getFullHashFiles());
+    }
+
+    @Test
+    public void testNewCopyOfCachedFileFoundOnRescan(@TempDir Path tempDir) throws Exception {
+        Path directory = Files.createDirectory(tempDir.resolve("files"));
+        byte[] content = new byte[200 * 1024];
+        new Random(5).nextBytes(content);
+        Files.write(directory.resolve("a.bin"), content);
+        Files.write(directory.resolve("a2.bin"), content);
+        ScanOptions options = new ScanOptions().setIncludeSubfolders(true).setDirectCompareLimit(0)
+            .setHashCacheFile(tempDir.resolve("hashes.cache"));
+
+        List<DuplicateGroup> first = new HeadlessScanner(directory.toFile(), options).scan();
+        assertEquals(1, first.size());
+        assertEquals(2, first.get(0).getFileCount());
+
+        Files.write(directory.resolve("b.bin"), content);
+        HeadlessScanner rescan = new HeadlessScanner(directory.toFile(), options);
+        List<DuplicateGroup> groups = rescan.scan();
+
+        assertEquals(1, groups.size());
+        assertEquals(3, groups.get(0).getFileCount());
+        assertEquals(1, rescan.getStatistics().getPrefilterFiles(), "Only the new file is fingerprinted");
+        assertEquals(2, rescan.getStatistics().getCacheHits());
+        assertEquals(1, rescan.getStatistics().getFullHashFiles());
+    }
+
+    @Test
+    public void testTreeHashedOnPhysicalDevice(@TempDir Path tempDir) throws Exception {
+        byte[] content = new byte[1024 * 1024];
+        new Random(3).nextBytes(content);
+        Files.write(tempDir.resolve("a.bin"), content);
+        Files.write(tempDir.resolve("b.bin"), content);
+        content[content.length - 1]++;
+        Files.write(tempDir.resolve("c.bin"), content);
+        ScanOptions options = new ScanOptions().setIncludeSubfolders(true).setDirectCompareLimit(0)
+            .setParallelism(4).setReadOrdering(ReadOrdering.PHYSICAL)
+            .setTreeHashThreshold(512 * 1024).setTreeHashChunkSize(128 * 1024);
+
+        HeadlessScanner scanner = new HeadlessScanner(tempDir.toFile(), options);
+        List<DuplicateGroup> groups = scanner.scan();
+
+        assertEquals(1, groups.size());
+        assertEquals(List.of(tempDir.resolve("a.bin").toFile(), tempDir.resolve("b.bin").toFile()), 
+                     groups.get(0).getFiles().stream().sorted().toList());
+        assertEquals(2, scanner.getStatistics().getTreeHashFiles(), "The third file is ruled out by its fingerprint");
+    }
+
+    @Test
+    public void testByteIdenticalImagesDecodedOnce(@TempDir Path tempDir) throws Exception {
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 30; y++) {
+            for (int x = 0; x < 40; x++) {
+                image.setRGB(x, y, x * 6 << 16 | y * 8 << 8 | 0x40);
+            }
+        }
+        ImageIO.write(image, "png", tempDir.resolve("photo.png").toFile());
+        Files.copy(tempDir.resolve("photo.png"), tempDir.resolve("copy1.png"));
+        Files.copy(tempDir.resolve("photo.png"), tempDir.resolve("copy2.png"));
+        // Same pixels in other bytes, which must still be decoded
+        ImageIO.write(image, "bmp", tempDir.resolve("photo.bmp").toFile());
+        image.setRGB(0, 0, 0);
+        ImageIO.write(image, "png", tempDir.resolve("other.png").toFile());
+
+        HeadlessScanner scanner = new HeadlessScanner(tempDir.toFile(), 
+            new ScanOptions().setIncludeSubfolders(true).setUseAdvancedImageDetection(true));
+        List<DuplicateGroup> groups = scanner.scan();
+
+        assertEquals(1, groups.size());
+        assertEquals(4, groups.get(0).getFileCount());
+        assertFalse(groups.get(0).getFiles().contains(tempDir.resolve("other.png").toFile()));
+        assertEquals(3, scanner.getStatistics().getImagesDecoded());
+        assertEquals(2, scanner.getStatistics().getImageDecodesShared());
+    }
+
+    @Test
+    public void testImagesOfUniqueDimensionsNotDecoded(@TempDir Path tempDir) throws Exception {
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        ImageIO.write(image, "png", tempDir.resolve("a.png").toFile());
+        ImageIO.write(image, "bmp", tempDir.resolve("a.bmp").toFile());
+        ImageIO.write(new BufferedImage(41, 30, BufferedImage.TYPE_INT_RGB), "png", tempDir.resolve("wide.png").toFile());
+        ImageIO.write(new BufferedImage(40, 31, BufferedImage.TYPE_INT_RGB), "png", tempDir.resolve("tall.png").toFile());
+        // Unreadable headers are hashed anyway, falling back to their content
+        Files.writeString(tempDir.resolve("broken1.jpg"), "not an image");
+        Files.writeString(tempDir.resolve("broken2.jpg"), "not an image");
+
+        HeadlessScanner scanner = new HeadlessScanner(tempDir.toFile(), 
+            new ScanOptions().setIncludeSubfolders(true).setUseAdvancedImageDetection(true));
+        List<DuplicateGroup> groups = scanner.scan();
+
+        assertEquals(2, groups.size());
+        assertTrue(groups.stream().anyMatch(group -> group.getFiles().containsAll(
+            List.of(tempDir.resolve("a.png").toFile(), tempDir.resolve("a.bmp").toFile()))));
+        assertTrue(groups.stream().anyMatch(group -> group.getFiles().containsAll(
+            List.of(tempDir.resolve("broken1.jpg").toFile(), tempDir.resolve("broken2.jpg").toFile()))));
+        assertEquals(2, scanner.getStatistics().getImageDimensionsUnique());
+        assertEquals(4, scanner.getStatistics().getImagesDecoded() + scanner.getStatistics().getImageDecodesShared());
+    }
+
+    @Test
+    public void testSimilarImagesReportedApart(@TempDir Path tempDir) throws Exception {
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setPaint(new GradientPaint(0, 0, Color.BLACK, 400, 300, Color.WHITE));
+        g2d.fillRect(0, 0, 400, 300);
+        g2d.setColor(Color.ORANGE);
+        g2d.fillOval(50, 50, 130, 150);
+        g2d.dispose();
+        ImageIO.write(image, "png", tempDir.resolve("photo.png").toFile());
+        Files.copy(tempDir.resolve("photo.png"), tempDir.resolve("copy.png"));
+        BufferedImage smaller = new BufferedImage(200, 150, BufferedImage.TYPE_INT_RGB);
+        g2d = smaller.createGraphics();
+        g2d.drawImage(image, 0, 0, 200, 150, null);
+        g2d.dispose();
+        ImageIO.write(smaller, "jpg", tempDir.resolve("resized.jpg").toFile());
+        BufferedImage other = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        g2d = other.createGraphics();
+        g2d.setPaint(new GradientPaint(0, 0, Color.WHITE, 400, 300, Color.BLACK));
+        g2d.fillRect(0, 0, 400, 300);
+        g2d.dispose();
+        ImageIO.write(other, "png", tempDir.resolve("other.png").toFile());
+
+        HeadlessScanner scanner = new HeadlessScanner(tempDir.toFile(), new ScanOptions().setIncludeSubfolders(true)
+            .setUseAdvancedImageDetection(true).setSimilarImageDistance(SimilarImageIndex.DEFAULT_MAX_DISTANCE));
+        List<DuplicateGroup> groups = scanner.scan();
+
+        assertEquals(2, groups.size());
+        DuplicateGroup exact = groups.get(0);
+        assertTrue(exact.isIdentical());
+        assertEquals(2, exact.getFileCount());
+        // Only the copy kept from the exact group is listed with the similar image
+        DuplicateGroup similar = groups.get(1);
+        assertEquals(DuplicateGroup.Kind.SIMILAR, similar.getKind());
+        assertEquals(ImageHashService.PERCEPTUAL_HASH_NAME, similar.getHashAlgorithm());
+        assertEquals(List.of(exact.getOriginalFile(), tempDir.resolve("resized.jpg").toFile()), similar.getFiles());
+        assertEquals(4, scanner.getStatistics().getPerceptualHashes());
+
+        HeadlessScanner exactOnly = new HeadlessScanner(tempDir.toFile(), 
+            new ScanOptions().setIncludeSubfolders(true).setUseAdvancedImageDetection(true));
+        assertEquals(1, exactOnly.scan().size());
+        assertEquals(0, exactOnly.getStatistics().getPerceptualHashes());
+    }
 }
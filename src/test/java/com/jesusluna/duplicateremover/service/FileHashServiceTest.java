@@ -1,5 +1,6 @@
 package com.jesusluna.duplicateremover.service;
 
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithms;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -9,6 +10,7 @@
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -242,4 +244,59 @@ public void testCalculateHashForDifferentImageTypes(@TempDir Path tempDir) throw
         // Should have same hash for same visual content saved twice
         assertEquals(hashPng1, hashPng2, "Same visual content should have same hash regardless of save order");
     }
+
+    @Test
+    public void testSelectedAlgorithmIsUsed(@TempDir Path tempDir) throws IOException {
+        File file1 = tempDir.resolve("file1.txt").toFile();
+        File file2 = tempDir.resolve("file2.txt").toFile();
+        try (FileWriter writer = new FileWriter(file1)) {
+            writer.write("The quick brown fox jumps over the lazy dog");
+        }
+        try (FileWriter writer = new FileWriter(file2)) {
+            writer.write("The quick brown fox jumps over the lazy dog");
+        }
+
+        FileHashService fastHashService = new FileHashService(true, HashAlgorithms.XXH64);
+
+        // XXH64 digests are 8 bytes (16 hex chars)
+        assertEquals("0b242d361fda71bc", fastHashService.calculateHash(file1));
+        assertTrue(fastHashService.areFilesIdentical(file1, file2));
+        assertNotEquals(FileHashService.contentHashType(HashAlgorithms.SHA_256),
+                        FileHashService.contentHashType(HashAlgorithms.XXH64));
+    }
+
+    @Test
+    public void testSecureContentKeyIsCryptographic(@TempDir Path tempDir) throws IOException {
+        File file = Files.writeString(tempDir.resolve("file.txt"), "The quick brown fox jumps over the lazy dog").toFile();
+        FileHashService fastHashService = new FileHashService(true, HashAlgorithms.XXH64);
+
+        // A fast scan hashes with SHA-256 instead, a SHA-256 scan reuses its content hash
+        assertEquals(hashService.calculateContentKey(file), fastHashService.calculateSecureContentKey(file));
+        assertEquals(hashService.calculateContentKey(file), hashService.calculateSecureContentKey(file));
+        assertEquals(32, fastHashService.calculateSecureContentKey(file).length());
+    }
+
+    @Test
+    public void testInlineKeyIsTheContent(@TempDir Path tempDir) throws IOException {
+        Path a = Files.writeString(tempDir.resolve("a.conf"), "key=value");
+        Path b = Files.writeString(tempDir.resolve("b.conf"), "key=value");
+        Path c = Files.writeString(tempDir.resolve("c.conf"), "key=other");
+        Path empty = Files.createFile(tempDir.resolve("empty"));
+
+        assertTrue(hashService.isInlineKeyed(Files.size(a)));
+        assertFalse(hashService.isInlineKeyed(FileHashService.DEFAULT_INLINE_KEY_THRESHOLD + 1));
+        assertEquals(hashService.calculateInlineKey(a), hashService.calculateInlineKey(b));
+        assertNotEquals(hashService.calculateInlineKey(a), hashService.calculateInlineKey(c));
+        assertEquals(FileHashService.EMPTY_KEY, hashService.calculateInlineKey(empty));
+        assertNotEquals(hashService.calculateKey(a.toFile()), hashService.calculateInlineKey(a),
+                        "Inline keys are told apart from digests");
+    }
+
+    @Test
+    public void testInlineKeyOfGrownFileFallsBackToHash(@TempDir Path tempDir) throws IOException {
+        FileHashService tinyInline = new FileHashService(new ScanOptions().setInlineKeyThreshold(4));
+        Path file = Files.writeString(tempDir.resolve("grown.txt"), "longer than four bytes");
+
+        assertEquals(tinyInline.calculateKey(file.toFile()), tinyInline.calculateInlineKey(file));
+    }
 }
@@ -0,0 +1,67 @@
+package com.jesusluna.duplicateremover.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for HammingIndex
+ */
+public class HammingIndexTest {
+
+    @Test
+    public void testDistanceCountsDifferingBits() {
+        assertEquals(0, HammingIndex.distance(0x1234L, 0x1234L));
+        assertEquals(1, HammingIndex.distance(0b1000L, 0b0000L));
+        assertEquals(64, HammingIndex.distance(0L, -1L));
+    }
+
+    @Test
+    public void testSearchFindsTheSameHashesAsBruteForce() {
+        Random random = new Random(42);
+        List<Long> hashes = new ArrayList<>();
+        HammingIndex<Integer> index = new HammingIndex<>();
+        for (int i = 0; i < 2000; i++) {
+            // Clusters of nearby hashes, as copies of the same image give
+            long hash = i % 4 == 0 || hashes.isEmpty()
+                ? random.nextLong() 
+                : hashes.get(random.nextInt(hashes.size())) ^ (1L << random.nextInt(64)) ^ (1L << random.nextInt(64));
+            hashes.add(hash);
+            index.add(hash, i);
+        }
+        assertEquals(2000, index.size());
+
+        for (int maxDistance : new int[] {0, 3, 10, 20}) {
+            for (int q = 0; q < 50; q++) {
+                long query = hashes.get(random.nextInt(hashes.size())) ^ (1L << random.nextInt(64));
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < hashes.size(); i++) {
+                    if (HammingIndex.distance(query, hashes.get(i)) <= maxDistance) {
+                        expected.add(i);
+                    }
+                }
+                List<Integer> found = index.search(query, maxDistance);
+                found.sort(null);
+                assertEquals(expected, found, "Distance " + maxDistance);
+            }
+        }
+    }
+
+    @Test
+    public void testSameHashCanBeAddedTwice() {
+        HammingIndex<String> index = new HammingIndex<>();
+        index.add(7L, "a");
+        index.add(7L, "b");
+        index.add(6L, "c");
+
+        List<String> found = index.search(7L, 0);
+        found.sort(null);
+        assertEquals(List.of("a", "b"), found);
+        assertEquals(3, index.search(7L, 1).size());
+        assertTrue(new HammingIndex<String>().search(7L, 64).isEmpty());
+    }
+}
@@ -0,0 +1,191 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.model.ScannedFile;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithms;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for HashCache
+ */
+public class HashCacheTest {
+
+    private static final HashKey HASH_A = HashKey.fromHex("0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef");
+    private static final HashKey HASH_B = HashKey.fromHex("fedcba9876543210fedcba9876543210fedcba9876543210fedcba9876543210");
+    private static final String TYPE = FileHashService.contentHashType(HashAlgorithms.DEFAULT);
+
+    /**
+     * Helper method to describe a file without touching the file system
+     */
+    private ScannedFile scanned(Path path, long size, long lastModified) {
+        return new ScannedFile(path.toFile(), size, lastModified, "(dev=1,ino=" + path.hashCode() + ")");
+    }
+
+    @Test
+    public void testGetReturnsStoredHash(@TempDir Path tempDir) {
+        HashCache cache = new HashCache(tempDir.resolve("cache.bin"));
+        ScannedFile file = scanned(tempDir.resolve("a.txt"), 100, 1000);
+
+        assertNull(cache.get(file, TYPE));
+        cache.put(file, TYPE, HASH_A);
+
+        assertEquals(HASH_A, cache.get(file, TYPE));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testChangedMetadataInvalidatesEntry(@TempDir Path tempDir) {
+        HashCache cache = new HashCache(tempDir.resolve("cache.bin"));
+        Path path = tempDir.resolve("a.txt");
+        cache.put(scanned(path, 100, 1000), TYPE, HASH_A);
+
+        assertNull(cache.get(scanned(path, 100, 2000), TYPE), "Modified time changed");
+        assertNull(cache.get(scanned(path, 101, 1000), TYPE), "Size changed");
+        assertNull(cache.get(new ScannedFile(path.toFile(), 100, 1000, "(dev=2,ino=9)"), TYPE), "File key changed");
+        assertNull(cache.get(scanned(path, 100, 1000), ImageHashService.pixelHashType(HashAlgorithms.DEFAULT)), "Hash type changed");
+        assertEquals(4, cache.getStaleCount());
+    }
+
+    @Test
+    public void testFingerprintKeptWithHash(@TempDir Path tempDir) throws IOException {
+        Path location = tempDir.resolve("cache.bin");
+        String fingerprintType = PartialHashService.fingerprintType(HashAlgorithms.DEFAULT);
+        HashCache cache = new HashCache(location);
+        ScannedFile file = scanned(tempDir.resolve("a.bin"), 100_000, 1000);
+        ScannedFile fingerprintOnly = scanned(tempDir.resolve("b.bin"), 100_000, 1000);
+
+        cache.putFingerprint(file, fingerprintType, HASH_B);
+        cache.put(file, TYPE, HASH_A);
+        cache.putFingerprint(fingerprintOnly, fingerprintType, HASH_B);
+        cache.save();
+
+        HashCache loaded = HashCache.load(location);
+        assertEquals(HASH_A, loaded.get(file, TYPE));
+        assertEquals(HASH_B, loaded.getFingerprint(file, fingerprintType));
+        assertEquals(HASH_B, loaded.getFingerprint(fingerprintOnly, fingerprintType));
+        assertFalse(loaded.contains(fingerprintOnly, TYPE));
+        assertNull(loaded.getFingerprint(scanned(tempDir.resolve("a.bin"), 100_000, 2000), fingerprintType), 
+                   "Modified time changed");
+
+        // A new version of the file drops the fingerprint of the old one
+        ScannedFile modified = scanned(tempDir.resolve("a.bin"), 100_000, 2000);
+        loaded.put(modified, TYPE, HASH_B);
+        assertNull(loaded.getFingerprint(modified, fingerprintType));
+    }
+
+    @Test
+    public void testSaveAndLoadRoundTrip(@TempDir Path tempDir) throws IOException {
+        Path location = tempDir.resolve("cache").resolve("cache.bin");
+        ScannedFile file = scanned(tempDir.resolve("a.txt"), 100, 1000);
+        HashCache cache = new HashCache(location);
+        cache.put(file, TYPE, HASH_A);
+        cache.save();
+
+        HashCache loaded = HashCache.load(location);
+
+        assertEquals(1, loaded.size());
+        assertEquals(HASH_A, loaded.get(file, TYPE));
+    }
+
+    @Test
+    public void testLoadIgnoresCorruptFile(@TempDir Path tempDir) throws IOException {
+        Path location = tempDir.resolve("cache.bin");
+        Files.writeString(location, "not a cache");
+
+        HashCache loaded = HashCache.load(location);
+
+        assertEquals(0, loaded.size());
+    }
+
+    @Test
+    public void testEvictUnseenDropsDeletedPathsUnderRoot(@TempDir Path tempDir) throws IOException {
+        Path location = tempDir.resolve("cache.bin");
+        Path root = tempDir.resolve("root");
+        ScannedFile kept = scanned(root.resolve("kept.txt"), 1, 1);
+        ScannedFile present = scanned(root.resolve("sub").resolve("present.txt"), 2, 2);
+        ScannedFile deleted = scanned(root.resolve("deleted.txt"), 3, 3);
+        ScannedFile outside = scanned(tempDir.resolve("other").resolve("outside.txt"), 4, 4);
+
+        HashCache original = new HashCache(location);
+        for (ScannedFile file : new ScannedFile[] {kept, present, deleted, outside}) {
+            original.put(file, TYPE, HASH_A);
+        }
+        original.save();
+
+        // Next scan: kept is looked up, present is only traversed, deleted is gone
+        HashCache cache = HashCache.load(location);
+        cache.get(kept, TYPE);
+        cache.markPresent(present);
+        int evicted = cache.evictUnseen(root, true);
+        cache.save();
+
+        assertEquals(1, evicted);
+        HashCache reloaded = HashCache.load(location);
+        assertTrue(reloaded.contains(kept, TYPE));
+        assertTrue(reloaded.contains(present, TYPE));
+        assertFalse(reloaded.contains(deleted, TYPE));
+        assertTrue(reloaded.contains(outside, TYPE), "Entries outside the scanned root are kept");
+    }
+
+    @Test
+    public void testEvictUnseenWithoutRecursionKeepsSubfolders(@TempDir Path tempDir) throws IOException {
+        HashCache original = new HashCache(tempDir.resolve("cache.bin"));
+        Path root = tempDir.resolve("root");
+        ScannedFile nested = scanned(root.resolve("sub").resolve("nested.txt"), 1, 1);
+        original.put(nested, TYPE, HASH_A);
+        original.save();
+
+        HashCache cache = HashCache.load(tempDir.resolve("cache.bin"));
+
+        assertEquals(0, cache.evictUnseen(root, false));
+    }
+
+    @Test
+    public void testSaveMergesEntriesFromOtherWriters(@TempDir Path tempDir) throws IOException {
+        Path location = tempDir.resolve("cache.bin");
+        ScannedFile first = scanned(tempDir.resolve("first.txt"), 1, 1);
+        ScannedFile second = scanned(tempDir.resolve("second.txt"), 2, 2);
+
+        HashCache writer1 = HashCache.load(location);
+        HashCache writer2 = HashCache.load(location);
+        writer1.put(first, TYPE, HASH_A);
+        writer2.put(second, TYPE, HASH_B);
+        writer1.save();
+        writer2.save();
+
+        HashCache reloaded = HashCache.load(location);
+        assertEquals(HASH_A, reloaded.get(first, TYPE));
+        assertEquals(HASH_B, reloaded.get(second, TYPE));
+    }
+
+    @Test
+    public void testCompactionDropsOldestBeyondMaxEntries(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Path location = tempDir.resolve("cache.bin");
+        HashCache cache = new HashCache(location, Long.MAX_VALUE / 2, 2);
+        ScannedFile oldest = scanned(tempDir.resolve("a.txt"), 1, 1);
+        cache.put(oldest, TYPE, HASH_A);
+        Thread.sleep(5);
+        cache.put(scanned(tempDir.resolve("b.txt"), 2, 2), TYPE, HASH_A);
+        Thread.sleep(5);
+        cache.put(scanned(tempDir.resolve("c.txt"), 3, 3), TYPE, HASH_A);
+
+        cache.save();
+
+        assertEquals(2, cache.size());
+        assertFalse(cache.contains(oldest, TYPE));
+    }
+
+    @Test
+    public void testDefaultLocationIsInUserHome() {
+        assertTrue(HashCache.defaultLocation().startsWith(new File(System.getProperty("user.home")).toPath()));
+    }
+}
@@ -0,0 +1,96 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.DuplicateGroup;
+import com.jesusluna.duplicateremover.model.HashKey;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for HashGroupIndex
+ */
+public class HashGroupIndexTest {
+
+    private static HashKey key(int value) {
+        return HashKey.wrap(new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value});
+    }
+
+    @Test
+    public void testFilesWithTheSameHashShareAGroup() {
+        HashGroupIndex index = new HashGroupIndex("SHA-256");
+
+        index.add(key(1), new File("a"));
+        index.add(key(2), new File("b"));
+        index.add(key(1), new File("c"));
+
+        assertEquals(2, index.getGroupCount());
+        assertEquals(3, index.getFileCount());
+        DuplicateGroup group = index.get(key(1));
+        assertEquals(List.of(new File("a"), new File("c")), group.getFiles());
+        assertEquals("SHA-256", group.getHashAlgorithm());
+        assertEquals(key(1), group.getHashKey());
+    }
+
+    @Test
+    public void testGetDuplicatesSkipsSingleFileGroups() {
+        HashGroupIndex index = new HashGroupIndex("SHA-256");
+        index.add(key(1), new File("a"));
+        index.add(key(1), new File("b"));
+        index.add(key(2), new File("c"));
+
+        List<DuplicateGroup> duplicates = index.getDuplicates();
+
+        assertEquals(1, duplicates.size());
+        assertEquals(key(1), duplicates.get(0).getHashKey());
+        assertEquals(2, index.getGroups().size());
+    }
+
+    @Test
+    public void testConcurrentAddsLoseNoFiles() throws Exception {
+        int threads = 8;
+        int filesPerThread = 20_000;
+        int distinctHashes = 1_000;
+        HashGroupIndex index = new HashGroupIndex("SHA-256");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < filesPerThread; i++) {
+                        // Every thread hits every hash, so groups are created and extended concurrently
+                        index.add(key(i % distinctHashes), new File("t" + thread + "-" + i));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(distinctHashes, index.getGroupCount());
+        assertEquals((long) threads * filesPerThread, index.getFileCount());
+        Set<File> files = new HashSet<>();
+        for (DuplicateGroup group : index.getGroups()) {
+            assertEquals(threads * filesPerThread / distinctHashes, group.getFileCount());
+            files.addAll(group.getFiles());
+        }
+        assertEquals(threads * filesPerThread, files.size());
+    }
+}
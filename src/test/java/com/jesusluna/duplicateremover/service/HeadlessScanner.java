@@ -0,0 +1,35 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.DuplicateGroup;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Runs the scan without a JavaFX toolkit, for the tests of the scanner
+ */
+class HeadlessScanner extends DuplicateFileScanner {
+
+    HeadlessScanner(File directory, ScanOptions options) {
+        super(directory, options);
+    }
+
+    @Override
+    protected void updateMessage(String message) {
+    }
+
+    @Override
+    protected void updateProgress(double workDone, double max) {
+    }
+
+    @Override
+    protected void updateProgress(long workDone, long max) {
+    }
+
+    /**
+     * Runs the task body directly on the calling thread
+     */
+    List<DuplicateGroup> scan() throws Exception {
+        return call();
+    }
+}
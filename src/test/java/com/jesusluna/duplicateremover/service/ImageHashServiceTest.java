@@ -1,5 +1,8 @@
 package com.jesusluna.duplicateremover.service;
 
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithms;
+import com.jesusluna.duplicateremover.service.hash.Hasher;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -9,6 +12,7 @@
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -138,6 +142,78 @@ public void testComplexPatternProducesConsistentHash(@TempDir Path tempDir) thro
         assertEquals(hash1, hash2, "Identical patterns should produce same hash");
     }
 
+    @Test
+    public void testReadDimensionsFromHeader(@TempDir Path tempDir) throws IOException {
+        BufferedImage image = new BufferedImage(37, 21, BufferedImage.TYPE_INT_RGB);
+        for (String format : new String[] {"png", "jpg", "bmp", "gif"}) {
+            File file = tempDir.resolve("image." + format).toFile();
+            ImageIO.write(image, format, file);
+            assertEquals(new Dimension(37, 21), imageHashService.readDimensions(file), format);
+        }
+
+        File notAnImage = tempDir.resolve("fake.png").toFile();
+        java.nio.file.Files.writeString(notAnImage.toPath(), "This is not an image");
+        assertNull(imageHashService.readDimensions(notAnImage));
+    }
+
+    @Test
+    public void testPerceptualHashToleratesResizingAndRecompression(@TempDir Path tempDir) throws IOException {
+        BufferedImage image = createScene(400, 300, Color.ORANGE);
+        File original = tempDir.resolve("original.png").toFile();
+        ImageIO.write(image, "png", original);
+
+        BufferedImage smaller = new BufferedImage(200, 150, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = smaller.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(image, 0, 0, 200, 150, null);
+        g2d.dispose();
+        File resized = tempDir.resolve("resized.jpg").toFile();
+        ImageIO.write(smaller, "jpg", resized);
+
+        File other = tempDir.resolve("other.png").toFile();
+        ImageIO.write(createScene(400, 300, Color.BLUE), "png", other);
+
+        long originalHash = imageHashService.calculatePerceptualHash(original);
+        assertTrue(HammingIndex.distance(originalHash, imageHashService.calculatePerceptualHash(resized)) 
+                   <= SimilarImageIndex.DEFAULT_MAX_DISTANCE, "Resized copy should look alike");
+        assertTrue(HammingIndex.distance(originalHash, imageHashService.calculatePerceptualHash(other)) 
+                   > SimilarImageIndex.DEFAULT_MAX_DISTANCE, "Different scene should not look alike");
+    }
+
+    @Test
+    public void testPerceptualHashOfSubsampledDecodeMatchesFullDecode(@TempDir Path tempDir) throws IOException {
+        assertEquals(1, ImageHashService.perceptualSubsampling(200, 9));
+        assertEquals(13, ImageHashService.perceptualSubsampling(4000, 9));
+        assertEquals(11, ImageHashService.perceptualSubsampling(3000, 8));
+
+        BufferedImage image = createScene(3000, 2000, Color.ORANGE);
+        File file = tempDir.resolve("large.png").toFile();
+        ImageIO.write(image, "png", file);
+
+        long subsampled = imageHashService.calculatePerceptualHash(file);
+        long full = imageHashService.perceptualHash(ImageIO.read(file));
+        assertTrue(HammingIndex.distance(full, subsampled) <= 2,
+                   "Subsampled decode should hash like the full image");
+    }
+
+    /**
+     * Helper method drawing a gradient with a few shapes, whose layout depends on the accent colour
+     */
+    private BufferedImage createScene(int width, int height, Color accent) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        boolean mirrored = accent.equals(Color.BLUE);
+        g2d.setPaint(new GradientPaint(0, 0, mirrored ? Color.WHITE : Color.BLACK, width, height, 
+                                       mirrored ? Color.BLACK : Color.WHITE));
+        g2d.fillRect(0, 0, width, height);
+        g2d.setColor(accent);
+        g2d.fillOval(mirrored ? width / 2 : width / 8, height / 6, width / 3, height / 2);
+        g2d.setColor(Color.DARK_GRAY);
+        g2d.fillRect(mirrored ? width / 10 : width * 3 / 5, height / 2, width / 4, height / 3);
+        g2d.dispose();
+        return image;
+    }
+
     @Test
     public void testCalculatePixelHashThrowsExceptionForNullFile() {
         assertThrows(IllegalArgumentException.class, () -> {
@@ -229,4 +305,52 @@ public void testIsSupportedImageFormatForNonExistentFile(@TempDir Path tempDir)
 
         assertFalse(imageHashService.isSupportedImageFormat(nonExistent), "Non-existent file should not be supported");
     }
+
+    /**
+     * Helper method hashing an image one getRGB call and four single-byte updates per pixel,
+     * the reference the bulk conversion must reproduce
+     */
+    private String referencePixelHash(BufferedImage image) {
+        Hasher digest = HashAlgorithms.DEFAULT.newHasher();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        for (int value : new int[] {width, height}) {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                digest.update((byte) (value >> shift));
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = image.getRGB(x, y);
+                digest.update((byte) (rgb >> 24));
+                digest.update((byte) (rgb >> 16));
+                digest.update((byte) (rgb >> 8));
+                digest.update((byte) rgb);
+            }
+        }
+        return HashKey.wrap(digest.digest()).toHex();
+    }
+
+    @Test
+    public void testBulkPixelHashMatchesPerPixelHash() {
+        Random random = new Random(42);
+        int[] types = {
+            BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_BYTE_INDEXED,
+            BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_USHORT_565_RGB
+        };
+        for (int type : types) {
+            // Wide enough for several rows per block and tall enough for several blocks
+            BufferedImage image = new BufferedImage(1500, 400, type);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    image.setRGB(x, y, random.nextInt());
+                }
+            }
+
+            assertEquals(referencePixelHash(image), imageHashService.hashPixelData(image).toHex(), "Image type " + type);
+            BufferedImage region = image.getSubimage(7, 3, 101, 50);
+            assertEquals(referencePixelHash(region), imageHashService.hashPixelData(region).toHex(), "Subimage of type " + type);
+        }
+    }
 }
@@ -0,0 +1,111 @@
+package com.jesusluna.duplicateremover.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ParallelismController, driven by simulated storage
+ */
+public class ParallelismControllerTest {
+
+    private static final long WINDOW = 1_000_000_000L;
+    private static final long MB = 1024 * 1024;
+
+    /**
+     * Runs windows in which the storage delivers the given MB/s at the controller's current level
+     */
+    private static void simulate(ParallelismController controller, IntToDoubleFunction megabytesPerSecond, int windows) {
+        long now = 0;
+        controller.tick(now, true);
+        for (int i = 0; i < windows; i++) {
+            // A few large files, so the per-file cost does not matter
+            long bytes = (long) (megabytesPerSecond.applyAsDouble(controller.getLevel()) * MB);
+            for (int f = 0; f < 4; f++) {
+                controller.recordCompleted(bytes / 4);
+            }
+            now += WINDOW;
+            controller.tick(now, true);
+        }
+    }
+
+    @Test
+    public void testClimbsToThePeakOfFastStorage() {
+        List<Integer> applied = new ArrayList<>();
+        ParallelismController controller = new ParallelismController(4, 1, 32, WINDOW, applied::add);
+
+        // Scales up to 12 concurrent reads, then contention makes it worse
+        simulate(controller, level -> level <= 12 ? level * 100 : 1200 - (level - 12) * 60, 15);
+
+        assertTrue(controller.isConverged());
+        assertTrue(Math.abs(controller.getLevel() - 12) <= 1, "Converged on " + controller.getLevel());
+        assertEquals(controller.getLevel(), applied.get(applied.size() - 1));
+    }
+
+    @Test
+    public void testBacksOffOnStorageThatPrefersFewReads() {
+        ParallelismController controller = new ParallelismController(8, 1, 32, WINDOW, level -> { });
+
+        // Seeking between concurrent reads costs throughput, like a spinning disk
+        simulate(controller, level -> 150 / (1 + 0.3 * (level - 1)), 20);
+
+        assertTrue(controller.isConverged());
+        assertTrue(controller.getLevel() <= 2, "Converged on " + controller.getLevel());
+    }
+
+    @Test
+    public void testSettlesOnFewerReadsWhenMoreDoNotHelp() {
+        ParallelismController controller = new ParallelismController(8, 1, 32, WINDOW, level -> { });
+
+        // Saturated from 3 concurrent reads on
+        simulate(controller, level -> Math.min(level, 3) * 100, 20);
+
+        assertTrue(controller.isConverged());
+        assertTrue(controller.getLevel() >= 3 && controller.getLevel() <= 4, "Converged on " + controller.getLevel());
+    }
+
+    @Test
+    public void testIgnoresWindowsWithoutBacklog() {
+        ParallelismController controller = new ParallelismController(4, 1, 16, WINDOW, level -> { });
+
+        long now = 0;
+        controller.tick(now, false);
+        for (int i = 0; i < 10; i++) {
+            controller.recordCompleted(100 * MB);
+            now += WINDOW;
+            controller.tick(now, false);
+        }
+
+        assertEquals(4, controller.getLevel());
+        assertEquals(0, controller.getAdjustments());
+        assertTrue(controller.toSummary().contains("none measured"));
+    }
+
+    @Test
+    public void testStaysWithinBounds() {
+        ParallelismController controller = new ParallelismController(2, 1, 3, WINDOW, level -> { });
+
+        simulate(controller, level -> level * 100, 10);
+
+        assertEquals(3, controller.getLevel());
+        assertTrue(controller.isConverged());
+    }
+
+    @Test
+    public void testProbesAgainAfterHolding() {
+        ParallelismController controller = new ParallelismController(4, 1, 32, WINDOW, level -> { });
+        simulate(controller, level -> Math.min(level, 4) * 100, 10);
+        assertTrue(controller.isConverged());
+        int adjustments = controller.getAdjustments();
+
+        // The workload changes: many more concurrent reads now pay off
+        simulate(controller, level -> level * 100, ParallelismController.HOLD_WINDOWS + 10);
+
+        assertTrue(controller.getAdjustments() > adjustments);
+        assertTrue(controller.getLevel() > 4, "Level " + controller.getLevel());
+    }
+}
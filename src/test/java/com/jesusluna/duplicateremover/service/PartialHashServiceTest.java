@@ -0,0 +1,117 @@
+package com.jesusluna.duplicateremover.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for PartialHashService
+ */
+public class PartialHashServiceTest {
+
+    private final PartialHashService partialHashService = new PartialHashService();
+
+    /**
+     * Helper method to create a file filled with a repeating byte pattern
+     */
+    private File createFile(Path tempDir, String filename, int size) throws IOException {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        File file = tempDir.resolve(filename).toFile();
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    /**
+     * Helper method to flip one byte of a file
+     */
+    private void flipByte(File file, int position) throws IOException {
+        byte[] content = Files.readAllBytes(file.toPath());
+        content[position] ^= 0x7f;
+        Files.write(file.toPath(), content);
+    }
+
+    @Test
+    public void testIdenticalFilesHaveSameFingerprint(@TempDir Path tempDir) throws IOException {
+        File file1 = createFile(tempDir, "file1.bin", 200_000);
+        File file2 = createFile(tempDir, "file2.bin", 200_000);
+
+        assertEquals(partialHashService.calculateFingerprint(file1),
+                     partialHashService.calculateFingerprint(file2));
+    }
+
+    @Test
+    public void testDifferenceInHeadChangesFingerprint(@TempDir Path tempDir) throws IOException {
+        File file1 = createFile(tempDir, "file1.bin", 200_000);
+        File file2 = createFile(tempDir, "file2.bin", 200_000);
+        flipByte(file2, 10);
+
+        assertNotEquals(partialHashService.calculateFingerprint(file1),
+                        partialHashService.calculateFingerprint(file2));
+    }
+
+    @Test
+    public void testDifferenceInTailChangesFingerprint(@TempDir Path tempDir) throws IOException {
+        File file1 = createFile(tempDir, "file1.bin", 200_000);
+        File file2 = createFile(tempDir, "file2.bin", 200_000);
+        flipByte(file2, 199_999);
+
+        assertNotEquals(partialHashService.calculateFingerprint(file1),
+                        partialHashService.calculateFingerprint(file2));
+    }
+
+    @Test
+    public void testDifferenceOutsideSamplesKeepsFingerprint(@TempDir Path tempDir) throws IOException {
+        File file1 = createFile(tempDir, "file1.bin", 200_000);
+        File file2 = createFile(tempDir, "file2.bin", 200_000);
+        // Byte 30000 lies between the head block and the first sampled block
+        flipByte(file2, 30_000);
+
+        assertEquals(partialHashService.calculateFingerprint(file1),
+                     partialHashService.calculateFingerprint(file2),
+                     "Fingerprint only covers sampled blocks; full hash is needed to confirm");
+    }
+
+    @Test
+    public void testSampleOffsetsForLargeFile() {
+        long size = 1_000_000;
+        long[] offsets = PartialHashService.sampleOffsets(size);
+
+        assertEquals(PartialHashService.SAMPLE_COUNT + 2, offsets.length);
+        assertEquals(0, offsets[0], "First block should be the head");
+        assertEquals(size - PartialHashService.BLOCK_SIZE, offsets[offsets.length - 1],
+                     "Last block should be the tail");
+        for (int i = 1; i < offsets.length - 1; i++) {
+            assertEquals(0, offsets[i] % PartialHashService.BLOCK_SIZE, "Samples should be block-aligned");
+        }
+    }
+
+    @Test
+    public void testSampleOffsetsForSmallFileCoverWholeFile() {
+        long[] offsets = PartialHashService.sampleOffsets(10_000);
+
+        assertTrue(Arrays.equals(new long[] {0, 4096, 8192}, offsets));
+    }
+
+    @Test
+    public void testIsWorthPrefiltering() {
+        assertFalse(PartialHashService.isWorthPrefiltering(1024));
+        assertTrue(PartialHashService.isWorthPrefiltering(PartialHashService.MIN_PREFILTER_SIZE));
+    }
+
+    @Test
+    public void testCalculateFingerprintThrowsExceptionForNullFile() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            partialHashService.calculateFingerprint(null);
+        }, "Should throw exception for null file");
+    }
+}
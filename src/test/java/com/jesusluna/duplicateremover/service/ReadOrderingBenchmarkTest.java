@@ -0,0 +1,91 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.service.io.ReadOrdering;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Scan time and per-device read throughput with files read unordered and in physical order.
+ * Only meaningful on a rotational disk and with a cold page cache: point benchmark.dir at the
+ * disk, and set benchmark.dropCaches to a command that empties the cache before every run
+ * (e.g. {@code sync; echo 3 > /proc/sys/vm/drop_caches}, run as root); otherwise every run
+ * after the first is served from memory.
+ * Disabled by default; run with
+ * {@code mvn test -Dtest=ReadOrderingBenchmarkTest -Dbenchmark=true -Dbenchmark.dir=/mnt/hdd [-Dbenchmark.dropCaches=...]}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ReadOrderingBenchmarkTest {
+
+    private static final int MEASURED_RUNS = 3;
+
+    @Test
+    public void benchmarkReadOrdering() throws Exception {
+        Path directory = Paths.get(System.getProperty("benchmark.dir", System.getProperty("java.io.tmpdir")));
+        String dropCaches = System.getProperty("benchmark.dropCaches");
+
+        Path root = Files.createTempDirectory(directory, "ordering-benchmark");
+        try {
+            writeTree(root, 50, 40, 256 * 1024);
+            System.out.printf("Runtime %s, %d processors, %s, caches %s%n", Runtime.version(),
+                              Runtime.getRuntime().availableProcessors(), directory,
+                              dropCaches != null ? "dropped before each run" : "warm");
+            for (ReadOrdering ordering : new ReadOrdering[] {ReadOrdering.UNORDERED, ReadOrdering.PHYSICAL}) {
+                ScanOptions options = new ScanOptions().setIncludeSubfolders(true)
+                    .setUseAdvancedImageDetection(false).setReadOrdering(ordering);
+                long best = Long.MAX_VALUE;
+                ScanStatistics statistics = null;
+                for (int run = 0; run < MEASURED_RUNS; run++) {
+                    if (dropCaches != null) {
+                        new ProcessBuilder("sh", "-c", dropCaches).inheritIO().start().waitFor();
+                    }
+                    long start = System.nanoTime();
+                    HeadlessScanner scanner = new HeadlessScanner(root.toFile(), options);
+                    scanner.scan();
+                    statistics = scanner.getStatistics();
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                System.out.printf("%-10s best %6d ms%n", ordering, best / 1_000_000);
+                for (ScanStatistics.DeviceThroughput device : statistics.getDeviceThroughput()) {
+                    System.out.printf("           %s: %.1f MB/s, %.0f reads/s%n", device.device(),
+                                      device.getBytesPerSecond() / (1024 * 1024), device.getReadsPerSecond());
+                }
+            }
+        } finally {
+            deleteTree(root);
+        }
+    }
+
+    /**
+     * Writes directories of files in which every content appears twice, the copies in
+     * different directories so that unordered reads jump between them
+     */
+    private static void writeTree(Path root, int directories, int filesPerDirectory, int fileSize) throws IOException {
+        Random random = new Random(1);
+        byte[] content = new byte[fileSize];
+        for (int d = 0; d < directories; d += 2) {
+            Path first = Files.createDirectories(root.resolve("d" + d));
+            Path second = Files.createDirectories(root.resolve("d" + (d + 1)));
+            for (int f = 0; f < filesPerDirectory; f++) {
+                random.nextBytes(content);
+                Files.write(first.resolve("f" + f), content);
+                Files.write(second.resolve("f" + f), content);
+            }
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.ScannedFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for SimilarImageIndex
+ */
+public class SimilarImageIndexTest {
+
+    /**
+     * Helper method to create a scanned file without touching the file system
+     */
+    private ScannedFile file(String name) {
+        return new ScannedFile(new File(name), 100, 0, null);
+    }
+
+    @Test
+    public void testImagesWithinDistanceAreClustered() {
+        SimilarImageIndex index = new SimilarImageIndex();
+        ScannedFile photo = file("photo.jpg");
+        ScannedFile resized = file("resized.jpg");
+        ScannedFile other = file("other.jpg");
+        ScannedFile otherResized = file("other2.jpg");
+        ScannedFile alone = file("alone.jpg");
+        index.add(resized, 0b1011L);
+        index.add(other, 0xFF00FF00L);
+        index.add(photo, 0b1111L);
+        index.add(alone, -1L);
+        index.add(otherResized, 0xFF00FF01L);
+        assertEquals(5, index.size());
+
+        List<SimilarImageIndex.Cluster> clusters = index.cluster(2);
+
+        assertEquals(2, clusters.size());
+        assertEquals(0xFF00FF00L, clusters.get(0).hash());
+        assertEquals(List.of(other, otherResized), clusters.get(0).files());
+        // Leaders are taken in path order
+        assertEquals(List.of(photo, resized), clusters.get(1).files());
+        assertTrue(index.cluster(0).isEmpty());
+    }
+
+    @Test
+    public void testClustersDoNotChain() {
+        SimilarImageIndex index = new SimilarImageIndex();
+        ScannedFile a = file("a.jpg");
+        ScannedFile b = file("b.jpg");
+        ScannedFile c = file("c.jpg");
+        // a and c differ in 4 bits, b is 2 bits from each
+        index.add(a, 0b0000L);
+        index.add(b, 0b0011L);
+        index.add(c, 0b1111L);
+
+        List<SimilarImageIndex.Cluster> clusters = index.cluster(2);
+
+        assertEquals(1, clusters.size());
+        assertEquals(List.of(a, b), clusters.get(0).files());
+    }
+}
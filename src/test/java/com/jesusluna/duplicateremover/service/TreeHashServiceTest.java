@@ -0,0 +1,118 @@
+package com.jesusluna.duplicateremover.service;
+
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithms;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for TreeHashService
+ */
+public class TreeHashServiceTest {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    /**
+     * Helper method to create a file of random content
+     */
+    private byte[] createFile(Path file, int size, long seed) throws IOException {
+        byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        Files.write(file, content);
+        return content;
+    }
+
+    @Test
+    public void testHashDoesNotDependOnHelpers(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("large.bin");
+        createFile(file, 20 * CHUNK_SIZE + 100, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            HashKey alone = new TreeHashService(HashAlgorithms.SHA_256, CHUNK_SIZE, CHUNK_SIZE, null, 0)
+                .calculateKey(file);
+            TreeHashService parallel = new TreeHashService(HashAlgorithms.SHA_256, CHUNK_SIZE, 1024, executor, 3);
+
+            for (int run = 0; run < 5; run++) {
+                assertEquals(alone, parallel.calculateKey(file), "Run " + run);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testChangeInAnyChunkChangesHash(@TempDir Path tempDir) throws IOException {
+        Path file1 = tempDir.resolve("file1.bin");
+        Path file2 = tempDir.resolve("file2.bin");
+        byte[] content = createFile(file1, 5 * CHUNK_SIZE, 2);
+        content[3 * CHUNK_SIZE + 7] ^= 1;
+        Files.write(file2, content);
+        TreeHashService service = new TreeHashService(HashAlgorithms.XXH64, CHUNK_SIZE, CHUNK_SIZE, null, 0);
+
+        assertNotEquals(service.calculateKey(file1), service.calculateKey(file2));
+    }
+
+    @Test
+    public void testLargeFilesOnSaturatedPoolDoNotDeadlock(@TempDir Path tempDir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Path file = tempDir.resolve("large" + i + ".bin");
+            createFile(file, 16 * CHUNK_SIZE, 3);
+            files.add(file);
+        }
+        // Every worker of the pool runs a tree hash that also asks the same pool for help
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        TreeHashService service = new TreeHashService(HashAlgorithms.SHA_256, CHUNK_SIZE, CHUNK_SIZE, executor, 1);
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                List<Future<HashKey>> futures = new ArrayList<>();
+                for (Path file : files) {
+                    futures.add(executor.submit(() -> service.calculateKey(file)));
+                }
+                HashKey expected = futures.get(0).get();
+                for (Future<HashKey> future : futures) {
+                    assertEquals(expected, future.get(), "Identical files have identical tree hashes");
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFileHashServiceUsesTreeHashAboveThreshold(@TempDir Path tempDir) throws IOException {
+        Path small = tempDir.resolve("small.txt");
+        Path large1 = tempDir.resolve("large1.bin");
+        Path large2 = tempDir.resolve("large2.bin");
+        createFile(small, 100, 4);
+        createFile(large1, 3 * CHUNK_SIZE, 5);
+        createFile(large2, 3 * CHUNK_SIZE, 5);
+        FileHashService service = new FileHashService(new ScanOptions()
+            .setTreeHashThreshold(2 * CHUNK_SIZE)
+            .setTreeHashChunkSize(CHUNK_SIZE));
+        FileHashService plainService = new FileHashService(new ScanOptions()
+            .setTreeHashThreshold(Long.MAX_VALUE));
+
+        assertFalse(service.isTreeHashed(100));
+        assertTrue(service.isTreeHashed(3 * CHUNK_SIZE));
+        assertEquals(plainService.getContentHashType(100), service.getContentHashType(100));
+        assertNotEquals(plainService.getContentHashType(3 * CHUNK_SIZE), service.getContentHashType(3 * CHUNK_SIZE),
+                        "Tree hashes must never be compared with plain hashes");
+
+        assertEquals(plainService.calculateHash(small.toFile()), service.calculateHash(small.toFile()));
+        assertEquals(service.calculateHash(large1.toFile()), service.calculateHash(large2.toFile()));
+    }
+}
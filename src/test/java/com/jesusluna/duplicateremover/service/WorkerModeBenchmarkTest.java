@@ -0,0 +1,90 @@
+package com.jesusluna.duplicateremover.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Scan time with the fixed pool (with and without the read/hash pipeline) and with
+ * virtual threads, on a metadata-heavy tree (many tiny files) and a read-heavy tree
+ * (fewer large files). Point benchmark.dir at the storage to compare, e.g. a network share;
+ * virtual threads need a Java 21 runtime and otherwise fall back to the fixed pool.
+ * Disabled by default; run with
+ * {@code mvn test -Dtest=WorkerModeBenchmarkTest -Dbenchmark=true [-Dbenchmark.dir=/mnt/nas] [-Dbenchmark.reads=64]}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class WorkerModeBenchmarkTest {
+
+    private static final int MEASURED_RUNS = 3;
+
+    @Test
+    public void benchmarkWorkerModes() throws Exception {
+        Path directory = Paths.get(System.getProperty("benchmark.dir", System.getProperty("java.io.tmpdir")));
+        int reads = Integer.getInteger("benchmark.reads", WorkerMode.DEFAULT_VIRTUAL_READS);
+
+        Path metadataHeavy = Files.createTempDirectory(directory, "worker-benchmark-small");
+        Path readHeavy = Files.createTempDirectory(directory, "worker-benchmark-large");
+        try {
+            writeTree(metadataHeavy, 100, 200, 64);
+            writeTree(readHeavy, 8, 16, 4 * 1024 * 1024);
+            System.out.printf("Runtime %s, %d processors, %s%n", Runtime.version(),
+                              Runtime.getRuntime().availableProcessors(), directory);
+            benchmark("metadata-heavy (20000 x 64 B)", metadataHeavy, reads);
+            benchmark("read-heavy (128 x 4 MB)", readHeavy, reads);
+        } finally {
+            deleteTree(metadataHeavy);
+            deleteTree(readHeavy);
+        }
+    }
+
+    private void benchmark(String label, Path root, int reads) throws Exception {
+        ScanOptions[] configurations = {
+            new ScanOptions(),
+            new ScanOptions().setReadThreads(0),
+            new ScanOptions().setWorkerMode(WorkerMode.VIRTUAL_THREADS).setMaxConcurrentReads(reads)
+        };
+        String[] names = {"fixed pool + pipeline", "fixed pool", "virtual threads"};
+        for (int i = 0; i < configurations.length; i++) {
+            ScanOptions options = configurations[i].setIncludeSubfolders(true).setUseAdvancedImageDetection(false);
+            long best = Long.MAX_VALUE;
+            int groups = 0;
+            for (int run = 0; run < MEASURED_RUNS; run++) {
+                long start = System.nanoTime();
+                groups = new HeadlessScanner(root.toFile(), options).scan().size();
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            System.out.printf("%-30s %-22s best %6d ms, %d groups%n", label, names[i], best / 1_000_000, groups);
+        }
+    }
+
+    /**
+     * Writes directories of files in which every content appears twice
+     */
+    private static void writeTree(Path root, int directories, int filesPerDirectory, int fileSize) throws IOException {
+        Random random = new Random(1);
+        byte[] content = new byte[fileSize];
+        for (int d = 0; d < directories; d++) {
+            Path sub = Files.createDirectories(root.resolve("d" + d));
+            for (int f = 0; f < filesPerDirectory; f += 2) {
+                random.nextBytes(content);
+                Files.write(sub.resolve("f" + f), content);
+                Files.write(sub.resolve("f" + (f + 1)), content);
+            }
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
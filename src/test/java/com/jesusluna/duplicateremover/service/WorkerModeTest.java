@@ -0,0 +1,67 @@
+package com.jesusluna.duplicateremover.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for WorkerMode
+ */
+public class WorkerModeTest {
+
+    private static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+        return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+
+    @Test
+    public void testFixedPoolIsAlwaysSupported() throws Exception {
+        assertTrue(WorkerMode.FIXED_POOL.isSupported());
+        assertEquals(WorkerMode.FIXED_POOL, WorkerMode.FIXED_POOL.resolve());
+
+        ExecutorService executor = WorkerMode.FIXED_POOL.createExecutor(2, "test-");
+        try {
+            assertEquals(42, executor.submit(() -> 42).get());
+            Thread thread = executor.submit(Thread::currentThread).get();
+            assertTrue(thread.getName().startsWith("test-"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testVirtualThreadsMatchRuntimeVersion() throws Exception {
+        boolean expected = Runtime.version().feature() >= 21;
+        assertEquals(expected, WorkerMode.VIRTUAL_THREADS.isSupported());
+
+        if (!expected) {
+            assertEquals(WorkerMode.FIXED_POOL, WorkerMode.VIRTUAL_THREADS.resolve());
+            assertThrows(UnsupportedOperationException.class, () -> WorkerMode.VIRTUAL_THREADS.createExecutor(2, "test-"));
+            return;
+        }
+        assertEquals(WorkerMode.VIRTUAL_THREADS, WorkerMode.VIRTUAL_THREADS.resolve());
+        ExecutorService executor = WorkerMode.VIRTUAL_THREADS.createExecutor(2, "test-");
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get();
+            assertTrue(isVirtual(thread));
+            assertTrue(thread.getName().startsWith("test-"));
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testMaxConcurrentReadsDefaultsToWorkerMode() {
+        ScanOptions options = new ScanOptions().setParallelism(6);
+        assertEquals(6, options.getMaxConcurrentReads());
+
+        options.setWorkerMode(WorkerMode.VIRTUAL_THREADS);
+        assertEquals(WorkerMode.DEFAULT_VIRTUAL_READS, options.getMaxConcurrentReads());
+
+        options.setMaxConcurrentReads(200);
+        assertEquals(200, options.getMaxConcurrentReads());
+    }
+}
@@ -0,0 +1,49 @@
+package com.jesusluna.duplicateremover.service.hash;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Random;
+
+/**
+ * Throughput benchmark for the hash algorithms over in-memory data, i.e. the
+ * cost of hashing once files are in the page cache.
+ * Disabled by default; run with {@code mvn test -Dtest=HashAlgorithmBenchmarkTest -Dbenchmark=true}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class HashAlgorithmBenchmarkTest {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long BYTES_PER_RUN = 512L * 1024 * 1024;
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 3;
+
+    @Test
+    public void benchmarkThroughput() {
+        byte[] data = new byte[BUFFER_SIZE];
+        new Random(42).nextBytes(data);
+
+        for (HashAlgorithm algorithm : HashAlgorithms.available()) {
+            Hasher hasher = algorithm.newHasher();
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                run(hasher, data);
+            }
+
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                best = Math.min(best, run(hasher, data));
+            }
+            double megabytesPerSecond = BYTES_PER_RUN / (1024.0 * 1024.0) / (best / 1e9);
+            System.out.printf("%-12s %8.0f MB/s%n", algorithm.getName(), megabytesPerSecond);
+        }
+    }
+
+    private long run(Hasher hasher, byte[] data) {
+        long start = System.nanoTime();
+        for (long hashed = 0; hashed < BYTES_PER_RUN; hashed += data.length) {
+            hasher.update(data, 0, data.length);
+        }
+        hasher.digest();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,111 @@
+package com.jesusluna.duplicateremover.service.hash;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the built-in hash algorithms
+ */
+public class HashAlgorithmsTest {
+
+    private static final String FOX = "The quick brown fox jumps over the lazy dog";
+
+    /**
+     * Helper method to hash a string in one update
+     */
+    private String hash(HashAlgorithm algorithm, String input) {
+        Hasher hasher = algorithm.newHasher();
+        hasher.update(input.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hasher.digest());
+    }
+
+    @Test
+    public void testSha256KnownVectors() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                     hash(HashAlgorithms.SHA_256, ""));
+        assertEquals("d7a8fbb307d7809469ca9abcb0082e4f8d5651e46d3cdb762d02d0bf37c9e592",
+                     hash(HashAlgorithms.SHA_256, FOX));
+    }
+
+    @Test
+    public void testXxHash64KnownVectors() {
+        assertEquals("ef46db3751d8e999", hash(HashAlgorithms.XXH64, ""));
+        assertEquals("d24ec4f1a98c6e5b", hash(HashAlgorithms.XXH64, "a"));
+        assertEquals("44bc2cf5ad770999", hash(HashAlgorithms.XXH64, "abc"));
+        assertEquals("0b242d361fda71bc", hash(HashAlgorithms.XXH64, FOX));
+    }
+
+    @Test
+    public void testMurmur3KnownVectors() {
+        assertEquals("00000000000000000000000000000000", hash(HashAlgorithms.MURMUR3_128, ""));
+        assertEquals("6c1b07bc7bbc4be347939ac4a93c437a", hash(HashAlgorithms.MURMUR3_128, FOX));
+    }
+
+    @Test
+    public void testIncrementalUpdatesMatchSingleUpdate() {
+        Random random = new Random(42);
+        for (HashAlgorithm algorithm : HashAlgorithms.available()) {
+            for (int length : new int[] {0, 1, 7, 15, 16, 31, 32, 33, 100, 1000}) {
+                byte[] data = new byte[length];
+                random.nextBytes(data);
+
+                Hasher whole = algorithm.newHasher();
+                whole.update(data);
+                byte[] expected = whole.digest();
+
+                // Same bytes fed as single bytes, odd-sized array chunks and a direct buffer
+                Hasher pieces = algorithm.newHasher();
+                int offset = 0;
+                while (offset < length) {
+                    int chunk = Math.min(length - offset, 1 + random.nextInt(20));
+                    if (chunk == 1) {
+                        pieces.update(data[offset]);
+                    } else if (chunk % 2 == 0) {
+                        pieces.update(data, offset, chunk);
+                    } else {
+                        ByteBuffer direct = ByteBuffer.allocateDirect(chunk);
+                        direct.put(data, offset, chunk).flip();
+                        pieces.update(direct);
+                        assertFalse(direct.hasRemaining());
+                    }
+                    offset += chunk;
+                }
+
+                assertArrayEquals(expected, pieces.digest(), algorithm.getName() + " length " + length);
+                assertEquals(algorithm.getDigestLength(), expected.length);
+            }
+        }
+    }
+
+    @Test
+    public void testDigestResetsHasher() {
+        Hasher hasher = HashAlgorithms.XXH64.newHasher();
+        hasher.update(new byte[] {1, 2, 3});
+        hasher.digest();
+
+        hasher.update(FOX.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("0b242d361fda71bc", HexFormat.of().formatHex(hasher.digest()));
+    }
+
+    @Test
+    public void testForNameIgnoresCase() {
+        assertSame(HashAlgorithms.SHA_256, HashAlgorithms.forName("sha-256"));
+        assertSame(HashAlgorithms.XXH64, HashAlgorithms.forName("xxh64"));
+        assertSame(HashAlgorithms.MURMUR3_128, HashAlgorithms.forName("MURMUR3-128"));
+        assertThrows(IllegalArgumentException.class, () -> HashAlgorithms.forName("MD4-ish"));
+    }
+
+    @Test
+    public void testOnlySha256IsCryptographic() {
+        assertTrue(HashAlgorithms.SHA_256.isCryptographic());
+        assertFalse(HashAlgorithms.XXH64.isCryptographic());
+        assertFalse(HashAlgorithms.MURMUR3_128.isCryptographic());
+    }
+}
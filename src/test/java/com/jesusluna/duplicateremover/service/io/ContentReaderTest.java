@@ -0,0 +1,94 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithms;
+import com.jesusluna.duplicateremover.service.hash.Hasher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the content readers behind each ReadStrategy
+ */
+public class ContentReaderTest {
+
+    private static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Helper method to create a file of random content
+     */
+    private byte[] createFile(Path file, int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        Files.write(file, content);
+        return content;
+    }
+
+    private byte[] digestOf(byte[] content) {
+        Hasher hasher = HashAlgorithms.SHA_256.newHasher();
+        hasher.update(content);
+        return hasher.digest();
+    }
+
+    private byte[] digestWith(ContentReader reader, Path file, long expectedSize) throws IOException {
+        Hasher hasher = HashAlgorithms.SHA_256.newHasher();
+        assertEquals(expectedSize, reader.read(file, hasher));
+        return hasher.digest();
+    }
+
+    @Test
+    public void testAllStrategiesReadIdenticalContent(@TempDir Path tempDir) throws IOException {
+        for (int size : new int[] {0, 1, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 5 * BLOCK_SIZE + 17}) {
+            Path file = tempDir.resolve("file-" + size + ".bin");
+            byte[] expected = digestOf(createFile(file, size));
+
+            for (ReadStrategy strategy : ReadStrategy.values()) {
+                ContentReader reader = strategy.createReader(BLOCK_SIZE);
+                assertArrayEquals(expected, digestWith(reader, file, size), strategy + " size " + size);
+                // Readers are reused across files
+                assertArrayEquals(expected, digestWith(reader, file, size), strategy + " reused, size " + size);
+            }
+        }
+    }
+
+    @Test
+    public void testMappedReaderSpansWindows(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("large.bin");
+        int size = 10 * BLOCK_SIZE + 123;
+        byte[] expected = digestOf(createFile(file, size));
+
+        ContentReader reader = new MappedContentReader(3L * BLOCK_SIZE);
+
+        assertArrayEquals(expected, digestWith(reader, file, size));
+    }
+
+    @Test
+    public void testAdaptiveReaderChoosesBySize(@TempDir Path tempDir) throws IOException {
+        Path small = tempDir.resolve("small.bin");
+        Path large = tempDir.resolve("large.bin");
+        createFile(small, 100);
+        createFile(large, 1000);
+        int[] calls = new int[2];
+        ContentReader adaptive = new AdaptiveContentReader(
+            (file, hasher) -> ++calls[0], (file, hasher) -> ++calls[1], 1000);
+
+        adaptive.read(small, HashAlgorithms.SHA_256.newHasher());
+        adaptive.read(large, HashAlgorithms.SHA_256.newHasher());
+
+        assertArrayEquals(new int[] {1, 1}, calls);
+    }
+
+    @Test
+    public void testMissingFileThrowsIOException(@TempDir Path tempDir) {
+        for (ReadStrategy strategy : ReadStrategy.values()) {
+            ContentReader reader = strategy.createReader(BLOCK_SIZE);
+            assertThrows(IOException.class,
+                () -> reader.read(tempDir.resolve("missing.bin"), HashAlgorithms.SHA_256.newHasher()), strategy.name());
+        }
+    }
+}
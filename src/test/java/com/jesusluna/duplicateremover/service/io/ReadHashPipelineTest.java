@@ -0,0 +1,94 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import com.jesusluna.duplicateremover.model.HashKey;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithms;
+import com.jesusluna.duplicateremover.service.hash.Hasher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ReadHashPipeline
+ */
+public class ReadHashPipelineTest {
+
+    private static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Helper method to create a file of random content and return its expected hash
+     */
+    private HashKey createFile(Path file, int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        Files.write(file, content);
+        Hasher hasher = HashAlgorithms.XXH64.newHasher();
+        hasher.update(content);
+        return HashKey.wrap(hasher.digest());
+    }
+
+    @Test
+    public void testHashesMatchSingleThreadedHashing(@TempDir Path tempDir) throws Exception {
+        // Fewer buffers than threads, so readers regularly wait for hashers
+        try (ReadHashPipeline pipeline = new ReadHashPipeline(HashAlgorithms.XXH64, 3, 2, 2, BLOCK_SIZE)) {
+            List<HashKey> expected = new ArrayList<>();
+            List<CompletableFuture<HashKey>> results = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                int size = (i % 8) * BLOCK_SIZE + i * 13;
+                Path file = tempDir.resolve("file" + i + ".bin");
+                expected.add(createFile(file, size));
+                results.add(pipeline.submit(file));
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(expected.get(i), results.get(i).get(10, TimeUnit.SECONDS), "File " + i);
+            }
+            assertEquals(40, pipeline.getStatistics().getFilesHashed());
+            assertEquals(2, pipeline.getFreeBuffers(), "Every buffer is returned to the ring");
+            assertEquals(0, pipeline.getQueuedBlocks());
+        }
+    }
+
+    @Test
+    public void testMissingFileCompletesExceptionally(@TempDir Path tempDir) throws Exception {
+        try (ReadHashPipeline pipeline = new ReadHashPipeline(HashAlgorithms.SHA_256, 1, 1, 0, BLOCK_SIZE)) {
+            CompletableFuture<HashKey> missing = pipeline.submit(tempDir.resolve("missing.bin"));
+            Path present = tempDir.resolve("present.bin");
+            createFile(present, 10);
+
+            ExecutionException error = assertThrows(ExecutionException.class, () -> missing.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, error.getCause());
+            assertNotNull(pipeline.submit(present).get(10, TimeUnit.SECONDS), "Pipeline keeps working after an error");
+        }
+    }
+
+    @Test
+    public void testEmptyFileIsHashed(@TempDir Path tempDir) throws Exception {
+        Path empty = tempDir.resolve("empty.bin");
+        HashKey expected = createFile(empty, 0);
+
+        try (ReadHashPipeline pipeline = new ReadHashPipeline(HashAlgorithms.XXH64, 1, 1, 0, BLOCK_SIZE)) {
+            assertEquals(expected, pipeline.submit(empty).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testSubmitAfterCloseIsCancelled(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("file.bin");
+        createFile(file, 10);
+        ReadHashPipeline pipeline = new ReadHashPipeline(HashAlgorithms.XXH64, 1, 1, 0, BLOCK_SIZE);
+        pipeline.close();
+
+        assertTrue(pipeline.submit(file).isCompletedExceptionally());
+    }
+}
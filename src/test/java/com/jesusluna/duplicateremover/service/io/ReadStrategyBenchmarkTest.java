@@ -0,0 +1,72 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithm;
+import com.jesusluna.duplicateremover.service.hash.HashAlgorithms;
+import com.jesusluna.duplicateremover.service.hash.Hasher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Read throughput of each ReadStrategy, combined with each hash algorithm.
+ * The first pass over the file may be served by the disk, later passes by the page cache;
+ * both the first and the best pass are reported.
+ * Disabled by default; run with
+ * {@code mvn test -Dtest=ReadStrategyBenchmarkTest -Dbenchmark=true [-Dbenchmark.dir=/mnt/ssd] [-Dbenchmark.sizeMb=1024] [-Dbenchmark.blockSize=262144]}
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ReadStrategyBenchmarkTest {
+
+    private static final int MEASURED_RUNS = 3;
+
+    @Test
+    public void benchmarkThroughput() throws IOException {
+        Path directory = Paths.get(System.getProperty("benchmark.dir", System.getProperty("java.io.tmpdir")));
+        long size = Long.getLong("benchmark.sizeMb", 512) * 1024 * 1024;
+        int blockSize = Integer.getInteger("benchmark.blockSize", ReadStrategy.DEFAULT_BLOCK_SIZE);
+
+        Path file = Files.createTempFile(directory, "read-benchmark", ".bin");
+        try {
+            writeRandomFile(file, size);
+            System.out.printf("%d MB file in %s, %d byte blocks%n", size >> 20, directory, blockSize);
+
+            for (HashAlgorithm algorithm : new HashAlgorithm[] {HashAlgorithms.SHA_256, HashAlgorithms.XXH64}) {
+                for (ReadStrategy strategy : ReadStrategy.values()) {
+                    ContentReader reader = strategy.createReader(blockSize);
+                    Hasher hasher = algorithm.newHasher();
+                    double first = 0;
+                    double best = 0;
+                    for (int i = 0; i < MEASURED_RUNS; i++) {
+                        long start = System.nanoTime();
+                        reader.read(file, hasher);
+                        hasher.digest();
+                        double megabytesPerSecond = size / (1024.0 * 1024.0) / ((System.nanoTime() - start) / 1e9);
+                        first = i == 0 ? megabytesPerSecond : first;
+                        best = Math.max(best, megabytesPerSecond);
+                    }
+                    System.out.printf("%-12s %-14s first %8.0f MB/s, best %8.0f MB/s%n",
+                                      algorithm.getName(), strategy, first, best);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void writeRandomFile(Path file, long size) throws IOException {
+        byte[] chunk = new byte[1024 * 1024];
+        Random random = new Random(42);
+        try (OutputStream output = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += chunk.length) {
+                random.nextBytes(chunk);
+                output.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+            }
+        }
+    }
+}
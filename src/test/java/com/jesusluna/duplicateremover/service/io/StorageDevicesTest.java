@@ -0,0 +1,89 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import com.jesusluna.duplicateremover.model.ScannedFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for StorageDevices
+ */
+public class StorageDevicesTest {
+
+    @Test
+    public void testDeviceParsedFromFileKey() {
+        ScannedFile file = new ScannedFile(new File("a"), 1, 0, "(dev=803,ino=1234)");
+        assertEquals(0x803, file.getDeviceId());
+
+        ScannedFile noKey = new ScannedFile(new File("b"), 1, 0, null);
+        assertEquals(-1, noKey.getDeviceId());
+
+        ScannedFile otherKey = new ScannedFile(new File("c"), 1, 0, "opaque");
+        assertEquals(-1, otherKey.getDeviceId());
+    }
+
+    @Test
+    public void testFilesGroupedByDevice(@TempDir Path tempDir) throws Exception {
+        StorageDevices devices = new StorageDevices();
+        StorageDevice first = devices.deviceOf(new ScannedFile(tempDir.resolve("a").toFile(), 1, 0, "(dev=1,ino=1)"));
+        StorageDevice same = devices.deviceOf(new ScannedFile(tempDir.resolve("b").toFile(), 1, 0, "(dev=1,ino=2)"));
+        StorageDevice other = devices.deviceOf(new ScannedFile(tempDir.resolve("c").toFile(), 1, 0, "(dev=2,ino=1)"));
+
+        assertSame(first, same, "Same device identifier");
+        assertNotEquals(first, other, "Different device identifier");
+        assertEquals(2, devices.getDevices().size());
+        assertEquals(first, devices.getDevices().get(0), "Devices in the order first seen");
+    }
+
+    @Test
+    public void testRootStandsForDeviceWithoutFileKey(@TempDir Path tempDir) {
+        StorageDevices devices = new StorageDevices();
+        StorageDevice a = devices.deviceOf(new ScannedFile(tempDir.resolve("a").toFile(), 1, 0, null));
+        StorageDevice b = devices.deviceOf(new ScannedFile(tempDir.resolve("b").toFile(), 1, 0, null));
+
+        assertSame(a, b);
+        assertEquals(tempDir.getRoot().toString(), a.getKey());
+    }
+
+    @Test
+    public void testRealFileResolvesItsFileStore(@TempDir Path tempDir) throws Exception {
+        Path path = Files.writeString(tempDir.resolve("file.txt"), "content");
+        ScannedFile file = ScannedFile.of(path.toFile(), Files.readAttributes(path, BasicFileAttributes.class));
+
+        StorageDevice device = new StorageDevices().deviceOf(file);
+
+        assertEquals(Files.getFileStore(path).type(), device.getType());
+        assertFalse(device.getName().isEmpty());
+    }
+
+    @Test
+    public void testRotationalFlagReadFromDiskOfPartition(@TempDir Path sysfs) throws Exception {
+        Path disk = Files.createDirectories(sysfs.resolve("devices/pci0000:00/ata1/block/sda"));
+        Files.createDirectories(disk.resolve("sda1"));
+        Files.createDirectories(disk.resolve("queue"));
+        Files.writeString(disk.resolve("queue/rotational"), "1\n");
+        Path ssd = Files.createDirectories(sysfs.resolve("devices/pci0000:00/nvme0/block/nvme0n1"));
+        Files.createDirectories(ssd.resolve("queue"));
+        Files.writeString(ssd.resolve("queue/rotational"), "0\n");
+        Path block = Files.createDirectories(sysfs.resolve("dev/block"));
+        Files.createSymbolicLink(block.resolve("8:1"), disk.resolve("sda1"));
+        Files.createSymbolicLink(block.resolve("259:0"), ssd);
+
+        StorageDevices devices = new StorageDevices(sysfs);
+
+        assertTrue(devices.isRotational(0x801), "Partition 8:1 of a spinning disk");
+        assertFalse(devices.isRotational((259 << 8) | 0), "NVMe disk 259:0");
+        assertFalse(devices.isRotational(0x2a), "Device 0:42 (e.g. tmpfs) has no block device");
+
+        StorageDevice device = devices.deviceOf(new ScannedFile(sysfs.resolve("a").toFile(), 1, 0, "(dev=801,ino=1)"));
+        assertTrue(device.isRotational());
+        assertTrue(ReadOrdering.AUTO.isPhysical(device));
+        assertFalse(ReadOrdering.UNORDERED.isPhysical(device));
+    }
+}
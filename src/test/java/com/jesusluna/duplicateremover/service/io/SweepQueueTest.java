@@ -0,0 +1,61 @@
+package com.jesusluna.duplicateremover.service.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for SweepQueue
+ */
+public class SweepQueueTest {
+
+    private static List<Integer> drain(SweepQueue<Integer, Integer> queue) {
+        List<Integer> taken = new ArrayList<>();
+        Integer item;
+        while ((item = queue.poll()) != null) {
+            taken.add(item);
+        }
+        return taken;
+    }
+
+    @Test
+    public void testItemsTakenInPositionOrder() {
+        SweepQueue<Integer, Integer> queue = new SweepQueue<>(item -> item);
+        queue.addAll(List.of(5, 1, 4, 2, 3));
+
+        assertEquals(5, queue.size());
+        assertEquals(1, queue.peek());
+        assertEquals(List.of(1, 2, 3, 4, 5), drain(queue));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testItemsBehindTheSweepWaitForTheNextOne() {
+        SweepQueue<Integer, Integer> queue = new SweepQueue<>(item -> item);
+        queue.addAll(List.of(10, 20, 30));
+        assertEquals(10, queue.poll());
+        assertEquals(20, queue.poll());
+
+        // Added behind the sweep: taken after the items ahead of it
+        queue.add(5);
+        queue.add(25);
+        assertEquals(25, queue.poll());
+        assertEquals(30, queue.poll());
+        assertEquals(5, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testEqualPositionsKeepInsertionOrder() {
+        SweepQueue<String, Integer> queue = new SweepQueue<>(String::length);
+        queue.addAll(List.of("bb", "a1", "c", "a2"));
+
+        assertEquals("c", queue.poll());
+        assertEquals("bb", queue.poll());
+        assertEquals("a1", queue.poll());
+        assertEquals("a2", queue.poll());
+    }
+}